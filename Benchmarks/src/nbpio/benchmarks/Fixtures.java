@@ -0,0 +1,267 @@
+package nbpio.benchmarks;
+
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.json.simple.JSONObject;
+
+/**
+ * Generates the input of the benchmarks. The same arguments always give the
+ * same data, so results of different runs measure the same work.
+ * <p>
+ * The PlatformIO outputs describe a registry of realistic size,
+ * {@value #BOARD_COUNT} boards on {@value #PLATFORM_COUNT} platforms and
+ * {@value #LIBRARY_COUNT} libraries. They are in the format the
+ * fake-platformio script in the NBPIOProject test data records, with names,
+ * descriptions and array sizes varied like those of the real registry.
+ */
+public final class Fixtures {
+
+    public static final int BOARD_COUNT = 2000;
+    public static final int PLATFORM_COUNT = 40;
+    public static final int LIBRARY_COUNT = 20000;
+    public static final int SEARCH_PAGE_SIZE = 10;
+
+    private static final long SEED = 42;
+    private static final String[] FRAMEWORKS = {"arduino", "mbed", "espidf", "libopencm3", "simba", "spl", "stm32cube", "wiringpi", "energia", "pumbaa"};
+    private static final String[] WORDS = {"sensor", "humidity", "temperature", "display", "oled", "driver", "wifi", "bluetooth", "motor", "servo",
+        "stepper", "led", "rgb", "pixel", "i2c", "spi", "uart", "gps", "rtc", "clock", "button", "keypad", "lcd", "tft", "touch", "audio",
+        "mqtt", "http", "json", "sd", "eeprom", "flash", "pwm", "adc", "timer", "radio", "lora", "ethernet", "can", "modbus"};
+    private static final String[] MCUS = {"ATMEGA328P", "ATMEGA2560", "ATMEGA32U4", "AT91SAM3X8E", "ESP8266", "ESP32", "STM32F103C8", "STM32F401RE",
+        "NRF52832", "MK20DX256", "SAMD21G18A", "LPC1768"};
+
+    private Fixtures() {
+    }
+
+    /**
+     * Numbered lines of the given length, including the line feed, as a
+     * device sends them, cut to size bytes of UTF-8.
+     */
+    public static byte[] serialText( int lineLength, int size ) {
+        StringBuilder text = new StringBuilder( size + lineLength );
+        for ( long n = 0; text.length() < size; n++ ) {
+            int lineStart = text.length();
+            text.append( n ).append( ':' );
+            while ( text.length() - lineStart < lineLength - 1 ) {
+                text.append( (char) ('a' + (text.length() - lineStart + n) % 26) );
+            }
+            text.setLength( lineStart + lineLength - 1 );
+            text.append( '\n' );
+        }
+        text.setLength( size );
+        return text.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * The data decoded in chunks of the given size, as a port delivers it.
+     */
+    public static List<CharBuffer> chunks( byte[] data, int chunkSize ) {
+        List<CharBuffer> chunks = new ArrayList<>();
+        for ( int i=0; i<data.length; i+=chunkSize ) {
+            chunks.add( CharBuffer.wrap( new String( data, i, Math.min( chunkSize, data.length - i ), StandardCharsets.UTF_8 ) ) );
+        }
+        return chunks;
+    }
+
+    /**
+     * The output of "platformio boards --json-output".
+     */
+    public static byte[] boardsJSON() {
+        Random random = new Random( SEED );
+        StringBuilder json = new StringBuilder( "[" );
+        for ( int i=0; i<BOARD_COUNT; i++ ) {
+            Board board = new Board( i, random );
+            json.append( i == 0 ? "" : ",\n " )
+                .append( "{\"fcpu\": " ).append( board.frequencyHz )
+                .append( ", \"frameworks\": " ).append( quotedList( pick( random, FRAMEWORKS, 1 + random.nextInt(3) ) ) )
+                .append( ", \"id\": " ).append( quoted( board.type ) )
+                .append( ", \"mcu\": " ).append( quoted( board.MCU ) )
+                .append( ", \"name\": " ).append( quoted( board.name ) )
+                .append( ", \"platform\": " ).append( quoted( board.platform ) )
+                .append( ", \"ram\": " ).append( board.RAMBytes )
+                .append( ", \"rom\": " ).append( board.flashBytes )
+                .append( ", \"url\": " ).append( quoted( "https://example.com/boards/" + board.type ) )
+                .append( ", \"vendor\": " ).append( quoted( "Vendor " + (i % 97) ) )
+                .append( "}" );
+        }
+        return json.append( "]\n" ).toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * The text output of "platformio boards" of older versions.
+     */
+    public static byte[] boardsText() {
+        Random random = new Random( SEED );
+        StringBuilder text = new StringBuilder();
+        String currentPlatform = null;
+        for ( int i=0; i<BOARD_COUNT; i++ ) {
+            Board board = new Board( i, random );
+            if ( !board.platform.equals( currentPlatform ) ) {
+                currentPlatform = board.platform;
+                text.append( "\nPlatform: " ).append( currentPlatform ).append( '\n' )
+                    .append( "---------------------------------------------------------------------------\n" )
+                    .append( "Type                  MCU            Frequency  Flash   RAM    Name\n" )
+                    .append( "---------------------------------------------------------------------------\n" );
+            }
+            // The sizes are whole kilobytes and the frequencies whole megahertz
+            text.append( String.format( Locale.ROOT, "%-21s %-14s %-9s %-7s %-6s %s%n", board.type, board.MCU.toLowerCase( Locale.ROOT ),
+                board.frequencyHz / 1000000 + "MHz", board.flashBytes / 1024 + "KB", board.RAMBytes / 1024 + "KB", board.name ) );
+        }
+        return text.toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * The pages of "platformio lib search --json-output" over the whole
+     * registry, {@value #SEARCH_PAGE_SIZE} libraries per page.
+     */
+    public static List<byte[]> librarySearchPages() {
+        Random random = new Random( SEED );
+        List<byte[]> pages = new ArrayList<>();
+        int pageCount = (LIBRARY_COUNT + SEARCH_PAGE_SIZE - 1) / SEARCH_PAGE_SIZE;
+        for ( int page=1; page<=pageCount; page++ ) {
+            StringBuilder json = new StringBuilder( "{\"items\": [" );
+            for ( int id=(page - 1) * SEARCH_PAGE_SIZE + 1; id<=Math.min( LIBRARY_COUNT, page * SEARCH_PAGE_SIZE ); id++ ) {
+                if ( json.charAt( json.length() - 1 ) != '[' ) {
+                    json.append( ", " );
+                }
+                json.append( "{\"authornames\": " ).append( quotedList( new String[] {"Author " + random.nextInt(5000)} ) )
+                    .append( ", \"description\": " ).append( quoted( description( random ) ) )
+                    .append( ", \"dllifetime\": " ).append( random.nextInt(1000000) )
+                    .append( ", \"examplenumber\": " ).append( random.nextInt(20) )
+                    .append( ", \"frameworks\": " ).append( namedList( pick( random, FRAMEWORKS, 1 + random.nextInt(2) ) ) )
+                    .append( ", \"id\": " ).append( id )
+                    .append( ", \"keywords\": " ).append( quotedList( pick( random, WORDS, 1 + random.nextInt(6) ) ) )
+                    .append( ", \"name\": " ).append( quoted( libraryName( id, random ) ) )
+                    .append( ", \"platforms\": " ).append( namedList( platforms( random ) ) )
+                    .append( ", \"updated\": \"2017-0" ).append( 1 + random.nextInt(9) ).append( "-1" ).append( random.nextInt(10) ).append( "T12:00:00Z\"" )
+                    .append( ", \"versionname\": " ).append( quoted( version( random ) ) )
+                    .append( "}" );
+            }
+            json.append( "], \"page\": " ).append( page ).append( ", \"perpage\": " ).append( SEARCH_PAGE_SIZE )
+                .append( ", \"total\": " ).append( LIBRARY_COUNT ).append( "}\n" );
+            pages.add( json.toString().getBytes( StandardCharsets.UTF_8 ) );
+        }
+        return pages;
+    }
+
+    /**
+     * The output of "platformio lib list --json-output" with every library
+     * of the registry installed.
+     */
+    public static byte[] libraryList() {
+        Random random = new Random( SEED );
+        StringBuilder json = new StringBuilder( "[" );
+        for ( int id=1; id<=LIBRARY_COUNT; id++ ) {
+            String name = libraryName( id, random );
+            json.append( id == 1 ? "" : ", " )
+                .append( "{\"authors\": [" );
+            int authorCount = 1 + random.nextInt(3);
+            for ( int a=0; a<authorCount; a++ ) {
+                int author = random.nextInt(5000);
+                json.append( a == 0 ? "" : ", " )
+                    .append( "{\"email\": " ).append( random.nextBoolean() ? "null" : quoted( "author" + author + "@example.com" ) )
+                    .append( ", \"maintainer\": " ).append( a == 0 )
+                    .append( ", \"name\": " ).append( quoted( "Author " + author ) )
+                    .append( ", \"url\": " ).append( quoted( "https://example.com/authors/" + author ) )
+                    .append( "}" );
+            }
+            json.append( "], \"description\": " ).append( quoted( description( random ) ) )
+                .append( ", \"frameworks\": " ).append( quotedList( pick( random, FRAMEWORKS, 1 + random.nextInt(2) ) ) )
+                .append( ", \"id\": " ).append( id )
+                .append( ", \"keywords\": " ).append( quotedList( pick( random, WORDS, 1 + random.nextInt(6) ) ) )
+                .append( ", \"name\": " ).append( quoted( name ) )
+                .append( ", \"platforms\": " ).append( quotedList( platforms( random ) ) )
+                .append( ", \"repository\": {\"type\": \"git\", \"url\": " ).append( quoted( "https://github.com/example/" + name + ".git" ) ).append( "}" )
+                .append( ", \"version\": " ).append( quoted( version( random ) ) )
+                .append( "}" );
+        }
+        return json.append( "]\n" ).toString().getBytes( StandardCharsets.UTF_8 );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private static String libraryName( int id, Random random ) {
+        return WORDS[random.nextInt( WORDS.length )] + "-" + WORDS[random.nextInt( WORDS.length )] + "-" + id;
+    }
+
+    private static String description( Random random ) {
+        StringBuilder description = new StringBuilder( "Arduino library for" );
+        int words = 5 + random.nextInt(20);
+        for ( int i=0; i<words; i++ ) {
+            description.append( ' ' ).append( WORDS[random.nextInt( WORDS.length )] );
+        }
+        return description.toString();
+    }
+
+    private static String version( Random random ) {
+        return random.nextInt(4) + "." + random.nextInt(20) + "." + random.nextInt(10);
+    }
+
+    private static String[] platforms( Random random ) {
+        String[] platforms = new String[1 + random.nextInt(8)];
+        for ( int i=0; i<platforms.length; i++ ) {
+            platforms[i] = "platform" + random.nextInt( PLATFORM_COUNT );
+        }
+        return platforms;
+    }
+
+    private static String[] pick( Random random, String[] values, int count ) {
+        String[] ret = new String[count];
+        for ( int i=0; i<count; i++ ) {
+            ret[i] = values[random.nextInt( values.length )];
+        }
+        return ret;
+    }
+
+    private static String quoted( String value ) {
+        return "\"" + JSONObject.escape( value ) + "\"";
+    }
+
+    private static String quotedList( String[] values ) {
+        StringBuilder list = new StringBuilder( "[" );
+        for ( String value : values ) {
+            list.append( list.length() > 1 ? ", " : "" ).append( quoted( value ) );
+        }
+        return list.append( "]" ).toString();
+    }
+
+    // Search results list frameworks and platforms as objects with a name and a title
+    private static String namedList( String[] names ) {
+        StringBuilder list = new StringBuilder( "[" );
+        for ( String name : names ) {
+            list.append( list.length() > 1 ? ", " : "" )
+                .append( "{\"name\": " ).append( quoted( name ) ).append( ", \"title\": " ).append( quoted( name.toUpperCase( Locale.ROOT ) ) ).append( "}" );
+        }
+        return list.append( "]" ).toString();
+    }
+
+
+    // Sorted by platform, as PlatformIO lists them
+    private static final class Board {
+
+        private final String platform;
+        private final String type;
+        private final String MCU;
+        private final String name;
+        private final long frequencyHz;
+        private final long flashBytes;
+        private final long RAMBytes;
+
+        Board( int index, Random random ) {
+            platform = "platform" + (index * PLATFORM_COUNT / BOARD_COUNT);
+            type = "board" + index;
+            MCU = MCUS[random.nextInt( MCUS.length )];
+            name = "Board " + index + " (" + MCU + ", " + WORDS[random.nextInt( WORDS.length )] + " edition)";
+            frequencyHz = (8 + random.nextInt(30) * 8) * 1000000L;
+            flashBytes = (16 + random.nextInt(256)) * 1024L;
+            RAMBytes = (1 + random.nextInt(128)) * 1024L;
+        }
+
+    }
+
+}
@@ -0,0 +1,166 @@
+package nbpio.project;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.LogManager;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+import nbpio.benchmarks.Fixtures;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the parsers of the PlatformIO output on the registry generated
+ * by {@link Fixtures}. Every invocation parses the whole registry, and the
+ * results are given per board or library:
+ * <ul>
+ * <li>boardsJSON - the boards lookup from "boards --json-output", as built
+ * by {@link PlatformIO#createBoardsLookup()}</li>
+ * <li>boardsText - the same from the text output of older versions</li>
+ * <li>search - {@link PlatformIO#parseSearchResults(java.io.InputStream)}
+ * on every page of "lib search"</li>
+ * <li>shortLibrary - {@link PlatformIO#parseShortLibraryJSONObject(JSONObject)}
+ * on the parsed search items</li>
+ * <li>list - parsing "lib list" into JSON objects</li>
+ * <li>fullLibrary - {@link PlatformIO#parseFullLibraryJSONObject(JSONObject)}
+ * on the parsed list entries</li>
+ * </ul>
+ * Log records are formatted and discarded, as they would be written to the
+ * IDE log, so that their cost is included without flooding the console.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    private byte[] boardsJSON;
+    private byte[] boardsText;
+    private List<byte[]> searchPages;
+    private byte[] libraryList;
+    private List<JSONObject> searchItems;
+    private JSONArray listEntries;
+
+
+    @Setup
+    public void setup() throws ParseException {
+        discardLogOutput();
+        boardsJSON = Fixtures.boardsJSON();
+        boardsText = Fixtures.boardsText();
+        searchPages = Fixtures.librarySearchPages();
+        libraryList = Fixtures.libraryList();
+        searchItems = parseSearchItems( searchPages );
+        listEntries = (JSONArray) new JSONParser().parse( new String( libraryList, StandardCharsets.UTF_8 ) );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Fixtures.BOARD_COUNT)
+    public Map<String,List<BoardDefinition>> boardsJSON() throws IOException, ParseException {
+        Map<String,List<BoardDefinition>> lookup = new HashMap<>();
+        PlatformIO.parseBoardsJSON( new ByteArrayInputStream( boardsJSON ), (platform, boards) -> lookup.computeIfAbsent( platform, (k) -> new ArrayList<>() ).addAll( boards ) );
+        return lookup;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Fixtures.BOARD_COUNT)
+    public Map<String,List<BoardDefinition>> boardsText() throws IOException {
+        Map<String,List<BoardDefinition>> lookup = new HashMap<>();
+        PlatformIO.parseBoards( new ByteArrayInputStream( boardsText ), (platform, boards) -> lookup.computeIfAbsent( platform, (k) -> new ArrayList<>() ).addAll( boards ) );
+        return lookup;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Fixtures.LIBRARY_COUNT)
+    public List<LibraryDefinition> search() throws IOException {
+        List<LibraryDefinition> libraries = new ArrayList<>( Fixtures.LIBRARY_COUNT );
+        for ( byte[] page : searchPages ) {
+            libraries.addAll( PlatformIO.parseSearchResults( new ByteArrayInputStream( page ) ).getResults() );
+        }
+        return libraries;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Fixtures.LIBRARY_COUNT)
+    public List<LibraryDefinition> shortLibrary() {
+        List<LibraryDefinition> libraries = new ArrayList<>( Fixtures.LIBRARY_COUNT );
+        for ( JSONObject item : searchItems ) {
+            libraries.add( PlatformIO.parseShortLibraryJSONObject( item ) );
+        }
+        return libraries;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Fixtures.LIBRARY_COUNT)
+    public Object list() throws ParseException {
+        return new JSONParser().parse( new String( libraryList, StandardCharsets.UTF_8 ) );
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Fixtures.LIBRARY_COUNT)
+    public List<LibraryDefinition> fullLibrary() {
+        List<LibraryDefinition> libraries = new ArrayList<>( Fixtures.LIBRARY_COUNT );
+        for ( Object entry : listEntries ) {
+            libraries.add( PlatformIO.parseFullLibraryJSONObject( (JSONObject) entry ) );
+        }
+        return libraries;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private static void discardLogOutput() {
+        Logger root = LogManager.getLogManager().getLogger( "" );
+        for ( Handler handler : root.getHandlers() ) {
+            root.removeHandler( handler );
+        }
+        root.addHandler( new StreamHandler( new OutputStream() {
+            @Override
+            public void write( int b ) {
+                // discarded
+            }
+
+            @Override
+            public void write( byte[] b, int off, int len ) {
+                // discarded
+            }
+        }, new SimpleFormatter() ) );
+    }
+
+    private static List<JSONObject> parseSearchItems( List<byte[]> searchPages ) throws ParseException {
+        List<JSONObject> items = new ArrayList<>( Fixtures.LIBRARY_COUNT );
+        JSONParser parser = new JSONParser();
+        for ( byte[] page : searchPages ) {
+            JSONObject results = (JSONObject) parser.parse( new String( page, StandardCharsets.UTF_8 ) );
+            for ( Object item : (JSONArray) results.get("items") ) {
+                items.add( (JSONObject) item );
+            }
+        }
+        return items;
+    }
+
+}
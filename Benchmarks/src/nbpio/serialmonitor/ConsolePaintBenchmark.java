@@ -0,0 +1,71 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.swing.text.SimpleAttributeSet;
+import nbpio.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures painting one screen of a full {@link ConsoleView}, which happens
+ * once per frame. The console is painted headless into an image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ConsolePaintBenchmark {
+
+    @Param({"20", "80", "400"})
+    int lineLength;
+
+    private ConsoleView view;
+    private BufferedImage image;
+    private int y;
+
+
+    @Setup
+    public void setup() {
+        ConsoleBuffer buffer = ConsoleBuffer.createDefault();
+        CharBuffer text = StandardCharsets.UTF_8.decode( ByteBuffer.wrap( Fixtures.serialText( lineLength, PipelineBenchmark.DATA_SIZE ) ) );
+        buffer.append( text, 0, text.length(), new SimpleAttributeSet() );
+        view = new ConsoleView( buffer );
+        view.setBackground( Color.BLACK );
+        view.setForeground( Color.LIGHT_GRAY );
+        image = new BufferedImage( 1200, 800, BufferedImage.TYPE_INT_RGB );
+        view.setSize( 1200, view.getPreferredSize().height );
+        // shows the last screen of lines, as when following the end
+        y = Math.max( 0, view.getHeight() - image.getHeight() );
+    }
+
+    @Benchmark
+    public BufferedImage paint() {
+        Graphics2D g = image.createGraphics();
+        try {
+            g.translate( 0, -y );
+            g.setClip( 0, y, image.getWidth(), image.getHeight() );
+            view.paint( g );
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+}
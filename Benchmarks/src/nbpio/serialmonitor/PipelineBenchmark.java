@@ -0,0 +1,167 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import nbpio.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the stages between a serial port and the console, at the chunk
+ * sizes ports deliver and the line lengths devices send. Every operation
+ * passes {@value #DATA_SIZE} bytes through the stage:
+ * <ul>
+ * <li>decode - reading and decoding chunks in the {@link SerialPortReader}</li>
+ * <li>frame - splitting the text into lines of a {@link ConsoleBuffer}</li>
+ * <li>render - collecting styled chunks in a {@link ConsoleRenderer} and
+ * appending them as one frame</li>
+ * <li>filter - the same through a {@link ConsoleFilter} with a hide and a
+ * highlight rule</li>
+ * </ul>
+ * Painting the console is measured by {@link ConsolePaintBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+
+    static final int DATA_SIZE = 256 * 1024;
+
+    @Param({"16", "64", "512", "4096"})
+    int chunkSize;
+
+    @Param({"20", "80", "400"})
+    int lineLength;
+
+    private ChunkedInputStream in;
+    private SerialPortReader reader;
+    private long decodedChars;
+    private List<CharBuffer> chunks;
+    private ConsoleBuffer buffer;
+    private SimpleAttributeSet input;
+    private SimpleAttributeSet notification;
+    private ConsoleRenderer renderer;
+    private ConsoleRenderer filterRenderer;
+    private ConsoleFilter filter;
+
+
+    @Setup
+    public void setup() {
+        byte[] data = Fixtures.serialText( lineLength, DATA_SIZE );
+        in = new ChunkedInputStream( data, chunkSize );
+        SerialInputListener counter = (text) -> decodedChars += text.remaining();
+        reader = new SerialPortReader( in, StandardCharsets.UTF_8, Collections.singletonList( counter ) );
+        chunks = Fixtures.chunks( data, chunkSize );
+        buffer = ConsoleBuffer.createDefault();
+        input = new SimpleAttributeSet();
+        notification = new SimpleAttributeSet();
+        StyleConstants.setBold( notification, true );
+        renderer = new ConsoleRenderer( ConsoleBuffer.createDefault(), null, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        filterRenderer = new ConsoleRenderer( ConsoleBuffer.createDefault(), null, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        filter = new ConsoleFilter( filterRenderer, ConsoleBuffer.createDefault() );
+        filter.setRules( Arrays.asList(
+            new FilterRule.Builder().action( FilterRule.Action.HIDE ).pattern( Pattern.compile( "^7" ) ).build(),
+            new FilterRule.Builder().action( FilterRule.Action.HIGHLIGHT ).pattern( Pattern.compile( "[0-9]+5:" ) ).color( Color.RED ).build()
+        ));
+        filter.waitFinished();
+    }
+
+    @Benchmark
+    public long decode() {
+        in.rewind();
+        while ( reader.pollOnce() > 0 ) {
+            // read the data once
+        }
+        return decodedChars;
+    }
+
+    @Benchmark
+    public long frame() {
+        for ( CharBuffer chunk : chunks ) {
+            buffer.append( chunk, 0, chunk.length(), input );
+        }
+        return buffer.getFirstLineNumber() + buffer.getLineCount();
+    }
+
+    @Benchmark
+    public ConsoleRenderer render() {
+        int i = 0;
+        for ( CharBuffer chunk : chunks ) {
+            // an occasional notification splits the runs of styles
+            renderer.print( chunk, ++i % 64 == 0 ? notification : input );
+        }
+        // called off the EDT here; the benchmark owns the buffer
+        renderer.flush();
+        return renderer;
+    }
+
+    @Benchmark
+    public ConsoleRenderer filter() {
+        for ( CharBuffer chunk : chunks ) {
+            filter.print( chunk, input );
+        }
+        filter.waitFinished();
+        filterRenderer.flush();
+        return filterRenderer;
+    }
+
+
+    // Hands out the data in chunks, as a port does
+    private static final class ChunkedInputStream extends InputStream {
+
+        private final byte[] data;
+        private final int chunkSize;
+        private int position;
+
+        ChunkedInputStream( byte[] data, int chunkSize ) {
+            this.data = data;
+            this.chunkSize = chunkSize;
+        }
+
+        void rewind() {
+            position = 0;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return position < data.length ? data[position++] & 0xFF : -1;
+        }
+
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException {
+            int n = Math.min( Math.min( len, chunkSize ), data.length - position );
+            System.arraycopy( data, position, b, off, n );
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return Math.min( chunkSize, data.length - position );
+        }
+
+    }
+
+}
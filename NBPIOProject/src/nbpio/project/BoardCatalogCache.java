@@ -0,0 +1,171 @@
+package nbpio.project;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.openide.modules.Places;
+
+/**
+ * On-disk copy of the board catalog produced by {@link PlatformIO#createBoardsLookup()}.
+ * The catalog is stored together with a key made of the PlatformIO version and
+ * a fingerprint of the installed platforms, so a stale copy can be detected
+ * without running "platformio boards" again.
+ */
+public final class BoardCatalogCache {
+
+    private static final Logger LOGGER = Logger.getLogger( BoardCatalogCache.class.getName() );
+
+    private static final String CACHE_FILE_PATH = "nbpio/boards.cache";
+    private static final int MAGIC = 0x4E42424F;   // "NBBO"
+    private static final int FORMAT_VERSION = 2;
+
+    private static BoardCatalogCache defaultCache;
+
+    private final File cacheFile;
+    private String key;
+
+
+    public BoardCatalogCache( File cacheFile ) {
+        this.cacheFile = cacheFile;
+    }
+
+    public static synchronized BoardCatalogCache getDefault() {
+        if ( defaultCache == null ) {
+            defaultCache = new BoardCatalogCache( Places.getCacheSubfile( CACHE_FILE_PATH ) );
+        }
+        return defaultCache;
+    }
+
+    /**
+     * Computes the key the cached catalog is validated against. The installed
+     * platforms are fingerprinted from the file system; the version requires
+     * a PlatformIO process, so this should not be called on the EDT.
+     */
+    public static String computeKey() throws IOException {
+        return PlatformIO.getVersion() + "|" + computePlatformsFingerprint( PlatformIO.getPlatformsDirectory() );
+    }
+
+    public synchronized Map<String,List<BoardDefinition>> load() {
+        if ( !cacheFile.isFile() ) {
+            return null;
+        }
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( cacheFile ) ) ) ) {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+                LOGGER.log( Level.INFO, "Ignoring board catalog cache in an unknown format: {0}", cacheFile );
+                return null;
+            }
+            String storedKey = in.readUTF();
+            int platformCount = in.readInt();
+            Map<String,List<BoardDefinition>> ret = new HashMap<>( platformCount * 2 );
+            BoardDefinition.Builder boardBuilder = new BoardDefinition.Builder();
+            for ( int i=0; i<platformCount; i++ ) {
+                String platform = in.readUTF();
+                int boardCount = in.readInt();
+                List<BoardDefinition> boards = new ArrayList<>( boardCount );
+                for ( int j=0; j<boardCount; j++ ) {
+                    boards.add(
+                        boardBuilder
+                            .name( readString(in) )
+                            .type( readString(in) )
+                            .MCU( readString(in) )
+                            .frequency( readString(in) )
+                            .flash( readString(in) )
+                            .RAM( readString(in) )
+                            .frequencyHz( in.readLong() )
+                            .flashBytes( in.readLong() )
+                            .RAMBytes( in.readLong() )
+                            .build()
+                    );
+                }
+                ret.put( platform, boards );
+            }
+            key = storedKey;
+            return ret;
+        } catch (IOException ex) {
+            LOGGER.log( Level.WARNING, "Failed to read board catalog cache", ex );
+            return null;
+        }
+    }
+
+    public synchronized boolean isCurrent( String currentKey ) {
+        return key != null && key.equals( currentKey );
+    }
+
+    public synchronized void store( String newKey, Map<String,List<BoardDefinition>> boardsLookup ) {
+        File tempFile = new File( cacheFile.getParentFile(), cacheFile.getName() + ".tmp" );
+        try {
+            try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) ) ) {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                out.writeUTF( newKey );
+                out.writeInt( boardsLookup.size() );
+                for ( Map.Entry<String,List<BoardDefinition>> e : boardsLookup.entrySet() ) {
+                    out.writeUTF( e.getKey() );
+                    out.writeInt( e.getValue().size() );
+                    for ( BoardDefinition board : e.getValue() ) {
+                        writeString( out, board.getName() );
+                        writeString( out, board.getType() );
+                        writeString( out, board.getMCU() );
+                        writeString( out, board.getFrequency() );
+                        writeString( out, board.getFlash() );
+                        writeString( out, board.getRAM() );
+                        out.writeLong( board.getFrequencyHz() );
+                        out.writeLong( board.getFlashBytes() );
+                        out.writeLong( board.getRAMBytes() );
+                    }
+                }
+            }
+            Files.move( tempFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            key = newKey;
+        } catch (IOException ex) {
+            LOGGER.log( Level.WARNING, "Failed to write board catalog cache", ex );
+            tempFile.delete();
+        }
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private static String computePlatformsFingerprint( File platformsDir ) {
+        CRC32 crc = new CRC32();
+        File[] platformDirs = platformsDir.listFiles( File::isDirectory );
+        if ( platformDirs != null ) {
+            Arrays.sort( platformDirs );
+            for ( File platformDir : platformDirs ) {
+                File manifest = new File( platformDir, "platform.json" );
+                String entry = platformDir.getName() + ":" + platformDir.lastModified() + ":" + manifest.lastModified() + ";";
+                crc.update( entry.getBytes( StandardCharsets.UTF_8 ) );
+            }
+        }
+        return Long.toHexString( crc.getValue() );
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException {
+        out.writeBoolean( value != null );
+        if ( value != null ) {
+            out.writeUTF( value );
+        }
+    }
+
+    private static String readString( DataInputStream in ) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
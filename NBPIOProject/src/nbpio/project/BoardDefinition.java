@@ -8,14 +8,20 @@ public final class BoardDefinition {
     private final String frequency;
     private final String flash;
     private final String RAM;
+    private final long frequencyHz;
+    private final long flashBytes;
+    private final long RAMBytes;
 
-    private BoardDefinition(String name, String type, String MCU, String frequency, String flash, String RAM) {
+    private BoardDefinition(String name, String type, String MCU, String frequency, String flash, String RAM, long frequencyHz, long flashBytes, long RAMBytes) {
         this.name = name;
         this.type = type;
         this.MCU = MCU;
         this.frequency = frequency;
         this.flash = flash;
         this.RAM = RAM;
+        this.frequencyHz = frequencyHz;
+        this.flashBytes = flashBytes;
+        this.RAMBytes = RAMBytes;
     }
 
     public String getName() {
@@ -41,6 +47,18 @@ public final class BoardDefinition {
     public String getType() {
         return type;
     }
+
+    public long getFrequencyHz() {
+        return frequencyHz;
+    }
+
+    public long getFlashBytes() {
+        return flashBytes;
+    }
+
+    public long getRAMBytes() {
+        return RAMBytes;
+    }
     
     public static class Builder {
         
@@ -50,6 +68,9 @@ public final class BoardDefinition {
         private String frequency;
         private String flash;
         private String RAM;
+        private long frequencyHz;
+        private long flashBytes;
+        private long RAMBytes;
         
         public Builder name( String name ) {
             this.name = name;
@@ -81,8 +102,23 @@ public final class BoardDefinition {
             return this;
         }
         
+        public Builder frequencyHz( long frequencyHz ) {
+            this.frequencyHz = frequencyHz;
+            return this;
+        }
+        
+        public Builder flashBytes( long flashBytes ) {
+            this.flashBytes = flashBytes;
+            return this;
+        }
+        
+        public Builder RAMBytes( long RAMBytes ) {
+            this.RAMBytes = RAMBytes;
+            return this;
+        }
+        
         public BoardDefinition build() {
-            return new BoardDefinition(name, type, MCU, frequency, flash, RAM);
+            return new BoardDefinition(name, type, MCU, frequency, flash, RAM, frequencyHz, flashBytes, RAMBytes);
         }
         
     }
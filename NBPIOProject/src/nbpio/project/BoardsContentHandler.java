@@ -0,0 +1,176 @@
+package nbpio.project;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import org.json.simple.parser.ContentHandler;
+
+/**
+ * Streaming handler for the output of "platformio boards --json-output".
+ * Boards are built straight from the parser events, without creating the
+ * JSON object tree, and handed over in groups of consecutive boards sharing
+ * the same platform.
+ */
+final class BoardsContentHandler implements ContentHandler {
+
+    private static final int BOARD_DEPTH = 2;
+
+    private final BiConsumer<String,List<BoardDefinition>> platformBoardsConsumer;
+    private final BoardDefinition.Builder boardBuilder = new BoardDefinition.Builder();
+    private String currentPlatform;
+    private List <BoardDefinition> currentPlatformBoards;
+    private int boardCount;
+    private int depth;
+    private String key;
+    private String platform;
+    private String type;
+    private String name;
+    private String MCU;
+    private long frequencyHz;
+    private long flashBytes;
+    private long RAMBytes;
+
+
+    BoardsContentHandler( BiConsumer<String,List<BoardDefinition>> platformBoardsConsumer ) {
+        this.platformBoardsConsumer = platformBoardsConsumer;
+    }
+
+    int getBoardCount() {
+        return boardCount;
+    }
+
+    @Override
+    public void startJSON() {
+        depth = 0;
+    }
+
+    @Override
+    public void endJSON() {
+        flushPlatform();
+    }
+
+    @Override
+    public boolean startObject() {
+        depth++;
+        if ( depth == BOARD_DEPTH ) {
+            platform = type = name = MCU = null;
+            frequencyHz = flashBytes = RAMBytes = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObject() {
+        if ( depth == BOARD_DEPTH && type != null ) {
+            addBoard();
+        }
+        depth--;
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry( String key ) {
+        if ( depth == BOARD_DEPTH ) {
+            this.key = key;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        if ( depth == BOARD_DEPTH ) {
+            key = null;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        depth++;
+        return true;
+    }
+
+    @Override
+    public boolean endArray() {
+        depth--;
+        return true;
+    }
+
+    @Override
+    public boolean primitive( Object value ) {
+        if ( depth != BOARD_DEPTH || key == null || value == null ) {
+            return true;
+        }
+        switch ( key ) {
+            case "id":
+                type = value.toString();
+                break;
+            case "name":
+                name = value.toString();
+                break;
+            case "platform":
+                platform = value.toString();
+                break;
+            case "mcu":
+                MCU = value.toString();
+                break;
+            case "fcpu":
+                frequencyHz = toLong( value );
+                break;
+            case "rom":
+                flashBytes = toLong( value );
+                break;
+            case "ram":
+                RAMBytes = toLong( value );
+                break;
+            default:
+                // not used
+        }
+        return true;
+    }
+
+    private void addBoard() {
+        if ( platform == null ) {
+            platform = "";
+        }
+        if ( !platform.equals( currentPlatform ) ) {
+            flushPlatform();
+            currentPlatform = platform;
+            currentPlatformBoards = new ArrayList<>();
+        }
+        currentPlatformBoards.add(
+            boardBuilder
+                .type( type )
+                .MCU( MCU )
+                .name( name )
+                .frequency( PlatformIO.formatFrequency( frequencyHz ) )
+                .flash( PlatformIO.formatSize( flashBytes ) )
+                .RAM( PlatformIO.formatSize( RAMBytes ) )
+                .frequencyHz( frequencyHz )
+                .flashBytes( flashBytes )
+                .RAMBytes( RAMBytes )
+                .build()
+        );
+        boardCount++;
+    }
+
+    private void flushPlatform() {
+        if ( currentPlatform != null ) {
+            platformBoardsConsumer.accept( currentPlatform, currentPlatformBoards );
+            currentPlatform = null;
+            currentPlatformBoards = null;
+        }
+    }
+
+    private static long toLong( Object value ) {
+        if ( value instanceof Number ) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong( value.toString() );
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+}
@@ -0,0 +1,332 @@
+package nbpio.project;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.modules.Places;
+
+/**
+ * Offline full-text index of the PlatformIO library registry. Every word of
+ * a library's name, keywords, description, frameworks and platforms points to
+ * the libraries containing it, weighted by the field it was found in, so that
+ * queries can be answered and ranked without running PlatformIO.
+ */
+public final class LibraryIndex {
+
+    private static final Logger LOGGER = Logger.getLogger( LibraryIndex.class.getName() );
+
+    private static final String INDEX_FILE_PATH = "nbpio/library.index";
+    private static final int MAGIC = 0x4E424C49;   // "NBLI"
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int NAME_WEIGHT = 8;
+    private static final int KEYWORD_WEIGHT = 4;
+    private static final int FRAMEWORK_WEIGHT = 2;
+    private static final int PLATFORM_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    private static final int MAX_WEIGHT = 127;
+
+    private static LibraryIndex defaultIndex;
+    private static boolean defaultIndexLoaded;
+
+    private final long created;
+    private final LibraryDefinition[] libraries;
+    // Sorted, so that prefix queries are a binary search followed by a short scan
+    private final String[] terms;
+    // For every term the ascending library positions and their weights
+    private final int[][] postings;
+    private final byte[][] weights;
+
+
+    private LibraryIndex( long created, LibraryDefinition[] libraries, String[] terms, int[][] postings, byte[][] weights ) {
+        this.created = created;
+        this.libraries = libraries;
+        this.terms = terms;
+        this.postings = postings;
+        this.weights = weights;
+    }
+
+    public static LibraryIndex build( Collection<LibraryDefinition> libraries ) {
+        LibraryDefinition[] libs = libraries.toArray( new LibraryDefinition[libraries.size()] );
+        Map<String,Map<Integer,Integer>> termWeights = new TreeMap<>();
+        for ( int i=0; i<libs.length; i++ ) {
+            Map<String,Integer> libTerms = new HashMap<>();
+            addTerms( libTerms, libs[i].getName(), NAME_WEIGHT );
+            addTerms( libTerms, libs[i].getKeywords(), KEYWORD_WEIGHT );
+            addTerms( libTerms, libs[i].getFrameworks(), FRAMEWORK_WEIGHT );
+            addTerms( libTerms, libs[i].getPlatforms(), PLATFORM_WEIGHT );
+            addTerms( libTerms, libs[i].getDescription(), DESCRIPTION_WEIGHT );
+            final int position = i;
+            libTerms.forEach( (term, weight) -> termWeights.computeIfAbsent( term, (t) -> new TreeMap<>() ).put( position, weight ) );
+        }
+
+        String[] terms = new String[termWeights.size()];
+        int[][] postings = new int[terms.length][];
+        byte[][] weights = new byte[terms.length][];
+        int t = 0;
+        for ( Map.Entry<String,Map<Integer,Integer>> e : termWeights.entrySet() ) {
+            terms[t] = e.getKey();
+            postings[t] = new int[e.getValue().size()];
+            weights[t] = new byte[postings[t].length];
+            int p = 0;
+            for ( Map.Entry<Integer,Integer> posting : e.getValue().entrySet() ) {
+                postings[t][p] = posting.getKey();
+                weights[t][p] = (byte) Math.min( MAX_WEIGHT, posting.getValue() );
+                p++;
+            }
+            t++;
+        }
+        return new LibraryIndex( System.currentTimeMillis(), libs, terms, postings, weights );
+    }
+
+    /**
+     * Returns the index stored in the IDE cache directory, loading it on first
+     * use, or null if no index has been built yet.
+     */
+    public static synchronized LibraryIndex getDefault() {
+        if ( !defaultIndexLoaded ) {
+            defaultIndexLoaded = true;
+            File file = Places.getCacheSubfile( INDEX_FILE_PATH );
+            if ( file.isFile() ) {
+                try {
+                    defaultIndex = load( file );
+                } catch (IOException ex) {
+                    LOGGER.log( Level.WARNING, "Failed to load library index", ex );
+                }
+            }
+        }
+        return defaultIndex;
+    }
+
+    /**
+     * Replaces the default index and stores it in the IDE cache directory.
+     */
+    public static void setDefault( LibraryIndex index ) {
+        synchronized (LibraryIndex.class) {
+            defaultIndex = index;
+            defaultIndexLoaded = true;
+        }
+        try {
+            index.store( Places.getCacheSubfile( INDEX_FILE_PATH ) );
+        } catch (IOException ex) {
+            LOGGER.log( Level.WARNING, "Failed to store library index", ex );
+        }
+    }
+
+    public static LibraryIndex load( File file ) throws IOException {
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+                throw new IOException( "Unsupported library index format: " + file );
+            }
+            long created = in.readLong();
+            LibraryDefinition[] libraries = new LibraryDefinition[readVarInt(in)];
+            for ( int i=0; i<libraries.length; i++ ) {
+                libraries[i] = LibrarySearchCache.readLibrary(in);
+            }
+            String[] terms = new String[readVarInt(in)];
+            int[][] postings = new int[terms.length][];
+            byte[][] weights = new byte[terms.length][];
+            for ( int t=0; t<terms.length; t++ ) {
+                terms[t] = in.readUTF();
+                postings[t] = new int[readVarInt(in)];
+                weights[t] = new byte[postings[t].length];
+                int position = 0;
+                for ( int p=0; p<postings[t].length; p++ ) {
+                    position += readVarInt(in);
+                    postings[t][p] = position;
+                }
+                in.readFully( weights[t] );
+            }
+            return new LibraryIndex( created, libraries, terms, postings, weights );
+        }
+    }
+
+    /**
+     * Writes the index to the given file. Library positions are delta and
+     * variable length encoded, which keeps the postings at about one byte each.
+     */
+    public void store( File file ) throws IOException {
+        File tempFile = new File( file.getParentFile(), file.getName() + ".tmp" );
+        try {
+            try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) ) ) {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                out.writeLong( created );
+                writeVarInt( out, libraries.length );
+                for ( LibraryDefinition lib : libraries ) {
+                    LibrarySearchCache.writeLibrary( out, lib );
+                }
+                writeVarInt( out, terms.length );
+                for ( int t=0; t<terms.length; t++ ) {
+                    out.writeUTF( terms[t] );
+                    writeVarInt( out, postings[t].length );
+                    int position = 0;
+                    for ( int p=0; p<postings[t].length; p++ ) {
+                        writeVarInt( out, postings[t][p] - position );
+                        position = postings[t][p];
+                    }
+                    out.write( weights[t] );
+                }
+            }
+            Files.move( tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        } finally {
+            tempFile.delete();
+        }
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    public int getLibraryCount() {
+        return libraries.length;
+    }
+
+    public boolean isOlderThan( long maxAgeMillis ) {
+        return System.currentTimeMillis() - created > maxAgeMillis;
+    }
+
+    /**
+     * Returns the libraries matching every word of the query, best matches
+     * first. The last word also matches as a prefix, with half the weight.
+     * Libraries which declare platforms but not the given one are left out;
+     * a null platform disables the filter.
+     */
+    public List<LibraryDefinition> search( String query, String platform, int maxResults ) {
+        List<String> queryTerms = tokenize( query );
+        int[] scores = new int[libraries.length];
+        int[] matchedTerms = new int[libraries.length];
+        for ( int q=0; q<queryTerms.size(); q++ ) {
+            String queryTerm = queryTerms.get(q);
+            boolean prefix = q == queryTerms.size() - 1;
+            int t = Arrays.binarySearch( terms, queryTerm );
+            if ( t >= 0 ) {
+                addScores( t, 2, q, scores, matchedTerms );
+                t++;
+            } else {
+                t = -t - 1;
+            }
+            while ( prefix && t < terms.length && terms[t].startsWith( queryTerm ) ) {
+                addScores( t, 1, q, scores, matchedTerms );
+                t++;
+            }
+        }
+
+        String platformKey = platform != null ? platform.toLowerCase( Locale.ROOT ) : null;
+        List<Integer> matches = new ArrayList<>();
+        for ( int i=0; i<libraries.length; i++ ) {
+            if ( matchedTerms[i] == queryTerms.size() && supportsPlatform( libraries[i], platformKey ) ) {
+                matches.add( i );
+            }
+        }
+        Comparator<Integer> byScore = (a, b) -> Integer.compare( scores[b], scores[a] );
+        Comparator<Integer> byName = Comparator.comparing( (i) -> libraries[i].getName(), Comparator.nullsLast( String.CASE_INSENSITIVE_ORDER ) );
+        Collections.sort( matches, byScore.thenComparing( byName ) );
+
+        List<LibraryDefinition> ret = new ArrayList<>( Math.min( matches.size(), maxResults ) );
+        for ( int i=0; i<matches.size() && i<maxResults; i++ ) {
+            ret.add( libraries[matches.get(i)] );
+        }
+        return ret;
+    }
+
+    static List<String> tokenize( String text ) {
+        List<String> ret = new ArrayList<>();
+        if ( text == null ) {
+            return ret;
+        }
+        int start = -1;
+        for ( int i=0; i<=text.length(); i++ ) {
+            boolean letterOrDigit = i < text.length() && Character.isLetterOrDigit( text.charAt(i) );
+            if ( letterOrDigit && start < 0 ) {
+                start = i;
+            } else if ( !letterOrDigit && start >= 0 ) {
+                ret.add( text.substring( start, i ).toLowerCase( Locale.ROOT ) );
+                start = -1;
+            }
+        }
+        return ret;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void addScores( int term, int factor, int queryTerm, int[] scores, int[] matchedTerms ) {
+        for ( int p=0; p<postings[term].length; p++ ) {
+            int position = postings[term][p];
+            scores[position] += factor * weights[term][p];
+            // A library matches a query term once, however many index terms share the prefix
+            if ( matchedTerms[position] == queryTerm ) {
+                matchedTerms[position]++;
+            }
+        }
+    }
+
+    private static boolean supportsPlatform( LibraryDefinition lib, String platform ) {
+        String[] platforms = lib.getPlatforms();
+        if ( platform == null || platforms == null || platforms.length == 0 ) {
+            return true;
+        }
+        for ( String p : platforms ) {
+            if ( "*".equals(p) || platform.equalsIgnoreCase(p) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void addTerms( Map<String,Integer> libTerms, String text, int weight ) {
+        for ( String term : tokenize(text) ) {
+            libTerms.merge( term, weight, Integer::sum );
+        }
+    }
+
+    private static void addTerms( Map<String,Integer> libTerms, String[] texts, int weight ) {
+        if ( texts != null ) {
+            for ( String text : texts ) {
+                addTerms( libTerms, text, weight );
+            }
+        }
+    }
+
+    private static void writeVarInt( DataOutputStream out, int value ) throws IOException {
+        while ( (value & ~0x7F) != 0 ) {
+            out.writeByte( (value & 0x7F) | 0x80 );
+            value >>>= 7;
+        }
+        out.writeByte( value );
+    }
+
+    private static int readVarInt( DataInputStream in ) throws IOException {
+        int ret = 0;
+        for ( int shift=0; shift<32; shift+=7 ) {
+            int b = in.readUnsignedByte();
+            ret |= (b & 0x7F) << shift;
+            if ( (b & 0x80) == 0 ) {
+                return ret;
+            }
+        }
+        throw new IOException( "Malformed variable length integer" );
+    }
+
+}
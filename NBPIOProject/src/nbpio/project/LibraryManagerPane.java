@@ -4,8 +4,13 @@ import java.awt.BorderLayout;
 import java.awt.CardLayout;
 import java.awt.Dimension;
 import java.awt.event.ActionEvent;
+import java.io.File;
+import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import javax.swing.BorderFactory;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -17,21 +22,36 @@ import javax.swing.JProgressBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
 import javax.swing.table.AbstractTableModel;
 import org.jdesktop.swingx.JXTable;
 import org.netbeans.api.project.Project;
+import org.openide.filesystems.FileUtil;
+import org.openide.util.RequestProcessor;
 
 public class LibraryManagerPane extends JPanel {
 
     
     private static final String[] COLUMN_NAMES = {"Name", "Description"};
+    private static final int MAX_INDEX_RESULTS = 500;
+    private static final long LIBRARY_INDEX_MAX_AGE = TimeUnit.HOURS.toMillis( Long.getLong( "nbpio.libraryIndex.maxAgeHours", 24 ) );
+    private static final RequestProcessor RP = new RequestProcessor( LibraryManagerPane.class );
     
     private Project project;
     private JTextField searchField;
     private JButton searchButton;
     private JXTable searchResultsTable;
     private JProgressBar searchProgressBar;
+    private JProgressBar pageProgressBar;
     private JPanel centerPane;
+    private JLabel indexStatusLabel;
+    private JButton updateIndexButton;
+    private volatile LibraryIndex libraryIndex;
+    private volatile String projectPlatform;
+    // Only touched on the EDT
+    private CompletableFuture<List<LibraryDefinition>> currentSearch;
+    private CompletableFuture<LibraryIndex> indexUpdate;
+    private boolean closed;
     
     
     public LibraryManagerPane( Project project ) {
@@ -40,7 +60,27 @@ public class LibraryManagerPane extends JPanel {
         setBorder( BorderFactory.createEmptyBorder(5, 5, 5, 5) );
         add( createTopPane(), BorderLayout.NORTH );
         add( createCenterPane(), BorderLayout.CENTER );
+        add( createBottomPane(), BorderLayout.SOUTH );
         setPreferredSize( new Dimension(700, 500) );
+        RP.post( this::loadLibraryIndex );
+    }
+    
+    private void loadLibraryIndex() {
+        File projectRoot = FileUtil.toFile( project.getProjectDirectory() );
+        if ( projectRoot != null ) {
+            projectPlatform = PlatformIO.getProjectPlatform( projectRoot );
+        }
+        // Searches look up the cache on the EDT, so its disk entries are read here
+        LibrarySearchCache.getDefault().load();
+        libraryIndex = LibraryIndex.getDefault();
+        // The index is only updated on request, but an update started by another pane is shared
+        CompletableFuture<LibraryIndex> runningUpdate = PlatformIO.joinRunningLibraryIndexUpdate();
+        SwingUtilities.invokeLater( () -> {
+            if ( runningUpdate != null ) {
+                watchIndexUpdate( runningUpdate );
+            }
+            updateIndexStatus( null );
+        });
     }
     
     private JComponent createTopPane() {
@@ -58,10 +98,29 @@ public class LibraryManagerPane extends JPanel {
         return ret;
     }
     
+    private JComponent createBottomPane() {
+        indexStatusLabel = new JLabel("Loading library index...");
+        
+        updateIndexButton = new JButton("Update Index");
+        updateIndexButton.setEnabled(false);
+        updateIndexButton.addActionListener( (e) -> watchIndexUpdate( PlatformIO.updateLibraryIndex() ) );
+        
+        JPanel ret = new JPanel( new BorderLayout(5,0) );
+        ret.add( indexStatusLabel, BorderLayout.CENTER );
+        ret.add( updateIndexButton, BorderLayout.EAST );
+        
+        return ret;
+    }
+    
     private JComponent createCenterPane() {
         searchResultsTable = new JXTable( new SearchResultsTableModel() );
         searchResultsTable.setFillsViewportHeight(true);        
-        JScrollPane p1 = new JScrollPane( searchResultsTable );
+        // Shown below the first results while further pages are coming in
+        pageProgressBar = new JProgressBar(0, 100);
+        pageProgressBar.setVisible(false);
+        JPanel p1 = new JPanel( new BorderLayout(0,5) );
+        p1.add( new JScrollPane( searchResultsTable ), BorderLayout.CENTER );
+        p1.add( pageProgressBar, BorderLayout.SOUTH );
         
         searchProgressBar = new JProgressBar(0, 100);
         searchProgressBar.setStringPainted(true);        
@@ -81,34 +140,125 @@ public class LibraryManagerPane extends JPanel {
         return centerPane;
     }
     
+    @Override
+    public void removeNotify() {
+        closed = true;
+        cancelCurrentSearch();
+        if ( indexUpdate != null ) {
+            // Stops the update unless another pane is waiting for it too
+            indexUpdate.cancel( true );
+            indexUpdate = null;
+        }
+        super.removeNotify();
+    }
+    
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        closed = false;
+    }
+    
+    private void watchIndexUpdate( CompletableFuture<LibraryIndex> update ) {
+        if ( closed ) {
+            update.cancel( true );
+            return;
+        }
+        indexUpdate = update;
+        updateIndexButton.setEnabled(false);
+        indexStatusLabel.setText("Updating library index...");
+        update.whenComplete( (index, ex) -> SwingUtilities.invokeLater( () -> {
+            if ( indexUpdate != update ) {
+                return;
+            }
+            indexUpdate = null;
+            if ( index != null ) {
+                libraryIndex = index;
+            }
+            updateIndexStatus( ex );
+        }));
+    }
+    
+    private void updateIndexStatus( Throwable updateFailure ) {
+        if ( indexUpdate != null ) {
+            return;
+        }
+        LibraryIndex index = libraryIndex;
+        String status;
+        if ( index == null ) {
+            status = "No library index, searches are run online.";
+        } else {
+            status = "Library index of " + index.getLibraryCount() + " libraries from "
+                + DateFormat.getDateTimeInstance( DateFormat.MEDIUM, DateFormat.SHORT ).format( new Date( index.getCreated() ) )
+                + (index.isOlderThan( LIBRARY_INDEX_MAX_AGE ) ? ", outdated." : ".");
+        }
+        if ( updateFailure != null ) {
+            status = "Failed to update the library index. " + status;
+        }
+        indexStatusLabel.setText( status );
+        updateIndexButton.setEnabled(true);
+    }
+    
     private void onSearchCommand( ActionEvent event ) {
         final String searchTerm = searchField.getText();
+        // A new search supersedes the one still running
+        cancelCurrentSearch();
+        
+        LibraryIndex index = libraryIndex;
+        if ( index != null ) {
+            searchResultsTable.setModel( new SearchResultsTableModel( index.search(searchTerm, projectPlatform, MAX_INDEX_RESULTS) ) );
+            searchResultsTable.packAll();
+            ((CardLayout) centerPane.getLayout()).first( centerPane );
+            return;
+        }
                 
         ((CardLayout) centerPane.getLayout()).last( centerPane );
+        searchProgressBar.setValue(0);
+        searchProgressBar.setString("0%");
         
-        final List <LibraryDefinition> libraries = new ArrayList<>();
-        PlatformIO.startLibrarySearch(searchTerm, (r) -> {
-            libraries.addAll( r.getResults() );
-            
-            if ( r.isComplete() ) {
-                SwingUtilities.invokeLater(() -> {
-                    searchResultsTable.setModel( new SearchResultsTableModel(libraries) );
-                    searchResultsTable.packAll();
-                    ((CardLayout) centerPane.getLayout()).first( centerPane );
-                });
-            } else {
-                SwingUtilities.invokeLater(() -> {
-                    int percentValue = Math.round(100 * r.getProgress());
-                    searchProgressBar.setValue( percentValue );
-                    searchProgressBar.setString( percentValue + "%" );
-                });
+        final SearchResultsTableModel model = new SearchResultsTableModel();
+        model.addTableModelListener( (e) -> {
+            // The results become visible with the first page, which is also what the columns are sized for
+            if ( e.getType() == TableModelEvent.INSERT && e.getFirstRow() == 0 && searchResultsTable.getModel() == model ) {
+                searchResultsTable.packAll();
+                pageProgressBar.setVisible( currentSearch != null );
+                ((CardLayout) centerPane.getLayout()).first( centerPane );
             }
         });
+        searchResultsTable.setModel( model );
+        
+        currentSearch = PlatformIO.startLibrarySearch(searchTerm, (r) -> {
+            model.appendLater( r.getResults() );
+            SwingUtilities.invokeLater(() -> {
+                // Pages of a superseded search may still be queued on the EDT
+                if ( searchResultsTable.getModel() != model ) {
+                    return;
+                }
+                int percentValue = Math.round(100 * r.getProgress());
+                searchProgressBar.setValue( percentValue );
+                searchProgressBar.setString( percentValue + "%" );
+                pageProgressBar.setValue( percentValue );
+                if ( r.isComplete() ) {
+                    currentSearch = null;
+                    pageProgressBar.setVisible(false);
+                    ((CardLayout) centerPane.getLayout()).first( centerPane );
+                }
+            });
+        });
     }    
     
+    private void cancelCurrentSearch() {
+        pageProgressBar.setVisible(false);
+        if ( currentSearch != null ) {
+            currentSearch.cancel( true );
+            currentSearch = null;
+        }
+    }
+    
     private static class SearchResultsTableModel extends AbstractTableModel {
 
         private final List <LibraryDefinition> libs;
+        private final List <LibraryDefinition> pendingLibs = new ArrayList<>();
+        private boolean appendScheduled;
 
         SearchResultsTableModel() {
             this.libs = new ArrayList<>();
@@ -118,6 +268,34 @@ public class LibraryManagerPane extends JPanel {
             this.libs = libs;
         }
         
+        /**
+         * Adds rows from any thread. Pages arriving while an append is still
+         * waiting for the EDT are added together with it.
+         */
+        void appendLater( List<LibraryDefinition> newLibs ) {
+            if ( newLibs.isEmpty() ) {
+                return;
+            }
+            synchronized (pendingLibs) {
+                pendingLibs.addAll( newLibs );
+                if ( appendScheduled ) {
+                    return;
+                }
+                appendScheduled = true;
+            }
+            SwingUtilities.invokeLater( this::appendPending );
+        }
+        
+        private void appendPending() {
+            int firstRow = libs.size();
+            synchronized (pendingLibs) {
+                libs.addAll( pendingLibs );
+                pendingLibs.clear();
+                appendScheduled = false;
+            }
+            fireTableRowsInserted( firstRow, libs.size() - 1 );
+        }
+        
         @Override
         public int getRowCount() {
             return libs.size();
@@ -0,0 +1,152 @@
+package nbpio.project;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Fetches all pages of a "platformio lib search" query. The first page tells
+ * how many pages there are; the remaining ones are then fetched concurrently,
+ * with at most a given number of pages in flight, and handed over to the
+ * consumer in page order.
+ */
+final class LibrarySearch {
+
+    private static final Logger LOGGER = Logger.getLogger( LibrarySearch.class.getName() );
+
+    private static final int DEFAULT_PARALLELISM = Integer.getInteger( "nbpio.librarySearch.parallelism", 4 );
+
+    private final PlatformIOExecutor executor;
+    private final String searchTerm;
+    private final Consumer<SearchResults<LibraryDefinition>> partialResultsConsumer;
+    private final int parallelism;
+    private final List<LibraryDefinition> allResults = new ArrayList<>();
+    private final CompletableFuture<List<LibraryDefinition>> completion = new CompletableFuture<>();
+    private final Map<Integer,SearchResults<LibraryDefinition>> fetchedPages = new HashMap<>();
+    private final Map<Integer,CompletableFuture<SearchResults<LibraryDefinition>>> pagesInFlight = new HashMap<>();
+    private int pageCount;
+    private int nextPageToFetch;
+    private int nextPageToDeliver;
+    private boolean finished;
+
+
+    LibrarySearch( PlatformIOExecutor executor, String searchTerm, Consumer<SearchResults<LibraryDefinition>> partialResultsConsumer ) {
+        this( executor, searchTerm, partialResultsConsumer, DEFAULT_PARALLELISM );
+    }
+
+    LibrarySearch( PlatformIOExecutor executor, String searchTerm, Consumer<SearchResults<LibraryDefinition>> partialResultsConsumer, int parallelism ) {
+        this.executor = executor;
+        this.searchTerm = searchTerm;
+        this.partialResultsConsumer = partialResultsConsumer;
+        this.parallelism = Math.max( 1, parallelism );
+    }
+
+    /**
+     * Starts fetching the pages. The returned future is completed with all
+     * results once every page has been delivered, or exceptionally when a
+     * page could not be fetched. Cancelling it stops the search, destroying
+     * the PlatformIO processes still running for it.
+     */
+    CompletableFuture<List<LibraryDefinition>> start() {
+        synchronized (this) {
+            pageCount = 1;
+            nextPageToFetch = 2;
+            nextPageToDeliver = 1;
+        }
+        completion.whenComplete( (results, ex) -> {
+            if ( completion.isCancelled() ) {
+                cancel();
+            }
+        });
+        fetchPage( 1 );
+        return completion;
+    }
+
+    private void fetchPage( int page ) {
+        CompletableFuture<SearchResults<LibraryDefinition>> future = executor.submit( PlatformIO::parseSearchResults, "-c", "netbeans", "lib", "search", "--json-output", "--page", ""+page, searchTerm );
+        synchronized (this) {
+            if ( finished ) {
+                future.cancel( true );
+                return;
+            }
+            pagesInFlight.put( page, future );
+        }
+        future.whenComplete( (results, ex) -> {
+            if ( ex != null ) {
+                pageFailed( page, ex );
+            } else {
+                pageFetched( page, results );
+            }
+        });
+    }
+
+    private void cancel() {
+        List<CompletableFuture<SearchResults<LibraryDefinition>>> futures;
+        synchronized (this) {
+            finished = true;
+            futures = new ArrayList<>( pagesInFlight.values() );
+            pagesInFlight.clear();
+        }
+        LOGGER.log( Level.FINE, "Stopped library search for \"{0}\"", searchTerm );
+        futures.forEach( (f) -> f.cancel( true ) );
+    }
+
+    private void pageFetched( int page, SearchResults<LibraryDefinition> results ) {
+        int firstPageToFetch;
+        int lastPageToFetch;
+        synchronized (this) {
+            pagesInFlight.remove( page );
+            if ( finished ) {
+                return;
+            }
+            if ( page == 1 ) {
+                pageCount = results.getPageCount();
+            }
+            fetchedPages.put( page, results );
+            // Pages are delivered while holding the lock so that they cannot overtake each other
+            while ( fetchedPages.containsKey( nextPageToDeliver ) ) {
+                SearchResults<LibraryDefinition> r = fetchedPages.remove( nextPageToDeliver );
+                allResults.addAll( r.getResults() );
+                partialResultsConsumer.accept( new SearchResults<>( r.getResults(), 1f * nextPageToDeliver / pageCount, nextPageToDeliver, pageCount ) );
+                nextPageToDeliver++;
+            }
+            finished = nextPageToDeliver > pageCount;
+            if ( finished ) {
+                completion.complete( allResults );
+            }
+            int pagesPending = nextPageToFetch - nextPageToDeliver - fetchedPages.size();
+            firstPageToFetch = nextPageToFetch;
+            while ( nextPageToFetch <= pageCount && pagesPending < parallelism ) {
+                nextPageToFetch++;
+                pagesPending++;
+            }
+            lastPageToFetch = nextPageToFetch - 1;
+        }
+        for ( int p=firstPageToFetch; p<=lastPageToFetch; p++ ) {
+            fetchPage( p );
+        }
+    }
+
+    private void pageFailed( int page, Throwable ex ) {
+        synchronized (this) {
+            pagesInFlight.remove( page );
+            if ( finished ) {
+                return;
+            }
+            finished = true;
+            LOGGER.log( Level.SEVERE, "Failed to fetch page " + page + " of library search results", ex );
+            // Complete the search with whatever has been delivered so far
+            partialResultsConsumer.accept( new SearchResults<>( Collections.emptyList(), 1f, nextPageToDeliver, pageCount ) );
+            completion.completeExceptionally( ex );
+        }
+        // The remaining pages are of no use anymore
+        cancel();
+    }
+
+}
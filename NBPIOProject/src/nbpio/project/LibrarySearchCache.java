@@ -0,0 +1,374 @@
+package nbpio.project;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.modules.Places;
+
+/**
+ * Results of complete library searches, keyed by the normalized search term.
+ * Entries expire after a fixed time and the least recently used ones are
+ * evicted once their estimated size exceeds the memory limit. When a disk
+ * directory is given, every entry is also written there so that it survives
+ * IDE restarts; the entries stored by earlier sessions are read back by
+ * {@link #load()}. Lookups never touch the disk, so they are cheap enough
+ * for the event dispatch thread; the files are written and deleted after the
+ * lock guarding the entries is released, so lookups never wait for the disk
+ * either.
+ */
+public final class LibrarySearchCache {
+
+    private static final Logger LOGGER = Logger.getLogger( LibrarySearchCache.class.getName() );
+
+    private static final String CACHE_DIR_PATH = "nbpio/library-search";
+    private static final String CACHE_FILE_EXTENSION = ".results";
+    private static final int MAGIC = 0x4E424C53;   // "NBLS"
+    private static final int FORMAT_VERSION = 1;
+
+    private static LibrarySearchCache defaultCache;
+
+    private final long ttlMillis;
+    private final long maxMemoryBytes;
+    private final File diskDir;
+    private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<>( 16, 0.75f, true );
+    // Orders the writes and deletes of the files, without holding up lookups
+    private final Object diskLock = new Object();
+    // Counts the calls of clear(), so that writes started before one are dropped
+    private long generation;
+    private long memoryBytes;
+    private boolean loaded;
+    private long hitCount;
+    private long missCount;
+
+
+    public LibrarySearchCache( long ttlMillis, long maxMemoryBytes, File diskDir ) {
+        this.ttlMillis = ttlMillis;
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.diskDir = diskDir;
+    }
+
+    public static synchronized LibrarySearchCache getDefault() {
+        if ( defaultCache == null ) {
+            defaultCache = new LibrarySearchCache(
+                TimeUnit.MINUTES.toMillis( Long.getLong( "nbpio.librarySearchCache.ttlMinutes", 60 ) ),
+                Long.getLong( "nbpio.librarySearchCache.maxBytes", 8 * 1024 * 1024 ),
+                Places.getCacheSubdirectory( CACHE_DIR_PATH )
+            );
+        }
+        return defaultCache;
+    }
+
+    public static String normalize( String searchTerm ) {
+        return searchTerm.trim().replaceAll( "\\s+", " " ).toLowerCase( Locale.ROOT );
+    }
+
+    public synchronized List<LibraryDefinition> get( String searchTerm ) {
+        String key = normalize( searchTerm );
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get( key );
+        if ( entry != null && isExpired( entry.created, now ) ) {
+            removeEntry( key );
+            entry = null;
+        }
+        if ( entry == null ) {
+            missCount++;
+            LOGGER.log( Level.FINE, "Library search cache miss for \"{0}\"", key );
+            return null;
+        }
+        hitCount++;
+        LOGGER.log( Level.FINE, "Library search cache hit for \"{0}\"", key );
+        return entry.results;
+    }
+
+    public void put( String searchTerm, List<LibraryDefinition> results ) {
+        String key = normalize( searchTerm );
+        Entry entry = new Entry( Collections.unmodifiableList( new ArrayList<>(results) ), System.currentTimeMillis() );
+        long putGeneration;
+        synchronized (this) {
+            putEntry( key, entry );
+            putGeneration = generation;
+        }
+        if ( diskDir != null ) {
+            synchronized (diskLock) {
+                if ( isCurrentGeneration( putGeneration ) ) {
+                    writeEntry( key, entry );
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the entries stored on disk into memory and deletes the expired
+     * ones. Only the first call does anything; call it off the event dispatch
+     * thread. Entries put in the meantime are newer and kept.
+     */
+    public void load() {
+        synchronized (this) {
+            if ( loaded || diskDir == null ) {
+                return;
+            }
+            loaded = true;
+        }
+        long now = System.currentTimeMillis();
+        File[] files = diskDir.listFiles( (dir, name) -> name.endsWith( CACHE_FILE_EXTENSION ) );
+        if ( files == null ) {
+            return;
+        }
+        // Oldest first, so that the most recent entries survive the eviction
+        Arrays.sort( files, Comparator.comparingLong( File::lastModified ) );
+        for ( File file : files ) {
+            Map.Entry<String,Entry> stored = readEntry( file, now );
+            if ( stored != null ) {
+                synchronized (this) {
+                    if ( !entries.containsKey( stored.getKey() ) ) {
+                        putEntry( stored.getKey(), stored.getValue() );
+                    }
+                }
+            }
+        }
+    }
+
+    public void clear() {
+        synchronized (this) {
+            entries.clear();
+            memoryBytes = 0;
+            generation++;
+        }
+        if ( diskDir != null ) {
+            synchronized (diskLock) {
+                File[] files = diskDir.listFiles( (dir, name) -> name.endsWith( CACHE_FILE_EXTENSION ) );
+                if ( files != null ) {
+                    for ( File file : files ) {
+                        file.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private synchronized boolean isCurrentGeneration( long putGeneration ) {
+        return generation == putGeneration;
+    }
+
+    private boolean isExpired( long created, long now ) {
+        return now - created > ttlMillis;
+    }
+
+    private void putEntry( String key, Entry entry ) {
+        removeEntry( key );
+        if ( entry.size > maxMemoryBytes ) {
+            return;
+        }
+        entries.put( key, entry );
+        memoryBytes += entry.size;
+        Iterator<Map.Entry<String,Entry>> it = entries.entrySet().iterator();
+        while ( memoryBytes > maxMemoryBytes && it.hasNext() ) {
+            memoryBytes -= it.next().getValue().size;
+            it.remove();
+        }
+    }
+
+    private void removeEntry( String key ) {
+        Entry removed = entries.remove( key );
+        if ( removed != null ) {
+            memoryBytes -= removed.size;
+        }
+    }
+
+    private File getEntryFile( String key ) {
+        try {
+            byte[] digest = MessageDigest.getInstance( "SHA-1" ).digest( key.getBytes( StandardCharsets.UTF_8 ) );
+            StringBuilder b = new StringBuilder();
+            for ( byte d : digest ) {
+                b.append( String.format( "%02x", d ) );
+            }
+            return new File( diskDir, b.append( CACHE_FILE_EXTENSION ).toString() );
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException( ex );
+        }
+    }
+
+    private Map.Entry<String,Entry> readEntry( File file, long now ) {
+        boolean expired = false;
+        try ( DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( file ) ) ) ) {
+            if ( in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION ) {
+                return null;
+            }
+            String key = in.readUTF();
+            long created = in.readLong();
+            if ( isExpired( created, now ) ) {
+                expired = true;
+            } else {
+                int count = in.readInt();
+                List<LibraryDefinition> results = new ArrayList<>( count );
+                for ( int i=0; i<count; i++ ) {
+                    results.add( readLibrary(in) );
+                }
+                return new AbstractMap.SimpleImmutableEntry<>( key, new Entry( Collections.unmodifiableList( results ), created ) );
+            }
+        } catch (IOException ex) {
+            LOGGER.log( Level.WARNING, "Failed to read library search cache entry", ex );
+        }
+        if ( expired ) {
+            file.delete();
+        }
+        return null;
+    }
+
+    private void writeEntry( String key, Entry entry ) {
+        File file = getEntryFile( key );
+        File tempFile = new File( diskDir, file.getName() + ".tmp" );
+        try {
+            try ( DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( tempFile ) ) ) ) {
+                out.writeInt( MAGIC );
+                out.writeInt( FORMAT_VERSION );
+                out.writeUTF( key );
+                out.writeLong( entry.created );
+                out.writeInt( entry.results.size() );
+                for ( LibraryDefinition lib : entry.results ) {
+                    writeLibrary( out, lib );
+                }
+            }
+            Files.move( tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        } catch (IOException ex) {
+            LOGGER.log( Level.WARNING, "Failed to write library search cache entry", ex );
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * Writes the fields known from search results; shared with {@link LibraryIndex}.
+     */
+    static void writeLibrary( DataOutputStream out, LibraryDefinition lib ) throws IOException {
+        out.writeInt( lib.getId() );
+        writeString( out, lib.getName() );
+        writeString( out, lib.getDescription() );
+        writeString( out, lib.getVersion() );
+        writeStringArray( out, lib.getKeywords() );
+        writeStringArray( out, lib.getFrameworks() );
+        writeStringArray( out, lib.getPlatforms() );
+    }
+
+    static LibraryDefinition readLibrary( DataInputStream in ) throws IOException {
+        return new LibraryDefinition.Builder()
+            .id( in.readInt() )
+            .name( readString(in) )
+            .description( readString(in) )
+            .version( readString(in) )
+            .keywords( readStringArray(in) )
+            .frameworks( readStringArray(in) )
+            .platforms( readStringArray(in) )
+            .build();
+    }
+
+    private static long estimateSize( List<LibraryDefinition> results ) {
+        long ret = 64;
+        for ( LibraryDefinition lib : results ) {
+            ret += 64 + estimateSize( lib.getName() ) + estimateSize( lib.getDescription() ) + estimateSize( lib.getVersion() )
+                + estimateSize( lib.getKeywords() ) + estimateSize( lib.getFrameworks() ) + estimateSize( lib.getPlatforms() );
+        }
+        return ret;
+    }
+
+    private static long estimateSize( String value ) {
+        return value != null ? 40 + 2L * value.length() : 0;
+    }
+
+    private static long estimateSize( String[] values ) {
+        if ( values == null ) {
+            return 0;
+        }
+        long ret = 16 + 4L * values.length;
+        for ( String value : values ) {
+            ret += estimateSize( value );
+        }
+        return ret;
+    }
+
+    private static void writeString( DataOutputStream out, String value ) throws IOException {
+        out.writeBoolean( value != null );
+        if ( value != null ) {
+            out.writeUTF( value );
+        }
+    }
+
+    private static String readString( DataInputStream in ) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeStringArray( DataOutputStream out, String[] values ) throws IOException {
+        out.writeInt( values != null ? values.length : -1 );
+        if ( values != null ) {
+            for ( String value : values ) {
+                writeString( out, value );
+            }
+        }
+    }
+
+    private static String[] readStringArray( DataInputStream in ) throws IOException {
+        int length = in.readInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        String[] ret = new String[length];
+        for ( int i=0; i<length; i++ ) {
+            ret[i] = readString(in);
+        }
+        return ret;
+    }
+
+
+    private static final class Entry {
+
+        private final List<LibraryDefinition> results;
+        private final long created;
+        private final long size;
+
+        Entry( List<LibraryDefinition> results, long created ) {
+            this.results = results;
+            this.created = created;
+            this.size = estimateSize( results );
+        }
+
+    }
+
+}
@@ -165,13 +165,20 @@ public class NbpioWizardFinalStep implements WizardDescriptor.Panel, WizardDescr
                             }
                             npb.setWorkingDirectory(projectDir.getAbsolutePath());
                         }
-                        npb.setExecutable("platformio");
+                        PlatformIOExecutor executor = PlatformIOExecutor.getDefault();
+                        npb.setExecutable( executor.getCommand() );
                         npb.setArguments("-f", "-c", "netbeans", "init", "--ide", "netbeans", "-b", board);
                         
                         NativeExecutionDescriptor descr = new NativeExecutionDescriptor().inputOutput( term.getIO("#1", new Action[0], ioContainer) );
                         
                         NativeExecutionService es = NativeExecutionService.newService(npb, descr, "#2"); // NOI18N
-                        platformIOExitCode = es.run().get();
+                        // The process runs in the terminal, but counts against the process limit like any other
+                        executor.acquireProcessSlot();
+                        try {
+                            platformIOExitCode = es.run().get();
+                        } finally {
+                            executor.releaseProcessSlot();
+                        }
                         
                         fireChangeEvent();
                     } catch (CancellationException | InterruptedException | ExecutionException ex) {
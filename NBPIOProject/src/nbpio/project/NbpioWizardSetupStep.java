@@ -6,11 +6,15 @@ import static javax.swing.GroupLayout.PREFERRED_SIZE;
 import java.awt.Component;
 import java.awt.Dimension;
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 import javax.swing.Box;
@@ -395,18 +399,49 @@ public class NbpioWizardSetupStep implements WizardDescriptor.Panel, WizardDescr
     }
 
     private void startLoadingPlatformData() {
-        new SwingWorker<Map<String,List<BoardDefinition>>,List<BoardDefinition>>() {
+        new SwingWorker<Map<String,List<BoardDefinition>>,Map<String,List<BoardDefinition>>>() {
 
             @Override
             protected Map<String, List<BoardDefinition>> doInBackground() throws Exception {
-                return PlatformIO.createBoardsLookup();
+                BoardCatalogCache cache = BoardCatalogCache.getDefault();
+                Map<String,List<BoardDefinition>> cachedLookup = cache.load();
+                if ( cachedLookup != null ) {
+                    publish( cachedLookup );
+                }
+                String key = BoardCatalogCache.computeKey();
+                if ( cachedLookup != null && cache.isCurrent(key) ) {
+                    return null;
+                }
+                // Without a cached catalog the platforms are shown as soon as they are parsed,
+                // otherwise the cached catalog stays in place until the refreshed one is complete
+                Map<String,List<BoardDefinition>> lookup = new HashMap<>();
+                PlatformIO.listBoards( (platform, boards) -> {
+                    lookup.computeIfAbsent( platform, (k) -> new ArrayList<>() ).addAll( boards );
+                    if ( cachedLookup == null ) {
+                        publish( Collections.singletonMap( platform, new ArrayList<>(boards) ) );
+                    }
+                });
+                if ( lookup.isEmpty() ) {
+                    // PlatformIO is missing, offline or failing; keep what is shown
+                    return null;
+                }
+                cache.store( key, lookup );
+                return lookup;
+            }
+
+            @Override
+            protected void process(List<Map<String, List<BoardDefinition>>> chunks) {
+                chunks.forEach( NbpioWizardSetupStep.this::addPlatforms );
             }
             
             @Override
             protected void done() {
                 try {
-                    boardLookup = get();
-                    rebuildPlatformCombo();
+                    Map<String,List<BoardDefinition>> lookup = get();
+                    if ( lookup != null ) {
+                        boardLookup = lookup;
+                        rebuildPlatformCombo();
+                    }
                 } catch (InterruptedException ex) {
                     Exceptions.printStackTrace(ex);
                 } catch (ExecutionException ex) {
@@ -416,10 +451,44 @@ public class NbpioWizardSetupStep implements WizardDescriptor.Panel, WizardDescr
         }.execute();
     }
 
+    private void addPlatforms( Map<String,List<BoardDefinition>> partialLookup ) {
+        if ( boardLookup == null ) {
+            boardLookup = new HashMap<>();
+            platformCombo.setModel( new DefaultComboBoxModel<>() );
+            platformCombo.setEnabled(true);
+        }
+        DefaultComboBoxModel<String> model = (DefaultComboBoxModel<String>) platformCombo.getModel();
+        Object selectedPlatform = model.getSelectedItem();
+        for ( Map.Entry<String,List<BoardDefinition>> e : new TreeMap<>(partialLookup).entrySet() ) {
+            List<BoardDefinition> boards = boardLookup.get( e.getKey() );
+            if ( boards != null ) {
+                boards.addAll( e.getValue() );
+            } else {
+                boardLookup.put( e.getKey(), e.getValue() );
+                int index = 0;
+                while ( index < model.getSize() && model.getElementAt(index).compareTo( e.getKey() ) < 0 ) {
+                    index++;
+                }
+                model.insertElementAt( e.getKey(), index );
+            }
+            if ( selectedPlatform == null ) {
+                // Selecting the first platform also rebuilds the board combo through the item listener
+                selectedPlatform = e.getKey();
+                model.setSelectedItem( selectedPlatform );
+            } else if ( e.getKey().equals( selectedPlatform ) ) {
+                rebuildBoardCombo();
+            }
+        }
+    }
+
     private void rebuildPlatformCombo() {
+        Object selectedPlatform = platformCombo.isEnabled() ? platformCombo.getSelectedItem() : null;
         String[] platformNames = boardLookup.keySet().toArray( new String[boardLookup.size()] );
         Arrays.sort( platformNames );
         platformCombo.setModel( new DefaultComboBoxModel<>(platformNames) );
+        if ( selectedPlatform != null && boardLookup.containsKey( selectedPlatform.toString() ) ) {
+            platformCombo.setSelectedItem( selectedPlatform );
+        }
         platformCombo.setEnabled(true);
         rebuildBoardCombo();
     }
@@ -428,11 +497,13 @@ public class NbpioWizardSetupStep implements WizardDescriptor.Panel, WizardDescr
         String selectedPlatform = platformCombo.getSelectedItem() != null ? platformCombo.getSelectedItem().toString() : null;
         
         if ( selectedPlatform != null ) {
+            Object selectedBoard = boardCombo.getSelectedItem();
+            String preselectedType = ( selectedBoard instanceof BoardDefinition ) ? ((BoardDefinition) selectedBoard).getType() : "uno";
             List<BoardDefinition> boards = boardLookup.get(selectedPlatform);
             boards.sort( ( o1, o2 ) -> o1.getName().compareTo(o2.getName()) );
             int preselectedIndex = 0;
             for ( int i=0; i<boards.size(); i++ ) {
-                if ( "uno".equalsIgnoreCase( boards.get(i).getType() ) ) {
+                if ( preselectedType.equalsIgnoreCase( boards.get(i).getType() ) ) {
                     preselectedIndex = i;
                     break;
                 }
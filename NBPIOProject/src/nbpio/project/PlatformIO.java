@@ -8,13 +8,16 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,16 +34,22 @@ public final class PlatformIO {
     
     private static final String PLATFORM_TOKEN = "Platform:";
     
+    private static final int BOARD_COLUMN_COUNT = 5;
+    
     private static final String INI_FILENAME = "platformio.ini";
     
-    // TODO: Use which (on Linux) or where (on Windows) to find complete path to PlatformIO executable
-    private static final String PLATFORMIO_COMMAND = "platformio";
+    private static final String PLATFORMS_DIRNAME = "platforms";
+
+    // Guarded by PlatformIO.class
+    private static CompletableFuture<List<LibraryDefinition>> libraryIndexCrawl;
+    private static CompletableFuture<LibraryIndex> libraryIndexUpdate;
+    private static int libraryIndexUpdateUsers;
     
     
     private PlatformIO() {}
     
     public static Process startProjectInitProcess( String board, String projectDirPath ) throws IOException {        
-        return new ProcessBuilder().command( PLATFORMIO_COMMAND, "-f", "-c", "netbeans", "init", "--ide", "netbeans", "-b", board, "-d", projectDirPath ).start();
+        return PlatformIOExecutor.getDefault().start( "-f", "-c", "netbeans", "init", "--ide", "netbeans", "-b", board, "-d", projectDirPath );
     }
     
     public static File addSourceFileToProject( File projectRoot, InputStream sourceFileStream, String sourceFilename ) throws IOException {                
@@ -64,96 +73,121 @@ public final class PlatformIO {
     }
     
     public static Map<String,List<BoardDefinition>> createBoardsLookup() throws IOException {
-        Process p = new ProcessBuilder().command( PLATFORMIO_COMMAND, "-f", "-c", "netbeans", "boards" ).start();
-        BufferedReader reader = new BufferedReader( new InputStreamReader( p.getInputStream() ) );
-        String line;
-        Map <String,List<BoardDefinition>> ret = new HashMap<>();        
-        List <BoardDefinition> currentPlatformBoards = new ArrayList<>();
-        BoardDefinition.Builder boardBuilder = new BoardDefinition.Builder();
-        boolean parsingPlatform = false;
-        try {
-            while ( (line = reader.readLine()) != null ) {
-                line = line.trim();
-                if ( line.startsWith( PLATFORM_TOKEN ) ) {
-                    String currentPlatform = line.substring(PLATFORM_TOKEN.length()).trim();
-                    currentPlatformBoards = new ArrayList<>();
-                    LOGGER.log(Level.INFO, "Parsing platform: {0}", currentPlatform);
-                    ret.put(currentPlatform, currentPlatformBoards);
-                    parsingPlatform = true;
-                } else if ( parsingPlatform ) {
-                    if ( line.isEmpty() ) {
-                        parsingPlatform = false;
-                    } else if ( !line.startsWith("-") && !line.startsWith("Type") ) {
-                        String[] tokens = line.split("\\s+");
-                        if ( tokens.length > 1 ) {
-                            LOGGER.log(Level.INFO, "Parsing board: {0}", line);
-                            StringBuilder b = new StringBuilder();
-                            for ( int i=5; i<tokens.length; i++ ) {
-                                b.append( tokens[i] ).append(" ");
-                            }
-                            currentPlatformBoards.add(
-                                    boardBuilder
-                                            .type( tokens[0] )
-                                            .MCU( tokens[1] )
-                                            .frequency( tokens[2] )
-                                            .flash( tokens[3] )
-                                            .RAM( tokens[4] )
-                                            .name( b.toString().trim() )
-                                            .build()
-                            );
-                        }
-                    }
-                }
-            }
-        } catch (IOException ex) {
-            throw ex;
-        } finally {
-            reader.close();
-        }
+        Map <String,List<BoardDefinition>> ret = new HashMap<>();
+        listBoards( (platform, boards) -> ret.computeIfAbsent( platform, (k) -> new ArrayList<>() ).addAll( boards ) );
         return ret;
     }
     
-    public static List<LibraryDefinition> listInstalledLibraries() throws IOException {        
-        Process p = new ProcessBuilder().command( PLATFORMIO_COMMAND, "-f", "-c", "netbeans", "lib", "list", "--json-output" ).start();                
-        
-        BufferedReader reader = new BufferedReader( new InputStreamReader( p.getInputStream() ) );
-        JSONParser parser = new JSONParser();
-        List <LibraryDefinition> ret = new ArrayList<>();
-        try {
-            Object jsonObject = parser.parse( reader );
-            if ( jsonObject instanceof JSONArray ) {
-                JSONArray array = (JSONArray) jsonObject;
-                array.forEach( (e) -> ret.add( parseFullLibraryJSONObject((JSONObject) e) ) );
+    public static void listBoards( BiConsumer<String,List<BoardDefinition>> platformBoardsConsumer ) throws IOException {
+        PlatformIOExecutor executor = PlatformIOExecutor.getDefault();
+        boolean parsed = executor.execute( (output) -> {
+            try {
+                parseBoardsJSON( output, platformBoardsConsumer );
+                return true;
+            } catch (ParseException ex) {
+                // Older PlatformIO versions do not support JSON output for boards
+                LOGGER.log( Level.INFO, "Falling back to parsing the text output of the boards command", ex );
+                return false;
             }
-        } catch (ParseException ex) {
-            LOGGER.log(Level.SEVERE, "Failed to parse libraries list", ex);
-            return null;
-        } finally {
-            reader.close();
+        }, "-f", "-c", "netbeans", "boards", "--json-output" );
+        if ( !parsed ) {
+            executor.execute( (output) -> {
+                parseBoards( output, platformBoardsConsumer );
+                return null;
+            }, "-f", "-c", "netbeans", "boards" );
         }
-        
-        return ret;
     }
     
-    public static void startLibrarySearch( String searchTerm, Consumer<SearchResults<LibraryDefinition>> partialResultsConsumer ) {
-        CompletableFuture.runAsync( () -> {
+    public static String getVersion() throws IOException {
+        return PlatformIOExecutor.getDefault().execute( (output) -> {
+            BufferedReader reader = new BufferedReader( new InputStreamReader( output ) );
+            String line = reader.readLine();
+            return line != null ? line.trim() : "";
+        }, "--version" );
+    }
+    
+    public static File getPlatformsDirectory() {
+        String coreDirPath = System.getenv( "PLATFORMIO_CORE_DIR" );
+        if ( coreDirPath == null ) {
+            coreDirPath = System.getenv( "PLATFORMIO_HOME_DIR" );
+        }
+        File coreDir = coreDirPath != null ? new File( coreDirPath ) : new File( System.getProperty("user.home"), ".platformio" );
+        return new File( coreDir, PLATFORMS_DIRNAME );
+    }
+    
+    public static List<LibraryDefinition> listInstalledLibraries() throws IOException {        
+        return PlatformIOExecutor.getDefault().execute( (output) -> {
+            BufferedReader reader = new BufferedReader( new InputStreamReader( output ) );
+            JSONParser parser = new JSONParser();
+            List <LibraryDefinition> ret = new ArrayList<>();
             try {
-                int page = 1;
-                while ( true ) {
-                    Process p = new ProcessBuilder().command( PLATFORMIO_COMMAND, "-c", "netbeans", "lib", "search", "--json-output", "--page", ""+page, searchTerm ).start();
-                    SearchResults r = parseSearchResults( p.getInputStream() );
-                    if ( partialResultsConsumer != null ) {
-                        partialResultsConsumer.accept(r);
-                    }
-                    if ( r.isComplete() ) {
-                        break;
-                    }
-                    page++;
+                Object jsonObject = parser.parse( reader );
+                if ( jsonObject instanceof JSONArray ) {
+                    JSONArray array = (JSONArray) jsonObject;
+                    array.forEach( (e) -> ret.add( parseFullLibraryJSONObject((JSONObject) e) ) );
                 }
-            } catch (IOException ex) {
-                LOGGER.log( Level.SEVERE, "Failed to run PlatformIO process", ex );
+            } catch (ParseException ex) {
+                LOGGER.log(Level.SEVERE, "Failed to parse libraries list", ex);
+                return null;
+            } finally {
+                reader.close();
+            }
+            return ret;
+        }, "-f", "-c", "netbeans", "lib", "list", "--json-output" );
+    }
+    
+    /**
+     * Starts a library search delivering the results page by page. The
+     * returned future completes with all results; cancelling it aborts the
+     * search and destroys the PlatformIO processes still running for it.
+     */
+    public static CompletableFuture<List<LibraryDefinition>> startLibrarySearch( String searchTerm, Consumer<SearchResults<LibraryDefinition>> partialResultsConsumer ) {
+        Consumer<SearchResults<LibraryDefinition>> resultsConsumer = partialResultsConsumer != null ? partialResultsConsumer : (r) -> {};
+        LibrarySearchCache cache = LibrarySearchCache.getDefault();
+        List<LibraryDefinition> cachedResults = cache.get( searchTerm );
+        if ( cachedResults != null ) {
+            resultsConsumer.accept( new SearchResults<>( cachedResults, 1f, 1, 1 ) );
+            return CompletableFuture.completedFuture( cachedResults );
+        }
+        CompletableFuture<List<LibraryDefinition>> ret = new LibrarySearch( PlatformIOExecutor.getDefault(), searchTerm, resultsConsumer ).start();
+        ret.thenAccept( (results) -> cache.put( searchTerm, results ) );
+        return ret;
+    }
+        
+    /**
+     * Lists the whole library registry and turns it into a new default
+     * {@link LibraryIndex}, or joins the update already running. The registry
+     * is fetched one page at a time, so that the update takes a single
+     * process slot and interactive searches are not queued behind it.
+     * <p>
+     * Every caller gets a future of its own; cancelling it withdraws the
+     * caller, and the update is stopped once all callers have withdrawn.
+     */
+    public static CompletableFuture<LibraryIndex> updateLibraryIndex() {
+        synchronized (PlatformIO.class) {
+            if ( libraryIndexUpdate == null || libraryIndexUpdate.isDone() ) {
+                LOGGER.info( "Updating library index" );
+                libraryIndexCrawl = new LibrarySearch( PlatformIOExecutor.getDefault(), "", (r) -> {}, 1 ).start();
+                libraryIndexUpdate = libraryIndexCrawl.thenApply( (libraries) -> {
+                    LibraryIndex index = LibraryIndex.build( libraries );
+                    LibraryIndex.setDefault( index );
+                    LOGGER.log( Level.INFO, "Indexed {0} libraries", index.getLibraryCount() );
+                    return index;
+                });
+                libraryIndexUpdateUsers = 0;
             }
-        } );
+            return joinLibraryIndexUpdate();
+        }
+    }
+
+    /**
+     * Joins the library index update running, like {@link #updateLibraryIndex()},
+     * but never starts one.
+     *
+     * @return null if no update is running
+     */
+    public static synchronized CompletableFuture<LibraryIndex> joinRunningLibraryIndexUpdate() {
+        return libraryIndexUpdate != null && !libraryIndexUpdate.isDone() ? joinLibraryIndexUpdate() : null;
     }
         
     public static LibraryDefinition parseShortLibraryJSONObject( JSONObject obj ) {
@@ -163,6 +197,9 @@ public final class PlatformIO {
             .name( name )                
             .id( getIntegerFromJSON(obj, "id") )            
             .description( getStringFromJSON(obj, "description") )            
+            .keywords( getNameArrayFromJSON(obj, "keywords") )
+            .frameworks( getNameArrayFromJSON(obj, "frameworks") )
+            .platforms( getNameArrayFromJSON(obj, "platforms") )
             .build();
     }
     
@@ -208,7 +245,138 @@ public final class PlatformIO {
     // ******************************************************
     // ************* PRIVATE HELPER METHODS *****************
     // ******************************************************    
-    private static SearchResults<LibraryDefinition> parseSearchResults( InputStream resultsStream ) throws IOException {
+    // Called with the PlatformIO.class lock held
+    private static CompletableFuture<LibraryIndex> joinLibraryIndexUpdate() {
+        CompletableFuture<List<LibraryDefinition>> crawl = libraryIndexCrawl;
+        CompletableFuture<LibraryIndex> ret = libraryIndexUpdate.thenApply( (index) -> index );
+        libraryIndexUpdateUsers++;
+        ret.whenComplete( (index, ex) -> {
+            if ( ret.isCancelled() ) {
+                synchronized (PlatformIO.class) {
+                    if ( crawl != libraryIndexCrawl || --libraryIndexUpdateUsers > 0 ) {
+                        return;
+                    }
+                }
+                LOGGER.info( "Stopping library index update" );
+                crawl.cancel( true );
+            }
+        });
+        return ret;
+    }
+    
+    static void parseBoardsJSON( InputStream boardsStream, BiConsumer<String,List<BoardDefinition>> platformBoardsConsumer ) throws IOException, ParseException {
+        BoardsContentHandler handler = new BoardsContentHandler( platformBoardsConsumer );
+        try (BufferedReader reader = new BufferedReader( new InputStreamReader( boardsStream, StandardCharsets.UTF_8 ) ) ) {
+            new JSONParser().parse( reader, handler );
+        } catch (ParseException ex) {
+            if ( handler.getBoardCount() > 0 ) {
+                // Boards have already been handed over so parsing the text output is not an option
+                throw new IOException( "Failed to parse boards list", ex );
+            }
+            throw ex;
+        }
+        LOGGER.log( Level.FINE, "Parsed {0} boards", handler.getBoardCount() );
+    }
+    
+    static void parseBoards( InputStream boardsStream, BiConsumer<String,List<BoardDefinition>> platformBoardsConsumer ) throws IOException {
+        String line;
+        String currentPlatform = null;
+        List <BoardDefinition> currentPlatformBoards = null;
+        BoardDefinition.Builder boardBuilder = new BoardDefinition.Builder();
+        String[] columns = new String[BOARD_COLUMN_COUNT];
+        try (BufferedReader reader = new BufferedReader( new InputStreamReader( boardsStream ) ) ) {
+            while ( (line = reader.readLine()) != null ) {
+                line = line.trim();
+                if ( line.startsWith( PLATFORM_TOKEN ) ) {
+                    if ( currentPlatform != null ) {
+                        platformBoardsConsumer.accept( currentPlatform, currentPlatformBoards );
+                    }
+                    currentPlatform = line.substring(PLATFORM_TOKEN.length()).trim();
+                    currentPlatformBoards = new ArrayList<>();
+                    LOGGER.log(Level.FINE, "Parsing platform: {0}", currentPlatform);
+                } else if ( currentPlatform != null ) {
+                    if ( line.isEmpty() ) {
+                        platformBoardsConsumer.accept( currentPlatform, currentPlatformBoards );
+                        currentPlatform = null;
+                    } else if ( !line.startsWith("-") && !line.startsWith("Type") ) {
+                        int nameStart = splitBoardColumns( line, columns );
+                        if ( nameStart > 0 ) {
+                            currentPlatformBoards.add(
+                                    boardBuilder
+                                            .type( columns[0] )
+                                            .MCU( columns[1] )
+                                            .frequency( columns[2] )
+                                            .flash( columns[3] )
+                                            .RAM( columns[4] )
+                                            .name( line.substring( nameStart ) )
+                                            .frequencyHz( parseQuantity( columns[2], "HZ", 1000 ) )
+                                            .flashBytes( parseQuantity( columns[3], "B", 1024 ) )
+                                            .RAMBytes( parseQuantity( columns[4], "B", 1024 ) )
+                                            .build()
+                            );
+                        }
+                    }
+                }
+            }
+            if ( currentPlatform != null ) {
+                platformBoardsConsumer.accept( currentPlatform, currentPlatformBoards );
+            }
+        }
+    }
+    
+    static String formatFrequency( long frequencyHz ) {
+        if ( frequencyHz >= 1000000 ) {
+            return formatQuantity( frequencyHz, 1000000, "MHz" );
+        } else if ( frequencyHz >= 1000 ) {
+            return formatQuantity( frequencyHz, 1000, "kHz" );
+        }
+        return frequencyHz + "Hz";
+    }
+    
+    static String formatSize( long bytes ) {
+        if ( bytes >= 1024*1024 ) {
+            return formatQuantity( bytes, 1024*1024, "MB" );
+        } else if ( bytes >= 1024 ) {
+            return formatQuantity( bytes, 1024, "KB" );
+        }
+        return bytes + "B";
+    }
+    
+    /**
+     * Parses values such as "16MHz" or "31.50KB" into the base unit, where the
+     * prefixes k, M and G are multiplied by the given factor.
+     */
+    static long parseQuantity( String value, String baseUnit, long factor ) {
+        int i = 0;
+        while ( i < value.length() && ( Character.isDigit( value.charAt(i) ) || value.charAt(i) == '.' ) ) {
+            i++;
+        }
+        if ( i == 0 ) {
+            return 0;
+        }
+        double number;
+        try {
+            number = Double.parseDouble( value.substring(0, i) );
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+        String unit = value.substring(i).trim().toUpperCase();
+        if ( unit.endsWith( baseUnit ) ) {
+            unit = unit.substring( 0, unit.length() - baseUnit.length() );
+        }
+        switch ( unit ) {
+            case "K":
+                return Math.round( number * factor );
+            case "M":
+                return Math.round( number * factor * factor );
+            case "G":
+                return Math.round( number * factor * factor * factor );
+            default:
+                return Math.round( number );
+        }
+    }
+    
+    static SearchResults<LibraryDefinition> parseSearchResults( InputStream resultsStream ) throws IOException {
         JSONParser parser = new JSONParser();
         List <LibraryDefinition> partialResults = new ArrayList<>();
         int page = 0;
@@ -228,13 +396,41 @@ public final class PlatformIO {
                 }
             }
         } catch (ParseException ex) {
-            LOGGER.log(Level.SEVERE, "Failed to parse libraries list", ex);
-            return new SearchResults<LibraryDefinition>(null, 0f);
+            throw new IOException( "Failed to parse library search results", ex );
         }
         
         float progress = Math.min( 1f, 1f*(page*perpage)/total );
+        int pageCount = perpage > 0 ? Math.max( 1, (total + perpage - 1) / perpage ) : 1;
         
-        return new SearchResults<LibraryDefinition>(partialResults, progress);
+        return new SearchResults<LibraryDefinition>(partialResults, progress, page, pageCount);
+    }
+    
+    private static int splitBoardColumns( String line, String[] columns ) {
+        int pos = 0;
+        for ( int i=0; i<columns.length; i++ ) {
+            while ( pos < line.length() && Character.isWhitespace( line.charAt(pos) ) ) {
+                pos++;
+            }
+            int start = pos;
+            while ( pos < line.length() && !Character.isWhitespace( line.charAt(pos) ) ) {
+                pos++;
+            }
+            if ( start == pos ) {
+                return -1;
+            }
+            columns[i] = line.substring( start, pos );
+        }
+        while ( pos < line.length() && Character.isWhitespace( line.charAt(pos) ) ) {
+            pos++;
+        }
+        return pos < line.length() ? pos : -1;
+    }
+    
+    private static String formatQuantity( long value, long unit, String unitName ) {
+        if ( value % unit == 0 ) {
+            return (value / unit) + unitName;
+        }
+        return String.format( Locale.ROOT, "%.2f%s", (double) value / unit, unitName );
     }
     
     private static File getProjectIniFile( File projectRoot ) throws FileNotFoundException {
@@ -308,6 +504,21 @@ public final class PlatformIO {
         return null;
     }
     
+    // Search results list frameworks and platforms as objects with a name and a title
+    private static String[] getNameArrayFromJSON( JSONObject obj, String field ) {
+        Object value = obj.get( field );
+        if ( value instanceof JSONArray ) {
+            JSONArray array = (JSONArray) value;
+            String[] ret = new String[array.size()];
+            for ( int i=0; i<ret.length; i++ ) {
+                Object element = array.get(i);
+                ret[i] = element instanceof JSONObject ? getStringFromJSON( (JSONObject) element, "name" ) : String.valueOf( element );
+            }
+            return ret;
+        }
+        return null;
+    }
+    
     private static void addFileToProject( InputStream sourceStream, File destFile ) throws IOException {        
         OutputStream destStream = null;
         try {            
@@ -0,0 +1,162 @@
+package nbpio.project;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.ProcessBuilder.Redirect;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Runs PlatformIO commands on behalf of {@link PlatformIO}. Commands are
+ * queued on a small pool of reused worker threads and the number of
+ * PlatformIO processes alive at the same time is limited, no matter whether
+ * a command is submitted to the queue or executed by the calling thread.
+ * <p>
+ * The PlatformIO command can be replaced with the "nbpio.platformio.command"
+ * system property (e.g. with a fake script for offline tests) and the process
+ * limit with "nbpio.platformio.maxProcesses".
+ */
+public final class PlatformIOExecutor {
+
+    private static final Logger LOGGER = Logger.getLogger( PlatformIOExecutor.class.getName() );
+
+    // TODO: Use which (on Linux) or where (on Windows) to find complete path to PlatformIO executable
+    private static final String DEFAULT_COMMAND = "platformio";
+    private static final int DEFAULT_MAX_PROCESSES = 4;
+
+    private static PlatformIOExecutor defaultExecutor;
+
+    private final String command;
+    private final int maxProcesses;
+    private final Semaphore processPermits;
+    private final RequestProcessor workers;
+
+
+    public PlatformIOExecutor( String command, int maxProcesses ) {
+        if ( maxProcesses < 1 ) throw new IllegalArgumentException("At least one process must be allowed!");
+        this.command = command;
+        this.maxProcesses = maxProcesses;
+        this.processPermits = new Semaphore( maxProcesses, true );
+        this.workers = new RequestProcessor( "PlatformIO Executor", maxProcesses ); // NOI18N
+    }
+
+    public static synchronized PlatformIOExecutor getDefault() {
+        if ( defaultExecutor == null ) {
+            defaultExecutor = new PlatformIOExecutor(
+                System.getProperty( "nbpio.platformio.command", DEFAULT_COMMAND ),
+                Integer.getInteger( "nbpio.platformio.maxProcesses", DEFAULT_MAX_PROCESSES )
+            );
+        }
+        return defaultExecutor;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public int getMaxProcesses() {
+        return maxProcesses;
+    }
+
+    /**
+     * Starts a PlatformIO process which is owned by the caller. Such processes
+     * are not counted against the process limit.
+     */
+    public Process start( String... args ) throws IOException {
+        return new ProcessBuilder().command( createCommandLine(args) ).redirectError( Redirect.INHERIT ).start();
+    }
+
+    /**
+     * Runs a PlatformIO command in the calling thread, waiting for a free
+     * process slot first, and returns whatever the handler makes of the output.
+     */
+    public <T> T execute( OutputHandler<T> outputHandler, String... args ) throws IOException {
+        return execute( outputHandler, (p) -> {}, args );
+    }
+
+    /**
+     * Waits for a free process slot, for a PlatformIO process which is run by
+     * other means, e.g. in a terminal, but should still count against the
+     * process limit. Every call must be followed by
+     * {@link #releaseProcessSlot()} once the process has ended.
+     */
+    public void acquireProcessSlot() throws InterruptedException {
+        processPermits.acquire();
+    }
+
+    public void releaseProcessSlot() {
+        processPermits.release();
+    }
+
+    /**
+     * Queues a PlatformIO command to be run by one of the worker threads.
+     * Cancelling the returned future removes a command from the queue or
+     * destroys its process if it is already running.
+     */
+    public <T> CompletableFuture<T> submit( OutputHandler<T> outputHandler, String... args ) {
+        CompletableFuture<T> ret = new CompletableFuture<>();
+        workers.post( () -> {
+            if ( ret.isDone() ) {
+                return;
+            }
+            try {
+                ret.complete( execute( outputHandler, (p) -> ret.whenComplete( (r, ex) -> {
+                    if ( ret.isCancelled() ) {
+                        p.destroy();
+                    }
+                }), args ) );
+            } catch (IOException | RuntimeException ex) {
+                ret.completeExceptionally( ex );
+            }
+        });
+        return ret;
+    }
+
+    private <T> T execute( OutputHandler<T> outputHandler, Consumer<Process> processStarted, String... args ) throws IOException {
+        try {
+            acquireProcessSlot();
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException( "Interrupted while waiting to run PlatformIO" );
+        }
+        Process p = null;
+        try {
+            LOGGER.log( Level.FINE, "Running PlatformIO: {0}", Arrays.toString(args) );
+            p = start( args );
+            processStarted.accept( p );
+            T ret = outputHandler.handle( p.getInputStream() );
+            p.waitFor();
+            return ret;
+        } catch (InterruptedException ex) {
+            throw new InterruptedIOException( "Interrupted while waiting for PlatformIO to finish" );
+        } finally {
+            if ( p != null && p.isAlive() ) {
+                p.destroy();
+            }
+            releaseProcessSlot();
+        }
+    }
+
+    private List<String> createCommandLine( String... args ) {
+        List<String> ret = new ArrayList<>( args.length + 1 );
+        ret.add( command );
+        ret.addAll( Arrays.asList(args) );
+        return ret;
+    }
+
+
+    @FunctionalInterface
+    public interface OutputHandler<T> {
+
+        T handle( InputStream output ) throws IOException;
+
+    }
+
+}
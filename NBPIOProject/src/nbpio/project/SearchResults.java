@@ -7,10 +7,14 @@ public final class SearchResults <T> {
     
     private final List <T> results;
     private final float progress;
+    private final int page;
+    private final int pageCount;
     
-    protected SearchResults( List <T> results, float progress ) {
+    protected SearchResults( List <T> results, float progress, int page, int pageCount ) {
         this.results = new ArrayList<T> (results);
         this.progress = progress;
+        this.page = page;
+        this.pageCount = pageCount;
     }
 
     public List<T> getResults() {
@@ -21,6 +25,14 @@ public final class SearchResults <T> {
         return progress;
     }
     
+    public int getPage() {
+        return page;
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+    
     public boolean isComplete() {
         return progress >= 1f;
     }
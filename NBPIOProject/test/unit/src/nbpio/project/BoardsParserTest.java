@@ -0,0 +1,65 @@
+package nbpio.project;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BoardsParserTest {
+
+    private PlatformIOExecutor executor;
+
+    @Before
+    public void setup() {
+        File dataDir = new File( System.getProperty("xtest.data", "test/unit/data") );
+        executor = new PlatformIOExecutor( new File( dataDir, "fake-platformio" ).getAbsolutePath(), 1 );
+    }
+
+    @Test
+    public void should_parse_boards_from_json_output() throws IOException {
+        // Given
+        Map<String,List<BoardDefinition>> boardsLookup = new HashMap<>();
+
+        // When
+        executor.execute( (output) -> {
+            try {
+                PlatformIO.parseBoardsJSON( output, boardsLookup::put );
+            } catch (org.json.simple.parser.ParseException ex) {
+                fail( ex.toString() );
+            }
+            return null;
+        }, "boards", "--json-output" );
+
+        // Then
+        assertEquals( "Wrong number of platforms!", 3, boardsLookup.size() );
+        BoardDefinition uno = boardsLookup.get("atmelavr").get(1);
+        assertEquals( "uno", uno.getType() );
+        assertEquals( 16000000, uno.getFrequencyHz() );
+        assertEquals( 32256, uno.getFlashBytes() );
+        assertEquals( 2048, uno.getRAMBytes() );
+    }
+
+    @Test
+    public void should_parse_boards_from_text_output() throws IOException {
+        // Given
+        Map<String,List<BoardDefinition>> boardsLookup = new HashMap<>();
+
+        // When
+        executor.execute( (output) -> {
+            PlatformIO.parseBoards( output, boardsLookup::put );
+            return null;
+        }, "boards" );
+
+        // Then
+        assertEquals( "Wrong number of platforms!", 3, boardsLookup.size() );
+        BoardDefinition mega = boardsLookup.get("atmelavr").get(0);
+        assertEquals( "Arduino Mega or Mega 2560 ATmega2560 (Mega 2560)", mega.getName() );
+        assertEquals( 252 * 1024, mega.getFlashBytes() );
+        assertEquals( 80 * 1024, boardsLookup.get("espressif8266").get(0).getRAMBytes() );
+    }
+
+}
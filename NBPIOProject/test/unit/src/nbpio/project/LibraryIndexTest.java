@@ -0,0 +1,84 @@
+package nbpio.project;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LibraryIndexTest {
+
+    private LibraryIndex index;
+
+    @Before
+    public void setup() {
+        index = LibraryIndex.build( Arrays.asList(
+            library( 1, "DHT sensor library", "Arduino library for DHT11 and DHT22 humidity sensors", new String[] {"sensor", "humidity"}, new String[] {"atmelavr", "espressif8266"} ),
+            library( 2, "Adafruit-HDC1000", "Library for HDC1000 sensors", new String[] {"humidity", "temperature"}, new String[] {"atmelavr"} ),
+            library( 3, "Humidity", "Reads relative humidity", null, new String[] {"atmelsam"} ),
+            library( 4, "OneWire", "Access 1-wire temperature sensors", new String[] {"onewire"}, null )
+        ));
+    }
+
+    @Test
+    public void should_rank_name_matches_first() {
+        // When
+        List<LibraryDefinition> results = index.search( "humidity", null, 10 );
+
+        // Then
+        assertEquals( "Wrong number of results!", 3, results.size() );
+        assertEquals( "Name match is not ranked first!", 3, results.get(0).getId() );
+    }
+
+    @Test
+    public void should_match_all_words_and_last_word_as_prefix() {
+        // When
+        List<LibraryDefinition> results = index.search( "sensors temp", null, 10 );
+
+        // Then
+        assertEquals( "Wrong number of results!", 2, results.size() );
+        assertEquals( 2, results.get(0).getId() );
+        assertEquals( 4, results.get(1).getId() );
+    }
+
+    @Test
+    public void should_filter_by_platform() {
+        // When
+        List<LibraryDefinition> results = index.search( "humidity", "atmelsam", 10 );
+
+        // Then
+        assertEquals( "Wrong number of results!", 1, results.size() );
+        assertEquals( 3, results.get(0).getId() );
+    }
+
+    @Test
+    public void should_answer_same_queries_after_reloading() throws IOException {
+        // Given
+        File file = File.createTempFile( "library", ".index" );
+        file.deleteOnExit();
+
+        // When
+        index.store( file );
+        LibraryIndex loaded = LibraryIndex.load( file );
+
+        // Then
+        assertEquals( "Wrong number of libraries!", 4, loaded.getLibraryCount() );
+        assertEquals( "Wrong creation time!", index.getCreated(), loaded.getCreated() );
+        for ( String query : new String[] {"humidity", "sensors temp", "1", ""} ) {
+            assertEquals( "Different results for \"" + query + "\"!", ids( index.search(query, "atmelavr", 10) ), ids( loaded.search(query, "atmelavr", 10) ) );
+        }
+    }
+
+    private static LibraryDefinition library( int id, String name, String description, String[] keywords, String[] platforms ) {
+        return new LibraryDefinition.Builder().id(id).name(name).description(description).keywords(keywords).platforms(platforms).build();
+    }
+
+    private static String ids( List<LibraryDefinition> libraries ) {
+        StringBuilder b = new StringBuilder();
+        libraries.forEach( (lib) -> b.append( lib.getId() ).append( ',' ) );
+        return b.toString();
+    }
+
+}
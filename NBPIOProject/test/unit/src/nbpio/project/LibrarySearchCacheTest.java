@@ -0,0 +1,165 @@
+package nbpio.project;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LibrarySearchCacheTest {
+
+    private static final long TTL = 60000;
+
+    private File diskDir;
+
+    @Before
+    public void setup() throws IOException {
+        diskDir = Files.createTempDirectory( "library-search" ).toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = diskDir.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                file.delete();
+            }
+        }
+        diskDir.delete();
+    }
+
+    @Test
+    public void should_find_results_by_normalized_term() {
+        // Given
+        LibrarySearchCache cache = new LibrarySearchCache( TTL, 1024 * 1024, null );
+
+        // When
+        cache.put( "Humidity  Sensor", results( 1, 2 ) );
+
+        // Then
+        assertEquals( "Wrong results!", "1,2,", ids( cache.get( " humidity sensor" ) ) );
+        assertNull( "Found results of another term!", cache.get( "humidity" ) );
+        assertEquals( "Wrong hit count!", 1, cache.getHitCount() );
+        assertEquals( "Wrong miss count!", 1, cache.getMissCount() );
+    }
+
+    @Test
+    public void should_expire_entries_after_ttl() throws InterruptedException {
+        // Given
+        LibrarySearchCache cache = new LibrarySearchCache( 50, 1024 * 1024, null );
+        cache.put( "humidity", results( 1 ) );
+
+        // When
+        Thread.sleep( 100 );
+
+        // Then
+        assertNull( "Expired entry was returned!", cache.get( "humidity" ) );
+        assertEquals( "Expired entry still takes memory!", 0, cache.getMemoryBytes() );
+    }
+
+    @Test
+    public void should_evict_least_recently_used_entries_beyond_memory_limit() {
+        // Given
+        LibrarySearchCache sizing = new LibrarySearchCache( TTL, Long.MAX_VALUE, null );
+        sizing.put( "a", results( 1, 2, 3 ) );
+        long entrySize = sizing.getMemoryBytes();
+        LibrarySearchCache cache = new LibrarySearchCache( TTL, 2 * entrySize, null );
+        cache.put( "a", results( 1, 2, 3 ) );
+        cache.put( "b", results( 4, 5, 6 ) );
+
+        // When
+        cache.get( "a" );
+        cache.put( "c", results( 7, 8, 9 ) );
+
+        // Then
+        assertNotNull( "Recently used entry was evicted!", cache.get( "a" ) );
+        assertNull( "Least recently used entry was kept!", cache.get( "b" ) );
+        assertNotNull( "New entry was evicted!", cache.get( "c" ) );
+        assertTrue( "Memory limit exceeded!", cache.getMemoryBytes() <= 2 * entrySize );
+    }
+
+    @Test
+    public void should_load_entries_stored_by_an_earlier_session() {
+        // Given
+        LibraryDefinition lib = new LibraryDefinition.Builder()
+            .id( 1102 )
+            .name( "Adafruit-HDC1000" )
+            .description( "Arduino library for HDC1000 and HDC1008 sensors" )
+            .version( "1.0.0" )
+            .keywords( new String[] {"sensor", "humidity"} )
+            .platforms( new String[] {"atmelavr", "atmelsam"} )
+            .build();
+        new LibrarySearchCache( TTL, 1024 * 1024, diskDir ).put( "humidity", Arrays.asList( lib ) );
+
+        // When
+        LibrarySearchCache cache = new LibrarySearchCache( TTL, 1024 * 1024, diskDir );
+        assertNull( "Disk was read before loading!", cache.get( "humidity" ) );
+        cache.load();
+
+        // Then
+        List<LibraryDefinition> loaded = cache.get( "humidity" );
+        assertNotNull( "Entry was not loaded!", loaded );
+        assertEquals( "Wrong number of results!", 1, loaded.size() );
+        LibraryDefinition loadedLib = loaded.get(0);
+        assertEquals( 1102, loadedLib.getId() );
+        assertEquals( "Adafruit-HDC1000", loadedLib.getName() );
+        assertEquals( "Arduino library for HDC1000 and HDC1008 sensors", loadedLib.getDescription() );
+        assertEquals( "1.0.0", loadedLib.getVersion() );
+        assertArrayEquals( new String[] {"sensor", "humidity"}, loadedLib.getKeywords() );
+        assertNull( "Missing frameworks were not kept!", loadedLib.getFrameworks() );
+        assertArrayEquals( new String[] {"atmelavr", "atmelsam"}, loadedLib.getPlatforms() );
+    }
+
+    @Test
+    public void should_delete_expired_entries_when_loading() throws InterruptedException {
+        // Given
+        new LibrarySearchCache( 50, 1024 * 1024, diskDir ).put( "humidity", results( 1 ) );
+        Thread.sleep( 100 );
+
+        // When
+        LibrarySearchCache cache = new LibrarySearchCache( 50, 1024 * 1024, diskDir );
+        cache.load();
+
+        // Then
+        assertNull( "Expired entry was loaded!", cache.get( "humidity" ) );
+        assertEquals( "Expired file was not deleted!", 0, diskDir.listFiles().length );
+    }
+
+    @Test
+    public void should_delete_stored_entries_when_cleared() {
+        // Given
+        LibrarySearchCache cache = new LibrarySearchCache( TTL, 1024 * 1024, diskDir );
+        cache.put( "humidity", results( 1 ) );
+        assertEquals( "Entry was not stored!", 1, diskDir.listFiles().length );
+
+        // When
+        cache.clear();
+        cache.put( "display", results( 2 ) );
+
+        // Then
+        assertNull( "Cleared entry was returned!", cache.get( "humidity" ) );
+        LibrarySearchCache reloaded = new LibrarySearchCache( TTL, 1024 * 1024, diskDir );
+        reloaded.load();
+        assertNull( "Cleared entry was loaded!", reloaded.get( "humidity" ) );
+        assertNotNull( "Entry put after clearing was not stored!", reloaded.get( "display" ) );
+    }
+
+    private static List<LibraryDefinition> results( int... ids ) {
+        LibraryDefinition[] ret = new LibraryDefinition[ids.length];
+        for ( int i=0; i<ids.length; i++ ) {
+            ret[i] = new LibraryDefinition.Builder().id( ids[i] ).name( "library-" + ids[i] ).description( "Library " + ids[i] ).build();
+        }
+        return Arrays.asList( ret );
+    }
+
+    private static String ids( List<LibraryDefinition> libraries ) {
+        StringBuilder b = new StringBuilder();
+        libraries.forEach( (lib) -> b.append( lib.getId() ).append( ',' ) );
+        return b.toString();
+    }
+
+}
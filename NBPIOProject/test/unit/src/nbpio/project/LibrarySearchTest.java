@@ -0,0 +1,55 @@
+package nbpio.project;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class LibrarySearchTest {
+
+    private PlatformIOExecutor executor;
+
+    @Before
+    public void setup() {
+        File dataDir = new File( System.getProperty("xtest.data", "test/unit/data") );
+        executor = new PlatformIOExecutor( new File( dataDir, "fake-platformio" ).getAbsolutePath(), 4 );
+    }
+
+    @Test
+    public void should_deliver_pages_in_order() throws InterruptedException {
+        // Given
+        CountDownLatch latch = new CountDownLatch(1);
+        List<SearchResults<LibraryDefinition>> pages = new ArrayList<>();
+
+        // When
+        new LibrarySearch( executor, "humidity", (r) -> {
+            synchronized (pages) {
+                pages.add(r);
+            }
+            if ( r.isComplete() ) {
+                latch.countDown();
+            }
+        }, 2 ).start();
+
+        // Then
+        assertTrue( "Search did not complete!", latch.await(10, TimeUnit.SECONDS) );
+        synchronized (pages) {
+            assertEquals( "Wrong number of pages!", 3, pages.size() );
+            int expectedId = 1;
+            for ( int i=0; i<pages.size(); i++ ) {
+                SearchResults<LibraryDefinition> page = pages.get(i);
+                assertEquals( "Pages out of order!", i+1, page.getPage() );
+                assertEquals( "Wrong progress!", (i+1) / 3f, page.getProgress(), 0.001f );
+                for ( LibraryDefinition lib : page.getResults() ) {
+                    assertEquals( "Results out of order!", expectedId++, lib.getId() );
+                }
+            }
+            assertEquals( "Wrong number of results!", 7, expectedId );
+        }
+    }
+
+}
@@ -0,0 +1,107 @@
+package nbpio.project;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PlatformIOExecutorTest {
+
+    private String fakePlatformIOCommand;
+
+    @Before
+    public void setup() {
+        File dataDir = new File( System.getProperty("xtest.data", "test/unit/data") );
+        fakePlatformIOCommand = new File( dataDir, "fake-platformio" ).getAbsolutePath();
+    }
+
+    @Test
+    public void should_hand_command_output_to_handler() throws IOException {
+        // Given
+        PlatformIOExecutor executor = new PlatformIOExecutor( fakePlatformIOCommand, 1 );
+
+        // When
+        String version = executor.execute( (output) -> new BufferedReader( new InputStreamReader( output ) ).readLine(), "--version" );
+
+        // Then
+        assertEquals( "Wrong version line!", "PlatformIO, version 3.6.7", version );
+    }
+
+    @Test
+    public void should_not_exceed_process_limit() throws Exception {
+        // Given
+        PlatformIOExecutor executor = new PlatformIOExecutor( fakePlatformIOCommand, 2 );
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+
+        // When
+        for ( int i=0; i<6; i++ ) {
+            futures.add( executor.submit( (output) -> {
+                maxRunning.accumulateAndGet( running.incrementAndGet(), Math::max );
+                try {
+                    while ( output.read() != -1 ) {
+                        // drain the output until the delayed process exits
+                    }
+                } finally {
+                    running.decrementAndGet();
+                }
+                return 0;
+            }, "--fake-delay", "0.2", "--version" ) );
+        }
+        CompletableFuture.allOf( futures.toArray( new CompletableFuture<?>[futures.size()] ) ).get( 10, TimeUnit.SECONDS );
+
+        // Then
+        assertTrue( "Too many PlatformIO processes at once: " + maxRunning.get(), maxRunning.get() <= 2 );
+    }
+
+    @Test
+    public void should_destroy_process_of_cancelled_command() throws Exception {
+        // Given
+        PlatformIOExecutor executor = new PlatformIOExecutor( fakePlatformIOCommand, 1 );
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Integer> slowCommand = executor.submit( (output) -> {
+            started.countDown();
+            while ( output.read() != -1 ) {
+                // drain the output until the process is destroyed
+            }
+            return 0;
+        }, "--fake-delay", "30", "--version" );
+        assertTrue( "Command did not start!", started.await(10, TimeUnit.SECONDS) );
+
+        // When
+        slowCommand.cancel( true );
+        long startTime = System.nanoTime();
+        executor.execute( (output) -> null, "--version" );
+
+        // Then
+        assertTrue( "Process slot was not released!", System.nanoTime() - startTime < TimeUnit.SECONDS.toNanos(10) );
+    }
+
+    @Test
+    public void should_count_processes_run_by_other_means() throws Exception {
+        // Given
+        PlatformIOExecutor executor = new PlatformIOExecutor( fakePlatformIOCommand, 1 );
+        executor.acquireProcessSlot();
+
+        // When
+        CompletableFuture<Object> queuedCommand = executor.submit( (output) -> null, "--version" );
+        Thread.sleep( 300 );
+        boolean ranWhileSlotTaken = queuedCommand.isDone();
+        executor.releaseProcessSlot();
+
+        // Then
+        assertFalse( "Command ran while the only slot was taken!", ranWhileSlotTaken );
+        queuedCommand.get( 10, TimeUnit.SECONDS );
+    }
+
+}
@@ -0,0 +1,122 @@
+package nbpio.serialmonitor;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.openide.util.NbPreferences;
+
+/**
+ * Keeps the most recent bytes received from a serial port in a ring of
+ * fixed size chunks. Once the capacity is reached, the oldest chunk is
+ * dropped and its array reused for the new bytes, so the memory used never
+ * exceeds the capacity, no matter how much traffic passes through.
+ * <p>
+ * Every byte keeps the offset it was received at; the offsets of the bytes
+ * still held range from {@link #getStartOffset()} to
+ * {@link #getEndOffset()}. The store may be written by one thread and read
+ * by another.
+ */
+public final class ByteStore {
+
+    public static final String MAX_BYTES_KEY = "hexView.maxBytes";
+    public static final int DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    static final int CHUNK_SHIFT = 16;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final byte[][] chunks;
+    private long startOffset;
+    private long endOffset;
+
+
+    /**
+     * Creates a store with the capacity taken from the "hexView.maxBytes"
+     * module preference.
+     */
+    public static ByteStore createDefault() {
+        return new ByteStore( NbPreferences.forModule( ByteStore.class ).getInt( MAX_BYTES_KEY, DEFAULT_MAX_BYTES ) );
+    }
+
+    /**
+     * @param maxBytes the capacity, rounded up to whole chunks of 64 KB
+     */
+    public ByteStore( int maxBytes ) {
+        if ( maxBytes <= 0 ) throw new IllegalArgumentException("The capacity must be positive!");
+        this.chunks = new byte[(maxBytes + CHUNK_MASK) >>> CHUNK_SHIFT][];
+    }
+
+    public long getCapacity() {
+        return (long) chunks.length * CHUNK_SIZE;
+    }
+
+    public synchronized long getStartOffset() {
+        return startOffset;
+    }
+
+    public synchronized long getEndOffset() {
+        return endOffset;
+    }
+
+    public void append( byte[] bytes, int offset, int length ) {
+        append( ByteBuffer.wrap( bytes, offset, length ) );
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer.
+     */
+    public synchronized void append( ByteBuffer bytes ) {
+        while ( bytes.hasRemaining() ) {
+            int chunkOffset = (int) (endOffset & CHUNK_MASK);
+            if ( chunkOffset == 0 && endOffset - startOffset == getCapacity() ) {
+                // The new chunk takes the slot of the oldest one
+                startOffset += CHUNK_SIZE;
+            }
+            int slot = getSlot( endOffset );
+            if ( chunks[slot] == null ) {
+                chunks[slot] = new byte[CHUNK_SIZE];
+            }
+            int n = Math.min( bytes.remaining(), CHUNK_SIZE - chunkOffset );
+            bytes.get( chunks[slot], chunkOffset, n );
+            endOffset += n;
+        }
+    }
+
+    /**
+     * Copies the bytes from the given offset on, as far as they are still
+     * held.
+     *
+     * @return the number of bytes copied
+     */
+    public synchronized int read( long offset, byte[] destination, int destinationOffset, int length ) {
+        long from = Math.max( offset, startOffset );
+        long to = Math.min( offset + length, endOffset );
+        int copied = 0;
+        for ( long position = from; position < to; ) {
+            int chunkOffset = (int) (position & CHUNK_MASK);
+            int n = (int) Math.min( to - position, CHUNK_SIZE - chunkOffset );
+            System.arraycopy( chunks[getSlot(position)], chunkOffset, destination, destinationOffset + (int) (position - offset), n );
+            position += n;
+            copied += n;
+        }
+        return copied;
+    }
+
+    /**
+     * Drops all bytes and releases the chunks. The offsets start from zero
+     * again.
+     */
+    public synchronized void clear() {
+        Arrays.fill( chunks, null );
+        startOffset = 0;
+        endOffset = 0;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private int getSlot( long offset ) {
+        return (int) ((offset >>> CHUNK_SHIFT) % chunks.length);
+    }
+
+}
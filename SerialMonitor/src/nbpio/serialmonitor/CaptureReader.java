@@ -0,0 +1,127 @@
+package nbpio.serialmonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads back the records written by a {@link CaptureRecorder}, segment by
+ * segment. A segment which is missing or damaged ends the capture.
+ */
+public final class CaptureReader {
+
+    private final File directory;
+    private int segmentIndex = -1;
+    private MappedByteBuffer segment;
+    private ByteBuffer payload;
+    private long startTimeMillis = -1;
+    private byte direction;
+    private long timestampNanos;
+
+
+    public CaptureReader( File directory ) throws IOException {
+        if ( !CaptureRecorder.getSegmentFile( directory, 0 ).isFile() ) {
+            throw new IOException( "Not a serial capture: " + directory );
+        }
+        this.directory = directory;
+        if ( !nextSegment() ) {
+            throw new IOException( "Not a serial capture: " + directory );
+        }
+    }
+
+    /**
+     * Returns the wall clock time at which the recording started.
+     */
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false if there are no more records
+     */
+    public boolean next() throws IOException {
+        while ( segment != null ) {
+            if ( segment.remaining() > CaptureRecorder.RECORD_HEADER_SIZE ) {
+                int recordStart = segment.position();
+                byte type = segment.get( recordStart );
+                if ( type == CaptureRecorder.RECEIVED || type == CaptureRecorder.SENT ) {
+                    int length = segment.getInt( recordStart + 1 );
+                    int payloadStart = recordStart + CaptureRecorder.RECORD_HEADER_SIZE;
+                    if ( length > 0 && length <= segment.limit() - payloadStart ) {
+                        direction = type;
+                        timestampNanos = segment.getLong( recordStart + 5 );
+                        payload.limit( payloadStart + length ).position( payloadStart );
+                        segment.position( payloadStart + length );
+                        return true;
+                    }
+                }
+            }
+            if ( !nextSegment() ) {
+                segment = null;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@link CaptureRecorder#RECEIVED} or {@link CaptureRecorder#SENT}
+     */
+    public byte getDirection() {
+        return direction;
+    }
+
+    /**
+     * Returns the time of the current record in nanoseconds since the
+     * recording started.
+     */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * Returns the bytes of the current record. The buffer is reused and only
+     * valid until the next call of {@link #next()}.
+     */
+    public ByteBuffer getPayload() {
+        return payload;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private boolean nextSegment() throws IOException {
+        File file = CaptureRecorder.getSegmentFile( directory, segmentIndex + 1 );
+        if ( !file.isFile() ) {
+            return false;
+        }
+        MappedByteBuffer mapping;
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            mapping = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        }
+        if ( mapping.remaining() < CaptureRecorder.SEGMENT_HEADER_SIZE
+                || mapping.getInt() != CaptureRecorder.MAGIC
+                || mapping.getInt() != CaptureRecorder.FORMAT_VERSION
+                || mapping.getInt() != segmentIndex + 1 ) {
+            return false;
+        }
+        mapping.getInt();
+        long segmentStartTime = mapping.getLong();
+        mapping.getLong();
+        if ( startTimeMillis >= 0 && segmentStartTime != startTimeMillis ) {
+            // A segment left over from another recording
+            return false;
+        }
+        startTimeMillis = segmentStartTime;
+        segmentIndex++;
+        segment = mapping;
+        payload = mapping.asReadOnlyBuffer();
+        return true;
+    }
+
+}
@@ -0,0 +1,190 @@
+package nbpio.serialmonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Records the raw bytes received from and sent to a serial port into a
+ * directory of memory-mapped segment files. Every record holds a timestamp
+ * in nanoseconds since the recording started, the direction and the bytes.
+ * <p>
+ * Records are written straight into the mapping by the thread that reads or
+ * writes the port. The type byte of a record is written last, so a record is
+ * either complete or not there at all. The mapped pages belong to the
+ * operating system and survive a crash of the IDE; full segments are forced
+ * to the disk, so even a crash of the machine loses at most the segment
+ * being written.
+ * <p>
+ * Segment layout: a {@value #SEGMENT_HEADER_SIZE} byte header (magic, format
+ * version, segment index, start time in milliseconds and the nanoTime of the
+ * start) followed by records of a type byte, a payload length int, a
+ * timestamp long and the payload. A zero type byte or the end of the file
+ * ends the segment; the last segment is truncated when the recording is
+ * closed.
+ */
+public final class CaptureRecorder implements SerialInputListener {
+
+    private static final Logger LOGGER = Logger.getLogger( CaptureRecorder.class.getName() );
+
+    public static final byte RECEIVED = 1;
+    public static final byte SENT = 2;
+
+    static final int MAGIC = 0x4E425343;   // "NBSC"
+    static final int FORMAT_VERSION = 1;
+    static final int SEGMENT_HEADER_SIZE = 32;
+    static final int RECORD_HEADER_SIZE = 13;
+    static final String SEGMENT_PREFIX = "capture-";
+    static final String SEGMENT_EXTENSION = ".seg";
+
+    public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MIN_SEGMENT_SIZE = 4096;
+
+    private final File directory;
+    private final int segmentSize;
+    private final long startTimeMillis;
+    private final long startNanos;
+    private MappedByteBuffer segment;
+    private int segmentIndex = -1;
+    private long recordCount;
+    private long byteCount;
+    private boolean closed;
+
+
+    public CaptureRecorder( File directory ) throws IOException {
+        this( directory, DEFAULT_SEGMENT_SIZE );
+    }
+
+    public CaptureRecorder( File directory, int segmentSize ) throws IOException {
+        if ( segmentSize < MIN_SEGMENT_SIZE ) throw new IllegalArgumentException("Segments must have at least " + MIN_SEGMENT_SIZE + " bytes!");
+        if ( !directory.isDirectory() && !directory.mkdirs() ) {
+            throw new IOException( "Failed to create capture directory: " + directory );
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.startTimeMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        nextSegment();
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
+    public void record( byte direction, byte[] bytes, int offset, int length ) {
+        record( direction, ByteBuffer.wrap( bytes, offset, length ) );
+    }
+
+    /**
+     * Appends the remaining bytes of the buffer, leaving its position
+     * unchanged. Payloads which do not fit into a segment are split.
+     */
+    public synchronized void record( byte direction, ByteBuffer bytes ) {
+        if ( closed || !bytes.hasRemaining() ) {
+            return;
+        }
+        long timestamp = System.nanoTime() - startNanos;
+        int start = bytes.position();
+        int limit = bytes.limit();
+        int position = start;
+        try {
+            while ( position < limit ) {
+                if ( segment.remaining() < RECORD_HEADER_SIZE + 1 ) {
+                    nextSegment();
+                }
+                int length = Math.min( limit - position, segment.remaining() - RECORD_HEADER_SIZE );
+                int recordStart = segment.position();
+                segment.putInt( recordStart + 1, length );
+                segment.putLong( recordStart + 5, timestamp );
+                segment.position( recordStart + RECORD_HEADER_SIZE );
+                bytes.limit( position + length );
+                segment.put( bytes );
+                bytes.limit( limit );
+                // Publishes the record
+                segment.put( recordStart, direction );
+                position += length;
+                recordCount++;
+                byteCount += length;
+            }
+        } catch (IOException ex) {
+            LOGGER.log( Level.WARNING, "Failed to start a new capture segment, recording stopped", ex );
+            closed = true;
+        } finally {
+            bytes.limit( limit );
+            bytes.position( start );
+        }
+    }
+
+    @Override
+    public void textReceived( CharBuffer text ) {
+        // only the raw bytes are recorded
+    }
+
+    @Override
+    public void bytesReceived( ByteBuffer bytes ) {
+        record( RECEIVED, bytes );
+    }
+
+    /**
+     * Stops recording, flushes the current segment to the disk and truncates
+     * it to the records written.
+     */
+    public synchronized void close() {
+        if ( !closed ) {
+            closed = true;
+            segment.force();
+            int used = segment.position();
+            // Lets the mapping be released, which Windows needs before the file can be truncated
+            segment = null;
+            File file = getSegmentFile( directory, segmentIndex );
+            try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.WRITE ) ) {
+                channel.truncate( used );
+            } catch (IOException ex) {
+                // The unused rest of the segment reads as its end
+                LOGGER.log( Level.FINE, "Failed to truncate capture segment " + file, ex );
+            }
+            LOGGER.log( Level.INFO, "Captured {0} records ({1} bytes) in {2}", new Object[] {recordCount, byteCount, directory} );
+        }
+    }
+
+    static File getSegmentFile( File directory, int index ) {
+        return new File( directory, String.format( "%s%05d%s", SEGMENT_PREFIX, index, SEGMENT_EXTENSION ) );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void nextSegment() throws IOException {
+        if ( segment != null ) {
+            segment.force();
+        }
+        segmentIndex++;
+        File file = getSegmentFile( directory, segmentIndex );
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE ) ) {
+            // The mapping stays valid after the channel has been closed
+            segment = channel.map( FileChannel.MapMode.READ_WRITE, 0, segmentSize );
+        }
+        segment.putInt( MAGIC );
+        segment.putInt( FORMAT_VERSION );
+        segment.putInt( segmentIndex );
+        segment.putInt( 0 );
+        segment.putLong( startTimeMillis );
+        segment.putLong( startNanos );
+    }
+
+}
@@ -0,0 +1,210 @@
+package nbpio.serialmonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stands in for a device by playing back the bytes received in a session
+ * recorded with a {@link CaptureRecorder}. The records are replayed at their
+ * original timing, sped up by a factor, or {@link #AS_FAST_AS_POSSIBLE}.
+ * Bytes sent to the replayed device are discarded.
+ * <p>
+ * Every connection opened, including a reconnection, starts the replay from
+ * the beginning. Once all records have been replayed, the input stream
+ * behaves like an idle port until it is closed.
+ */
+public final class CaptureReplaySource implements SerialStreamSource {
+
+    public static final double ORIGINAL_SPEED = 1;
+    public static final double AS_FAST_AS_POSSIBLE = Double.POSITIVE_INFINITY;
+
+    private final File directory;
+    private final double speed;
+    private volatile ReplayInputStream current;
+
+
+    public CaptureReplaySource( File directory ) {
+        this( directory, ORIGINAL_SPEED );
+    }
+
+    /**
+     * @param speed the factor by which the replay is faster than the
+     * recording, e.g. 1 for the original timing or 10 for ten times as fast
+     */
+    public CaptureReplaySource( File directory, double speed ) {
+        if ( !(speed > 0) ) throw new IllegalArgumentException("The replay speed must be positive!");
+        this.directory = directory;
+        this.speed = speed;
+    }
+
+    public File getDirectory() {
+        return directory;
+    }
+
+    public double getSpeed() {
+        return speed;
+    }
+
+    @Override
+    public Connection open( SerialPortConfig config, int receiveTimeoutMillis ) throws IOException {
+        ReplayInputStream in = new ReplayInputStream( new CaptureReader( directory ), receiveTimeoutMillis );
+        current = in;
+        return new Connection() {
+            @Override
+            public InputStream getInputStream() {
+                return in;
+            }
+
+            @Override
+            public OutputStream getOutputStream() {
+                return DISCARD;
+            }
+
+            @Override
+            public void close() {
+                in.close();
+            }
+        };
+    }
+
+    /**
+     * Returns the number of bytes replayed by the most recent connection.
+     */
+    public long getReplayedByteCount() {
+        ReplayInputStream in = current;
+        return in != null ? in.replayedBytes : 0;
+    }
+
+    /**
+     * Waits until the most recent connection has replayed all records.
+     *
+     * @return false if the replay did not end in time or has not been started
+     */
+    public boolean awaitEnd( long timeout, TimeUnit unit ) throws InterruptedException {
+        ReplayInputStream in = current;
+        return in != null && in.ended.await( timeout, unit );
+    }
+
+
+    private static final OutputStream DISCARD = new OutputStream() {
+        @Override
+        public void write( int b ) {
+            // the replayed device does not listen
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) {
+            // the replayed device does not listen
+        }
+    };
+
+
+    private final class ReplayInputStream extends InputStream {
+
+        private final CaptureReader reader;
+        private final long receiveTimeoutNanos;
+        private final long startNanos;
+        private final CountDownLatch ended = new CountDownLatch(1);
+        private final byte[] singleByte = new byte[1];
+        // The rest of the current record, null once it has been replayed
+        private ByteBuffer record;
+        private long recordDueNanos;
+        private boolean finished;
+        private volatile boolean closed;
+        private volatile long replayedBytes;
+
+        ReplayInputStream( CaptureReader reader, int receiveTimeoutMillis ) {
+            this.reader = reader;
+            this.receiveTimeoutNanos = receiveTimeoutMillis > 0 ? TimeUnit.MILLISECONDS.toNanos( receiveTimeoutMillis ) : Long.MAX_VALUE;
+            this.startNanos = System.nanoTime();
+        }
+
+        @Override
+        public int read() throws IOException {
+            int n;
+            do {
+                n = read( singleByte, 0, 1 );
+            } while ( n == 0 );
+            return n < 0 ? -1 : singleByte[0] & 0xFF;
+        }
+
+        /**
+         * Blocks until the next record is due or the receive timeout elapses
+         * and then returns as many due bytes as fit, possibly of several
+         * records.
+         */
+        @Override
+        public int read( byte[] b, int off, int len ) throws IOException {
+            if ( off < 0 || len < 0 || len > b.length - off ) {
+                throw new IndexOutOfBoundsException();
+            }
+            if ( len == 0 ) {
+                return 0;
+            }
+            long deadline = System.nanoTime() + receiveTimeoutNanos;
+            while ( !isRecordDue() ) {
+                long now = System.nanoTime();
+                long timeLeft = deadline - now;
+                if ( timeLeft <= 0 ) {
+                    return 0;
+                }
+                LockSupport.parkNanos( this, finished ? timeLeft : Math.min( timeLeft, recordDueNanos - now ) );
+                if ( Thread.interrupted() ) {
+                    throw new InterruptedIOException();
+                }
+            }
+            int count = 0;
+            while ( count < len && isRecordDue() ) {
+                int n = Math.min( len - count, record.remaining() );
+                record.get( b, off + count, n );
+                count += n;
+            }
+            replayedBytes += count;
+            return count;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return isRecordDue() ? record.remaining() : 0;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        // Moves on to the next received record if the current one is done
+        private boolean isRecordDue() throws IOException {
+            if ( closed ) {
+                throw new IOException( "Stream closed" );
+            }
+            while ( record == null || !record.hasRemaining() ) {
+                record = null;
+                if ( finished ) {
+                    return false;
+                }
+                if ( !reader.next() ) {
+                    finished = true;
+                    ended.countDown();
+                    return false;
+                }
+                if ( reader.getDirection() == CaptureRecorder.RECEIVED ) {
+                    record = reader.getPayload();
+                    if ( speed != AS_FAST_AS_POSSIBLE ) {
+                        recordDueNanos = startNanos + (long) (reader.getTimestampNanos() / speed);
+                    }
+                }
+            }
+            return speed == AS_FAST_AS_POSSIBLE || recordDueNanos - System.nanoTime() <= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,289 @@
+package nbpio.serialmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.prefs.Preferences;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.text.AttributeSet;
+import org.openide.util.NbPreferences;
+
+/**
+ * Scrollback of the serial monitor. Text is kept as a ring of line records,
+ * each with the style spans it was printed with. Once the line or byte limit
+ * is exceeded the oldest lines are dropped, so the memory used does not grow
+ * with the length of a session. A limit of zero or less means no limit.
+ * <p>
+ * Lines are addressed by their number since the buffer was created or
+ * cleared; {@link #getFirstLineNumber()} tells how many have been dropped.
+ * The buffer is not thread safe and is meant to be used by one thread,
+ * usually the EDT.
+ */
+public final class ConsoleBuffer {
+
+    public static final String MAX_LINES_KEY = "console.maxLines";
+    public static final String MAX_BYTES_KEY = "console.maxBytes";
+    public static final int DEFAULT_MAX_LINES = 10000;
+    public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+
+    // Longer runs without a line break are wrapped to keep single records bounded
+    static final int MAX_LINE_LENGTH = 4096;
+    private static final int LINE_OVERHEAD_BYTES = 64;
+    private static final int SPAN_OVERHEAD_BYTES = 16;
+
+    private final int maxLines;
+    private final long maxBytes;
+    private final List<ChangeListener> listeners = new ArrayList<>();
+    private Line[] lines;
+    private int head;
+    private int size;
+    private long firstLineNumber;
+    private long byteCount;
+    private int maxLineLength;
+    private final StringBuilder openText = new StringBuilder();
+    private final List<AttributeSet> openStyles = new ArrayList<>();
+    private int[] openSpanEnds = new int[4];
+    // Set when the last line was closed by wrapping, so that a line break right after it adds no empty line
+    private boolean wrapped;
+
+
+    public ConsoleBuffer( int maxLines, long maxBytes ) {
+        this.maxLines = maxLines;
+        this.maxBytes = maxBytes;
+        this.lines = new Line[maxLines > 0 ? Math.min( 64, maxLines ) : 64];
+    }
+
+    /**
+     * Creates a buffer with the limits set in the module preferences.
+     */
+    public static ConsoleBuffer createDefault() {
+        return createDefault(1);
+    }
+
+    /**
+     * Creates one of the given number of buffers which share the limits set
+     * in the module preferences: each keeps up to the line limit but only its
+     * part of the byte limit, so together they stay within it.
+     */
+    public static ConsoleBuffer createDefault( int parts ) {
+        Preferences prefs = NbPreferences.forModule( ConsoleBuffer.class );
+        long maxBytes = prefs.getLong( MAX_BYTES_KEY, DEFAULT_MAX_BYTES );
+        return new ConsoleBuffer( prefs.getInt( MAX_LINES_KEY, DEFAULT_MAX_LINES ), maxBytes > 0 ? Math.max( 1, maxBytes / parts ) : maxBytes );
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void append( CharSequence text, AttributeSet style ) {
+        append( text, 0, text.length(), style );
+    }
+
+    /**
+     * Appends the characters between start (inclusive) and end (exclusive).
+     */
+    public void append( CharSequence text, int start, int end, AttributeSet style ) {
+        if ( start >= end ) {
+            return;
+        }
+        for ( int i=start; i<end; i++ ) {
+            if ( text.charAt(i) == '\n' ) {
+                appendToOpenLine( text, start, i, style );
+                if ( !wrapped || openText.length() > 0 ) {
+                    closeOpenLine();
+                }
+                wrapped = false;
+                start = i + 1;
+            }
+        }
+        appendToOpenLine( text, start, end, style );
+        trim();
+        fireChange();
+    }
+
+    public void clear() {
+        Arrays.fill( lines, null );
+        head = 0;
+        size = 0;
+        firstLineNumber = 0;
+        byteCount = 0;
+        maxLineLength = 0;
+        wrapped = false;
+        resetOpenLine();
+        fireChange();
+    }
+
+    public long getFirstLineNumber() {
+        return firstLineNumber;
+    }
+
+    /**
+     * Returns the number of lines held, including the last one if it has not
+     * been terminated yet.
+     */
+    public int getLineCount() {
+        return size + (openText.length() > 0 ? 1 : 0);
+    }
+
+    /**
+     * Tells whether the last line has not been terminated yet.
+     */
+    public boolean hasOpenLine() {
+        return openText.length() > 0;
+    }
+
+    public long getByteCount() {
+        return byteCount + estimateBytes( openText.length(), openStyles.size() );
+    }
+
+    public int getMaxLineLength() {
+        return Math.max( maxLineLength, openText.length() );
+    }
+
+    /**
+     * @param index index of the line among the lines held, 0 being the oldest
+     */
+    public String getLineText( int index ) {
+        return index < size ? getLine(index).text : openText.toString();
+    }
+
+    public int getSpanCount( int index ) {
+        return index < size ? getLine(index).styles.length : openStyles.size();
+    }
+
+    public int getSpanEnd( int index, int span ) {
+        return index < size ? getLine(index).spanEnds[span] : openSpanEnds[span];
+    }
+
+    public AttributeSet getSpanStyle( int index, int span ) {
+        return index < size ? getLine(index).styles[span] : openStyles.get(span);
+    }
+
+    public void addChangeListener( ChangeListener listener ) {
+        listeners.add( listener );
+    }
+
+    public void removeChangeListener( ChangeListener listener ) {
+        listeners.remove( listener );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private Line getLine( int index ) {
+        return lines[(head + index) % lines.length];
+    }
+
+    private void appendToOpenLine( CharSequence text, int start, int end, AttributeSet style ) {
+        while ( start < end ) {
+            int count = Math.min( end - start, MAX_LINE_LENGTH - openText.length() );
+            openText.append( text, start, start + count );
+            int spans = openStyles.size();
+            if ( spans > 0 && openStyles.get( spans - 1 ) == style ) {
+                openSpanEnds[spans - 1] = openText.length();
+            } else {
+                if ( spans == openSpanEnds.length ) {
+                    openSpanEnds = Arrays.copyOf( openSpanEnds, spans * 2 );
+                }
+                openStyles.add( style );
+                openSpanEnds[spans] = openText.length();
+            }
+            start += count;
+            wrapped = false;
+            if ( openText.length() == MAX_LINE_LENGTH ) {
+                closeOpenLine();
+                wrapped = true;
+            }
+        }
+    }
+
+    private void closeOpenLine() {
+        Line line = new Line(
+            openText.toString(),
+            Arrays.copyOf( openSpanEnds, openStyles.size() ),
+            openStyles.toArray( new AttributeSet[openStyles.size()] )
+        );
+        if ( size == lines.length ) {
+            if ( maxLines > 0 && size >= maxLines ) {
+                removeFirstLine();
+            } else {
+                grow();
+            }
+        }
+        lines[(head + size) % lines.length] = line;
+        size++;
+        byteCount += line.bytes;
+        maxLineLength = Math.max( maxLineLength, line.text.length() );
+        resetOpenLine();
+    }
+
+    private void resetOpenLine() {
+        openText.setLength(0);
+        if ( openText.capacity() > MAX_LINE_LENGTH ) {
+            openText.trimToSize();
+        }
+        openStyles.clear();
+    }
+
+    private void trim() {
+        while ( size > 0 && ( (maxLines > 0 && getLineCount() > maxLines) || (maxBytes > 0 && getByteCount() > maxBytes) ) ) {
+            removeFirstLine();
+        }
+    }
+
+    private void removeFirstLine() {
+        byteCount -= lines[head].bytes;
+        lines[head] = null;
+        head = (head + 1) % lines.length;
+        size--;
+        firstLineNumber++;
+    }
+
+    private void grow() {
+        int capacity = lines.length * 2;
+        if ( maxLines > 0 ) {
+            capacity = Math.min( capacity, maxLines );
+        }
+        Line[] newLines = new Line[Math.max( capacity, size + 1 )];
+        for ( int i=0; i<size; i++ ) {
+            newLines[i] = getLine(i);
+        }
+        lines = newLines;
+        head = 0;
+    }
+
+    private void fireChange() {
+        ChangeEvent event = new ChangeEvent( this );
+        for ( ChangeListener listener : new ArrayList<>( listeners ) ) {
+            listener.stateChanged( event );
+        }
+    }
+
+    private static long estimateBytes( int length, int spans ) {
+        return LINE_OVERHEAD_BYTES + 2L * length + SPAN_OVERHEAD_BYTES * spans;
+    }
+
+
+    private static final class Line {
+
+        private final String text;
+        private final int[] spanEnds;
+        private final AttributeSet[] styles;
+        private final long bytes;
+
+        Line( String text, int[] spanEnds, AttributeSet[] styles ) {
+            this.text = text;
+            this.spanEnds = spanEnds;
+            this.styles = styles;
+            this.bytes = estimateBytes( text.length(), styles.length );
+        }
+
+    }
+
+}
@@ -0,0 +1,336 @@
+package nbpio.serialmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.stream.IntStream;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Applies {@link FilterRule}s to the text printed to the console before it
+ * reaches the {@link ConsoleRenderer}. Text can be printed from any thread;
+ * a worker thread frames it into lines, keeps the unfiltered scrollback and
+ * passes on only the lines which are shown, with their highlights, and a
+ * line is shown once it has been terminated. While no rules are set, text
+ * skips the worker: the printing thread adds it to the scrollback and passes
+ * it on to the renderer itself, so even an unterminated line such as a
+ * prompt shows up.
+ * <p>
+ * When the rules change, the scrollback is evaluated again on the worker,
+ * in parallel chunks, and the console is replaced with the result. The
+ * workers of all filters share one request processor.
+ */
+public final class ConsoleFilter {
+
+    // Lines evaluated by one task when the scrollback is evaluated again
+    private static final int CHUNK_LINES = 1024;
+    // Marks lines which are shown with their own styles
+    private static final Object SHOWN = new Object();
+    private static final RequestProcessor WORKER = new RequestProcessor( ConsoleFilter.class.getName(), 4 );
+
+    private final ConsoleRenderer renderer;
+    // Used under the lock while direct, otherwise by the worker only
+    private final ConsoleBuffer scrollback;
+    private final RequestProcessor.Task task;
+    private ConsoleRenderer.Batch pending = new ConsoleRenderer.Batch();
+    private ConsoleRenderer.Batch working = new ConsoleRenderer.Batch();
+    private List<FilterRule> requestedRules;
+    private boolean clearRequested;
+    // Set while no rules are set or requested and the worker has nothing left to do
+    private boolean direct = true;
+    private boolean disposed;
+    // Owned by the worker
+    private CompiledRules rules = new CompiledRules( Collections.emptyList() );
+
+
+    /**
+     * @param scrollback keeps the unfiltered lines; its limits count against
+     * the ones of the console, see {@link ConsoleBuffer#createDefault(int)}
+     */
+    public ConsoleFilter( ConsoleRenderer renderer, ConsoleBuffer scrollback ) {
+        this.renderer = renderer;
+        this.scrollback = scrollback;
+        this.task = WORKER.create( this::process );
+    }
+
+    public void print( CharSequence text, AttributeSet style ) {
+        boolean schedule;
+        synchronized (this) {
+            if ( disposed ) {
+                return;
+            }
+            if ( direct ) {
+                scrollback.append( text, 0, text.length(), style );
+                renderer.print( text, 0, text.length(), style );
+                return;
+            }
+            schedule = pending.length() == 0;
+            pending.add( text, 0, text.length(), style );
+        }
+        if ( schedule ) {
+            task.schedule(0);
+        }
+    }
+
+    /**
+     * Replaces the rules. The scrollback is evaluated again in the
+     * background.
+     */
+    public void setRules( List<FilterRule> rules ) {
+        synchronized (this) {
+            if ( disposed || (direct && rules.isEmpty()) ) {
+                return;
+            }
+            requestedRules = new ArrayList<>( rules );
+            direct = false;
+        }
+        task.schedule(0);
+    }
+
+    /**
+     * Drops the scrollback and clears the console.
+     */
+    public void clear() {
+        synchronized (this) {
+            if ( disposed ) {
+                return;
+            }
+            if ( direct ) {
+                scrollback.clear();
+                renderer.clear();
+                return;
+            }
+            pending.clear();
+            clearRequested = true;
+        }
+        task.schedule(0);
+    }
+
+    /**
+     * Stops the worker; text printed afterwards is ignored.
+     */
+    public void dispose() {
+        synchronized (this) {
+            disposed = true;
+            direct = false;
+            pending.clear();
+            requestedRules = null;
+            clearRequested = false;
+        }
+        task.cancel();
+    }
+
+    /**
+     * Waits until the worker has processed everything printed so far.
+     */
+    void waitFinished() {
+        // Text printed while the worker runs schedules it again
+        do {
+            task.waitFinished();
+        } while ( !task.isFinished() || hasWork() );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private synchronized boolean hasWork() {
+        return pending.length() > 0 || requestedRules != null || clearRequested;
+    }
+
+    private void process() {
+        ConsoleRenderer.Batch batch;
+        List<FilterRule> newRules;
+        boolean clear;
+        synchronized (this) {
+            if ( disposed ) {
+                return;
+            }
+            batch = pending;
+            pending = working;
+            working = batch;
+            newRules = requestedRules;
+            requestedRules = null;
+            clear = clearRequested;
+            clearRequested = false;
+        }
+        if ( clear ) {
+            scrollback.clear();
+            renderer.clear();
+        }
+        if ( newRules != null ) {
+            rules = new CompiledRules( newRules );
+            reevaluate();
+        }
+        if ( batch.length() > 0 ) {
+            long closedEnd = getClosedLineEnd();
+            batch.appendTo( scrollback );
+            if ( rules.isEmpty() ) {
+                batch.printTo( renderer );
+            } else {
+                // Lines dropped by the same append were never shown anyway
+                long first = Math.max( closedEnd, scrollback.getFirstLineNumber() );
+                long last = getClosedLineEnd();
+                for ( long n = first; n < last; n++ ) {
+                    int index = (int) (n - scrollback.getFirstLineNumber());
+                    emit( index, evaluate( index ) );
+                }
+            }
+            batch.clear();
+        }
+        synchronized (this) {
+            // Everything so far has been passed on, so later text may skip the worker
+            direct = !disposed && rules.isEmpty() && pending.length() == 0 && requestedRules == null && !clearRequested;
+        }
+    }
+
+    private void reevaluate() {
+        renderer.clear();
+        if ( rules.isEmpty() ) {
+            for ( int i=0; i<scrollback.getLineCount(); i++ ) {
+                emit( i, SHOWN );
+            }
+            return;
+        }
+        int count = (int) (getClosedLineEnd() - scrollback.getFirstLineNumber());
+        Object[] results = new Object[count];
+        // The scrollback is not modified until all chunks are done
+        IntStream.range( 0, (count + CHUNK_LINES - 1) / CHUNK_LINES ).parallel().forEach( (chunk) -> {
+            int end = Math.min( count, (chunk + 1) * CHUNK_LINES );
+            for ( int i=chunk * CHUNK_LINES; i<end; i++ ) {
+                results[i] = evaluate( i );
+            }
+        });
+        for ( int i=0; i<count; i++ ) {
+            emit( i, results[i] );
+        }
+    }
+
+    /**
+     * @return null if the line is hidden, {@link #SHOWN} if it is shown as
+     * it is or the {@link Highlights} to show it with
+     */
+    private Object evaluate( int index ) {
+        String text = scrollback.getLineText( index );
+        boolean shown = rules.showOnly.length == 0;
+        for ( FilterRule rule : rules.showOnly ) {
+            if ( rule.matches( text ) ) {
+                shown = true;
+                break;
+            }
+        }
+        if ( !shown ) {
+            return null;
+        }
+        for ( FilterRule rule : rules.hide ) {
+            if ( rule.matches( text ) ) {
+                return null;
+            }
+        }
+        AttributeSet[] charStyles = null;
+        for ( int r=0; r<rules.highlight.length; r++ ) {
+            Matcher matcher = rules.highlight[r].getPattern().matcher( text );
+            while ( matcher.find() ) {
+                if ( matcher.end() == matcher.start() ) {
+                    continue;
+                }
+                if ( charStyles == null ) {
+                    charStyles = getCharStyles( index, text.length() );
+                }
+                Arrays.fill( charStyles, matcher.start(), matcher.end(), rules.highlightStyles[r] );
+            }
+        }
+        return charStyles != null ? new Highlights( charStyles ) : SHOWN;
+    }
+
+    private void emit( int index, Object result ) {
+        if ( result == null ) {
+            return;
+        }
+        String text = scrollback.getLineText( index );
+        AttributeSet lastStyle = null;
+        if ( result == SHOWN ) {
+            int start = 0;
+            for ( int span=0; span<scrollback.getSpanCount(index); span++ ) {
+                int end = scrollback.getSpanEnd( index, span );
+                lastStyle = scrollback.getSpanStyle( index, span );
+                renderer.print( text, start, end, lastStyle );
+                start = end;
+            }
+        } else {
+            AttributeSet[] charStyles = ((Highlights) result).charStyles;
+            int start = 0;
+            for ( int i=1; i<=charStyles.length; i++ ) {
+                if ( i == charStyles.length || charStyles[i] != charStyles[start] ) {
+                    lastStyle = charStyles[start];
+                    renderer.print( text, start, i, lastStyle );
+                    start = i;
+                }
+            }
+        }
+        boolean open = index == scrollback.getLineCount() - 1 && scrollback.hasOpenLine();
+        if ( !open ) {
+            renderer.print( "\n", lastStyle );
+        }
+    }
+
+    private AttributeSet[] getCharStyles( int index, int length ) {
+        AttributeSet[] charStyles = new AttributeSet[length];
+        int start = 0;
+        for ( int span=0; span<scrollback.getSpanCount(index); span++ ) {
+            int end = scrollback.getSpanEnd( index, span );
+            Arrays.fill( charStyles, start, end, scrollback.getSpanStyle( index, span ) );
+            start = end;
+        }
+        return charStyles;
+    }
+
+    // The number after the last terminated line
+    private long getClosedLineEnd() {
+        return scrollback.getFirstLineNumber() + scrollback.getLineCount() - (scrollback.hasOpenLine() ? 1 : 0);
+    }
+
+
+    private static final class CompiledRules {
+
+        private final FilterRule[] showOnly;
+        private final FilterRule[] hide;
+        private final FilterRule[] highlight;
+        private final AttributeSet[] highlightStyles;
+
+        CompiledRules( List<FilterRule> rules ) {
+            showOnly = rules.stream().filter( (r) -> r.getAction() == FilterRule.Action.SHOW_ONLY ).toArray( FilterRule[]::new );
+            hide = rules.stream().filter( (r) -> r.getAction() == FilterRule.Action.HIDE ).toArray( FilterRule[]::new );
+            highlight = rules.stream().filter( (r) -> r.getAction() == FilterRule.Action.HIGHLIGHT ).toArray( FilterRule[]::new );
+            highlightStyles = new AttributeSet[highlight.length];
+            for ( int i=0; i<highlight.length; i++ ) {
+                SimpleAttributeSet style = new SimpleAttributeSet();
+                StyleConstants.setForeground( style, highlight[i].getColor() );
+                StyleConstants.setBold( style, true );
+                highlightStyles[i] = style;
+            }
+        }
+
+        boolean isEmpty() {
+            return showOnly.length == 0 && hide.length == 0 && highlight.length == 0;
+        }
+
+    }
+
+
+    private static final class Highlights {
+
+        private final AttributeSet[] charStyles;
+
+        Highlights( AttributeSet[] charStyles ) {
+            this.charStyles = charStyles;
+        }
+
+    }
+
+}
@@ -0,0 +1,232 @@
+package nbpio.serialmonitor;
+
+import java.util.Arrays;
+import javax.swing.Timer;
+import javax.swing.text.AttributeSet;
+import org.openide.util.NbPreferences;
+
+/**
+ * Paces the updates of a {@link ConsoleBuffer}. Text can be printed from any
+ * thread; it is collected until the next frame and then appended to the
+ * buffer on the EDT in one go, no matter how many chunks arrived in between.
+ * The frame rate is taken from the "console.frameRate" module preference.
+ * <p>
+ * The text waiting for a frame is capped at the byte limit of the buffer,
+ * which would drop anything beyond it anyway, so that a stopped renderer or
+ * a busy EDT does not let it grow while the port is still read. The oldest
+ * text is dropped and counted in the statistics.
+ */
+public final class ConsoleRenderer {
+
+    public static final String FRAME_RATE_KEY = "console.frameRate";
+    public static final int DEFAULT_FRAME_RATE = 30;
+    private static final int MIN_FRAME_RATE = 1;
+    private static final int MAX_FRAME_RATE = 120;
+
+    private final ConsoleBuffer buffer;
+    private final Runnable afterFlush;
+    private final Timer timer;
+    // In characters, each of which takes two bytes in the buffer
+    private final int maxPendingLength;
+    // Text printed since the last frame, in runs of the same style; swapped
+    // with the flushed batch so that neither has to be reallocated
+    private Batch pending = new Batch();
+    private Batch flushing = new Batch();
+    // When the first text waiting for the next frame was printed
+    private long pendingSinceNanos;
+    private volatile SerialStatistics statistics;
+
+
+    /**
+     * @param afterFlush called on the EDT after text has been appended, e.g.
+     * to scroll to the end of the console
+     */
+    public ConsoleRenderer( ConsoleBuffer buffer, Runnable afterFlush ) {
+        this( buffer, afterFlush, NbPreferences.forModule( ConsoleRenderer.class ).getInt( FRAME_RATE_KEY, DEFAULT_FRAME_RATE ) );
+    }
+
+    public ConsoleRenderer( ConsoleBuffer buffer, Runnable afterFlush, int frameRate ) {
+        this.buffer = buffer;
+        this.afterFlush = afterFlush;
+        this.timer = new Timer( getFrameDelay( frameRate ), (e) -> flush() );
+        this.timer.setCoalesce( true );
+        long maxBytes = buffer.getMaxBytes();
+        this.maxPendingLength = maxBytes > 0 ? (int) Math.min( Integer.MAX_VALUE / 2, maxBytes / 2 ) : 0;
+    }
+
+    /**
+     * Reports every frame and the text dropped to the statistics, or to
+     * nobody if null.
+     */
+    public void setStatistics( SerialStatistics statistics ) {
+        this.statistics = statistics;
+    }
+
+    public void start() {
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    /**
+     * Queues text for the next frame. The text is copied, so a reused buffer
+     * can be passed.
+     */
+    public void print( CharSequence text, AttributeSet style ) {
+        print( text, 0, text.length(), style );
+    }
+
+    /**
+     * Queues the characters between start (inclusive) and end (exclusive).
+     */
+    public void print( CharSequence text, int start, int end, AttributeSet style ) {
+        int dropped = 0;
+        synchronized (this) {
+            if ( pending.length() == 0 ) {
+                pendingSinceNanos = System.nanoTime();
+            }
+            pending.add( text, start, end, style );
+            // Cut back only once a quarter more has piled up, so that a full
+            // batch is not shifted for every chunk
+            if ( maxPendingLength > 0 && pending.length() > maxPendingLength + maxPendingLength / 4 ) {
+                dropped = pending.length() - maxPendingLength;
+                pending.dropFirst( dropped );
+            }
+        }
+        SerialStatistics dropStatistics = statistics;
+        if ( dropped > 0 && dropStatistics != null ) {
+            dropStatistics.addDropped( dropped );
+        }
+    }
+
+    /**
+     * Drops the queued text and clears the buffer with the next frame, before
+     * the text printed from now on is appended.
+     */
+    public void clear() {
+        synchronized (this) {
+            pending.clear();
+            pending.clearBuffer = true;
+        }
+    }
+
+    /**
+     * Appends the queued text to the buffer. Must be called on the EDT.
+     */
+    public void flush() {
+        Batch batch;
+        long since;
+        long start = System.nanoTime();
+        synchronized (this) {
+            if ( pending.length() == 0 && !pending.clearBuffer ) {
+                return;
+            }
+            batch = pending;
+            pending = flushing;
+            flushing = batch;
+            since = batch.length() > 0 ? pendingSinceNanos : start;
+        }
+        int length = batch.length();
+        if ( batch.clearBuffer ) {
+            buffer.clear();
+        }
+        batch.appendTo( buffer );
+        batch.clear();
+        if ( afterFlush != null ) {
+            afterFlush.run();
+        }
+        SerialStatistics frameStatistics = statistics;
+        if ( frameStatistics != null ) {
+            long end = System.nanoTime();
+            frameStatistics.addFrame( length, end - since, end - start );
+        }
+    }
+
+    /**
+     * Returns the delay between two frames in milliseconds, for a frame rate
+     * clamped to the supported range.
+     */
+    static int getFrameDelay( int frameRate ) {
+        return 1000 / Math.max( MIN_FRAME_RATE, Math.min( MAX_FRAME_RATE, frameRate ) );
+    }
+
+
+    /**
+     * Styled text collected in runs of the same style.
+     */
+    static final class Batch {
+
+        private final StringBuilder text = new StringBuilder();
+        private int[] runEnds = new int[8];
+        private AttributeSet[] runStyles = new AttributeSet[8];
+        private int runCount;
+        private boolean clearBuffer;
+
+        int length() {
+            return text.length();
+        }
+
+        void add( CharSequence chars, int start, int end, AttributeSet style ) {
+            if ( start >= end ) {
+                return;
+            }
+            text.append( chars, start, end );
+            if ( runCount > 0 && runStyles[runCount - 1] == style ) {
+                runEnds[runCount - 1] = text.length();
+                return;
+            }
+            if ( runCount == runEnds.length ) {
+                runEnds = Arrays.copyOf( runEnds, runCount * 2 );
+                runStyles = Arrays.copyOf( runStyles, runCount * 2 );
+            }
+            runEnds[runCount] = text.length();
+            runStyles[runCount] = style;
+            runCount++;
+        }
+
+        /**
+         * Drops the first characters, with the runs which end among them.
+         */
+        void dropFirst( int count ) {
+            text.delete( 0, count );
+            int dropped = 0;
+            while ( dropped < runCount && runEnds[dropped] <= count ) {
+                dropped++;
+            }
+            System.arraycopy( runEnds, dropped, runEnds, 0, runCount - dropped );
+            System.arraycopy( runStyles, dropped, runStyles, 0, runCount - dropped );
+            Arrays.fill( runStyles, runCount - dropped, runCount, null );
+            runCount -= dropped;
+            for ( int i=0; i<runCount; i++ ) {
+                runEnds[i] -= count;
+            }
+        }
+
+        void appendTo( ConsoleBuffer buffer ) {
+            int start = 0;
+            for ( int i=0; i<runCount; i++ ) {
+                buffer.append( text, start, runEnds[i], runStyles[i] );
+                start = runEnds[i];
+            }
+        }
+
+        void printTo( ConsoleRenderer renderer ) {
+            int start = 0;
+            for ( int i=0; i<runCount; i++ ) {
+                renderer.print( text, start, runEnds[i], runStyles[i] );
+                start = runEnds[i];
+            }
+        }
+
+        void clear() {
+            text.setLength(0);
+            Arrays.fill( runStyles, 0, runCount, null );
+            runCount = 0;
+            clearBuffer = false;
+        }
+
+    }
+
+}
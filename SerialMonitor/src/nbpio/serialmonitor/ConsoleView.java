@@ -0,0 +1,244 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.UIManager;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+
+/**
+ * Read-only view of a {@link ConsoleBuffer}. Only the lines intersecting the
+ * visible area are painted, so the cost of a repaint does not depend on the
+ * size of the scrollback. Whole lines can be selected with the mouse and
+ * copied to the clipboard.
+ */
+public class ConsoleView extends JComponent implements Scrollable {
+
+    private static final int TEXT_INSET = 2;
+
+    private final ConsoleBuffer buffer;
+    private Font boldFont;
+    private int lineHeight;
+    private int ascent;
+    private int charWidth;
+    private long firstLineNumber;
+    // Selected lines by line number, so that the selection survives dropped lines
+    private long selectionAnchor = -1;
+    private long selectionLead = -1;
+
+
+    public ConsoleView( ConsoleBuffer buffer ) {
+        this.buffer = buffer;
+        setFont( new Font( Font.MONOSPACED, Font.PLAIN, UIManager.getFont("TextPane.font") != null ? UIManager.getFont("TextPane.font").getSize() : 12 ) );
+        setOpaque( true );
+        setFocusable( true );
+        buffer.addChangeListener( (e) -> bufferChanged() );
+
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed( MouseEvent e ) {
+                requestFocusInWindow();
+                long line = getLineNumberAt( e.getY() );
+                if ( !e.isShiftDown() || selectionAnchor < 0 ) {
+                    selectionAnchor = line;
+                }
+                selectionLead = line;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged( MouseEvent e ) {
+                selectionLead = getLineNumberAt( e.getY() );
+                scrollRectToVisible( new Rectangle( 0, e.getY(), 1, 1 ) );
+                repaint();
+            }
+        };
+        addMouseListener( mouseHandler );
+        addMouseMotionListener( mouseHandler );
+
+        int menuShortcut = GraphicsEnvironment.isHeadless() ? InputEvent.CTRL_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+        getInputMap().put( KeyStroke.getKeyStroke( KeyEvent.VK_C, menuShortcut ), "copy" );
+        getInputMap().put( KeyStroke.getKeyStroke( KeyEvent.VK_A, menuShortcut ), "selectAll" );
+        getActionMap().put( "copy", new AbstractAction() {
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                copySelection();
+            }
+        });
+        getActionMap().put( "selectAll", new AbstractAction() {
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                selectAll();
+            }
+        });
+    }
+
+    public ConsoleBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void setFont( Font font ) {
+        super.setFont( font );
+        boldFont = font.deriveFont( Font.BOLD );
+        FontMetrics metrics = getFontMetrics( font );
+        lineHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        charWidth = metrics.charWidth('m');
+        revalidate();
+        repaint();
+    }
+
+    public void selectAll() {
+        selectionAnchor = buffer.getFirstLineNumber();
+        selectionLead = buffer.getFirstLineNumber() + buffer.getLineCount() - 1;
+        repaint();
+    }
+
+    public String getSelectedText() {
+        if ( selectionAnchor < 0 ) {
+            return null;
+        }
+        int first = (int) Math.max( 0, Math.min( selectionAnchor, selectionLead ) - buffer.getFirstLineNumber() );
+        int last = (int) Math.min( buffer.getLineCount() - 1, Math.max( selectionAnchor, selectionLead ) - buffer.getFirstLineNumber() );
+        if ( first > last ) {
+            return null;
+        }
+        StringBuilder b = new StringBuilder();
+        for ( int i=first; i<=last; i++ ) {
+            b.append( buffer.getLineText(i) );
+            if ( i < last ) {
+                b.append('\n');
+            }
+        }
+        return b.toString();
+    }
+
+    public void copySelection() {
+        String text = getSelectedText();
+        if ( text != null ) {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents( new StringSelection(text), null );
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(
+            2 * TEXT_INSET + buffer.getMaxLineLength() * charWidth,
+            2 * TEXT_INSET + buffer.getLineCount() * lineHeight
+        );
+    }
+
+    @Override
+    protected void paintComponent( Graphics g ) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor( getBackground() );
+        g.fillRect( clip.x, clip.y, clip.width, clip.height );
+
+        int lineCount = buffer.getLineCount();
+        int first = Math.max( 0, (clip.y - TEXT_INSET) / lineHeight );
+        int last = Math.min( lineCount - 1, (clip.y + clip.height - TEXT_INSET) / lineHeight );
+        long selectionStart = Math.min( selectionAnchor, selectionLead ) - buffer.getFirstLineNumber();
+        long selectionEnd = Math.max( selectionAnchor, selectionLead ) - buffer.getFirstLineNumber();
+        Color selectionColor = UIManager.getColor("TextPane.selectionBackground");
+
+        for ( int i=first; i<=last; i++ ) {
+            int y = TEXT_INSET + i * lineHeight;
+            if ( selectionAnchor >= 0 && i >= selectionStart && i <= selectionEnd ) {
+                g.setColor( selectionColor != null ? selectionColor : Color.DARK_GRAY );
+                g.fillRect( clip.x, y, clip.width, lineHeight );
+            }
+            paintLine( g, i, y + ascent );
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement( Rectangle visibleRect, int orientation, int direction ) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight : charWidth;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement( Rectangle visibleRect, int orientation, int direction ) {
+        return orientation == SwingConstants.VERTICAL ? Math.max( lineHeight, visibleRect.height - lineHeight ) : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void paintLine( Graphics g, int index, int baseline ) {
+        String text = buffer.getLineText( index );
+        int x = TEXT_INSET;
+        int start = 0;
+        for ( int span=0; span<buffer.getSpanCount(index); span++ ) {
+            int end = buffer.getSpanEnd( index, span );
+            AttributeSet style = buffer.getSpanStyle( index, span );
+            g.setColor( style != null ? StyleConstants.getForeground(style) : getForeground() );
+            g.setFont( style != null && StyleConstants.isBold(style) ? boldFont : getFont() );
+            g.drawString( text.substring( start, end ), x, baseline );
+            x += (end - start) * charWidth;
+            start = end;
+        }
+    }
+
+    private long getLineNumberAt( int y ) {
+        int index = Math.max( 0, Math.min( buffer.getLineCount() - 1, (y - TEXT_INSET) / lineHeight ) );
+        return buffer.getFirstLineNumber() + index;
+    }
+
+    private void bufferChanged() {
+        long droppedLines = buffer.getFirstLineNumber() - firstLineNumber;
+        firstLineNumber = buffer.getFirstLineNumber();
+        if ( buffer.getLineCount() == 0 ) {
+            selectionAnchor = -1;
+            selectionLead = -1;
+        }
+        // Keep the lines the user is looking at in place when older lines are
+        // dropped, unless the end of the console is being followed
+        if ( droppedLines > 0 && getParent() instanceof JViewport ) {
+            JViewport viewport = (JViewport) getParent();
+            Point position = viewport.getViewPosition();
+            if ( position.y > 0 && viewport.getViewRect().getMaxY() < getHeight() ) {
+                position.y = (int) Math.max( 0, position.y - droppedLines * lineHeight );
+                viewport.setViewPosition( position );
+            }
+        }
+        revalidate();
+        repaint();
+    }
+
+}
@@ -1,16 +1,10 @@
 package nbpio.serialmonitor;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Enumeration;
-import java.util.List;
-import purejavacomm.CommPortIdentifier;
 import purejavacomm.SerialPort;
 
 public class DefaultSerialMonitorConfigModel implements SerialMonitorConfigModel {
     
-    private static final String PORT_OWNER_NAME = DefaultSerialMonitorConfigModel.class.getName();
-    
     private String portName;
     private String baudRate;
     private String flowControl;
@@ -22,28 +16,13 @@ public class DefaultSerialMonitorConfigModel implements SerialMonitorConfigModel
         // empty constructor
     }
             
+    /**
+     * Returns the ports known to the {@link SerialPortRegistry}, without
+     * probing them.
+     */
     @Override
     public String[] getAvailablePortNames() {
-        Enumeration e = CommPortIdentifier.getPortIdentifiers();
-        
-        List <String> portNames = new ArrayList<>();
-        while (e.hasMoreElements()) {
-            CommPortIdentifier portid = (CommPortIdentifier) e.nextElement();
-            SerialPort port = null;
-            try {
-                port = (SerialPort) portid.open(PORT_OWNER_NAME, 10);
-                portNames.add( port.getName() );
-            } catch (Exception ex) {
-                // ignore
-            } finally {
-                if ( port != null ) {
-                    port.close();
-                    port = null;
-                }
-            }
-        }
-        
-        return portNames.toArray( new String[portNames.size()] );
+        return SerialPortRegistry.getDefault().getPortNames();
     }
 
     @Override
@@ -103,7 +82,11 @@ public class DefaultSerialMonitorConfigModel implements SerialMonitorConfigModel
 
     @Override
     public String getCurrentPortName() {
-        return portName != null ? portName : getAvailablePortNames()[0];
+        if ( portName != null ) {
+            return portName;
+        }
+        String[] portNames = getAvailablePortNames();
+        return portNames.length > 0 ? portNames[0] : null;
     }
 
     @Override
@@ -0,0 +1,156 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A regular expression applied to every line of the serial monitor console.
+ * A line is shown if it matches any {@link Action#SHOW_ONLY} rule (or there
+ * is none) and no {@link Action#HIDE} rule; {@link Action#HIGHLIGHT} rules
+ * paint what they match in their color.
+ */
+public final class FilterRule {
+
+    public enum Action {
+        SHOW_ONLY, HIDE, HIGHLIGHT
+    }
+
+    private final Action action;
+    private final Pattern pattern;
+    private final Color color;
+
+    private FilterRule( Builder b ) {
+        this.action = b.action;
+        this.pattern = b.pattern;
+        this.color = b.color;
+    }
+
+    public Action getAction() {
+        return action;
+    }
+
+    public Pattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @return the highlight color, null for rules which do not highlight
+     */
+    public Color getColor() {
+        return color;
+    }
+
+    public boolean matches( CharSequence line ) {
+        return pattern.matcher( line ).find();
+    }
+
+    /**
+     * Formats the rules one per line, to be read back with
+     * {@link #parseList(java.lang.String)}.
+     */
+    public static String formatList( List<FilterRule> rules ) {
+        StringBuilder b = new StringBuilder();
+        for ( FilterRule rule : rules ) {
+            b.append( rule.action.name() ).append('\t');
+            b.append( rule.color != null ? String.format( "#%06X", rule.color.getRGB() & 0xFFFFFF ) : "-" ).append('\t');
+            b.append( rule.pattern.pattern() ).append('\n');
+        }
+        return b.toString();
+    }
+
+    /**
+     * Reads rules written by {@link #formatList(java.util.List)}, skipping
+     * the lines which cannot be read.
+     */
+    public static List<FilterRule> parseList( String text ) {
+        List<FilterRule> rules = new ArrayList<>();
+        for ( String line : text.split("\n") ) {
+            String[] fields = line.split( "\t", 3 );
+            if ( fields.length < 3 ) {
+                continue;
+            }
+            try {
+                rules.add( new Builder()
+                    .action( Action.valueOf( fields[0] ) )
+                    .color( fields[1].equals("-") ? null : Color.decode( fields[1] ) )
+                    .pattern( fields[2] )
+                    .build()
+                );
+            } catch (IllegalArgumentException ex) {
+                // ignore, PatternSyntaxException and NumberFormatException included
+            }
+        }
+        return rules;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 7;
+        hash = 53 * hash + Objects.hashCode(this.action);
+        hash = 53 * hash + Objects.hashCode(this.pattern.pattern());
+        hash = 53 * hash + this.pattern.flags();
+        hash = 53 * hash + Objects.hashCode(this.color);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        final FilterRule other = (FilterRule) obj;
+        return this.action == other.action
+            && this.pattern.pattern().equals( other.pattern.pattern() )
+            && this.pattern.flags() == other.pattern.flags()
+            && Objects.equals( this.color, other.color );
+    }
+
+    @Override
+    public String toString() {
+        return action + " /" + pattern.pattern() + "/";
+    }
+
+
+
+    public static class Builder {
+        private Action action = Action.HIGHLIGHT;
+        private Pattern pattern;
+        private Color color;
+
+        public Builder() {}
+
+        public Builder action( Action action ) {
+            this.action = action;
+            return this;
+        }
+
+        public Builder pattern( String regex ) throws PatternSyntaxException {
+            this.pattern = Pattern.compile( regex );
+            return this;
+        }
+
+        public Builder pattern( Pattern pattern ) {
+            this.pattern = pattern;
+            return this;
+        }
+
+        public Builder color( Color color ) {
+            this.color = color;
+            return this;
+        }
+
+        public FilterRule build() {
+            if ( action == null || pattern == null ) throw new IllegalArgumentException("A rule needs an action and a pattern!");
+            if ( action == Action.HIGHLIGHT && color == null ) throw new IllegalArgumentException("A highlight rule needs a color!");
+            return new FilterRule(this);
+        }
+
+    }
+}
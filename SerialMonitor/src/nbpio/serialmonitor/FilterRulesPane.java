@@ -0,0 +1,198 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.PatternSyntaxException;
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.BoxLayout;
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.Icon;
+import javax.swing.JButton;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import org.openide.util.NbBundle;
+
+/**
+ * Edits the {@link FilterRule}s of the serial monitor console: a rule is
+ * added from an action, a regular expression and a highlight color, and the
+ * rules added can be picked from a list and removed.
+ */
+public class FilterRulesPane extends JPanel {
+
+    private static final Color[] HIGHLIGHT_COLORS = {
+        Color.YELLOW, Color.ORANGE, Color.RED, Color.MAGENTA, Color.CYAN, Color.WHITE
+    };
+
+    private final Consumer<List<FilterRule>> rulesHandler;
+    private final DefaultComboBoxModel<FilterRule> rulesModel = new DefaultComboBoxModel<>();
+    private JComboBox<FilterRule.Action> actionBox;
+    private JComboBox<Color> colorBox;
+    private JTextField patternField;
+
+
+    /**
+     * @param rulesHandler called with all rules whenever a rule is added or
+     * removed
+     */
+    public FilterRulesPane( List<FilterRule> rules, Consumer<List<FilterRule>> rulesHandler ) {
+        this.rulesHandler = rulesHandler;
+        rules.forEach( rulesModel::addElement );
+        initComponents();
+    }
+
+    public List<FilterRule> getRules() {
+        List<FilterRule> rules = new ArrayList<>();
+        for ( int i=0; i<rulesModel.getSize(); i++ ) {
+            rules.add( rulesModel.getElementAt(i) );
+        }
+        return rules;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void initComponents() {
+        actionBox = new JComboBox<>( FilterRule.Action.values() );
+        actionBox.setRenderer( new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent( JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus ) {
+                super.getListCellRendererComponent( list, value, index, isSelected, cellHasFocus );
+                setText( getActionName( (FilterRule.Action) value ) );
+                return this;
+            }
+        });
+        actionBox.addActionListener( (e) -> colorBox.setEnabled( actionBox.getSelectedItem() == FilterRule.Action.HIGHLIGHT ) );
+        actionBox.setMaximumSize( actionBox.getPreferredSize() );
+
+        patternField = new JTextField(25);
+        patternField.addActionListener( (e) -> addRule() );
+        patternField.setMaximumSize( patternField.getPreferredSize() );
+
+        colorBox = new JComboBox<>( HIGHLIGHT_COLORS );
+        colorBox.setRenderer( new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent( JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus ) {
+                super.getListCellRendererComponent( list, value, index, isSelected, cellHasFocus );
+                setText( null );
+                setIcon( new ColorIcon( (Color) value ) );
+                return this;
+            }
+        });
+        colorBox.setMaximumSize( colorBox.getPreferredSize() );
+        actionBox.setSelectedItem( FilterRule.Action.HIGHLIGHT );
+
+        JButton addButton = new JButton( getLocalizedText("addButton.text") );
+        addButton.addActionListener( (e) -> addRule() );
+
+        JComboBox<FilterRule> rulesBox = new JComboBox<>( rulesModel );
+        rulesBox.setPrototypeDisplayValue( new FilterRule.Builder().action( FilterRule.Action.SHOW_ONLY ).pattern( "xxxxxxxxxxxxxxxxxxxxxxxxx" ).build() );
+        rulesBox.setRenderer( new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent( JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus ) {
+                super.getListCellRendererComponent( list, value, index, isSelected, cellHasFocus );
+                FilterRule rule = (FilterRule) value;
+                setText( rule != null ? getActionName( rule.getAction() ) + ": " + rule.getPattern().pattern() : null );
+                setIcon( rule != null && rule.getColor() != null ? new ColorIcon( rule.getColor() ) : null );
+                return this;
+            }
+        });
+        rulesBox.setMaximumSize( rulesBox.getPreferredSize() );
+
+        JButton removeButton = new JButton( getLocalizedText("removeButton.text") );
+        removeButton.addActionListener( (e) -> {
+            Object rule = rulesModel.getSelectedItem();
+            if ( rule != null ) {
+                rulesModel.removeElement( rule );
+                rulesHandler.accept( getRules() );
+            }
+        });
+
+        setLayout( new BoxLayout( this, BoxLayout.LINE_AXIS ) );
+        add( actionBox );
+        add( Box.createRigidArea( new Dimension(5, 0) ) );
+        add( patternField );
+        add( Box.createRigidArea( new Dimension(5, 0) ) );
+        add( colorBox );
+        add( Box.createRigidArea( new Dimension(5, 0) ) );
+        add( addButton );
+        add( Box.createGlue() );
+        add( new JLabel( getLocalizedText("rulesLabel.text") ) );
+        add( Box.createRigidArea( new Dimension(5, 0) ) );
+        add( rulesBox );
+        add( Box.createRigidArea( new Dimension(5, 0) ) );
+        add( removeButton );
+        setBorder( BorderFactory.createEmptyBorder(0, 3, 3, 0) );
+    }
+
+    private void addRule() {
+        FilterRule.Action action = (FilterRule.Action) actionBox.getSelectedItem();
+        try {
+            FilterRule rule = new FilterRule.Builder()
+                .action( action )
+                .pattern( patternField.getText() )
+                .color( action == FilterRule.Action.HIGHLIGHT ? (Color) colorBox.getSelectedItem() : null )
+                .build();
+            patternField.setForeground( null );
+            patternField.setToolTipText( null );
+            if ( patternField.getText().isEmpty() || rulesModel.getIndexOf( rule ) >= 0 ) {
+                return;
+            }
+            patternField.setText("");
+            rulesModel.addElement( rule );
+            rulesModel.setSelectedItem( rule );
+            rulesHandler.accept( getRules() );
+        } catch (PatternSyntaxException ex) {
+            patternField.setForeground( Color.RED );
+            patternField.setToolTipText( ex.getDescription() );
+        }
+    }
+
+    private static String getActionName( FilterRule.Action action ) {
+        return action != null ? getLocalizedText( "action." + action.name() ) : null;
+    }
+
+    private static String getLocalizedText( String id ) {
+        return NbBundle.getMessage(FilterRulesPane.class, "FilterRulesPane." + id ); // NOI18N
+    }
+
+
+    private static final class ColorIcon implements Icon {
+
+        private final Color color;
+
+        ColorIcon( Color color ) {
+            this.color = color;
+        }
+
+        @Override
+        public void paintIcon( Component c, Graphics g, int x, int y ) {
+            g.setColor( color );
+            g.fillRect( x, y, getIconWidth(), getIconHeight() );
+            g.setColor( Color.DARK_GRAY );
+            g.drawRect( x, y, getIconWidth() - 1, getIconHeight() - 1 );
+        }
+
+        @Override
+        public int getIconWidth() {
+            return 12;
+        }
+
+        @Override
+        public int getIconHeight() {
+            return 12;
+        }
+
+    }
+
+}
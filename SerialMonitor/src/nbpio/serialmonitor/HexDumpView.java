@@ -0,0 +1,331 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import javax.swing.AbstractAction;
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import org.openide.util.NbPreferences;
+
+/**
+ * Hex dump of a {@link ByteStore} with an offset, a hex and an ASCII column.
+ * Only the rows intersecting the visible area are formatted and painted,
+ * into buffers which are reused, so scrolling costs the same whatever the
+ * amount of traffic held. The view picks up new bytes once per frame while
+ * it is showing and follows the end if it was scrolled there.
+ */
+public class HexDumpView extends JComponent implements Scrollable {
+
+    public static final int BYTES_PER_ROW = 16;
+
+    private static final int TEXT_INSET = 2;
+    private static final int MIN_OFFSET_DIGITS = 8;
+    // Copying is limited to a reasonable amount of text
+    private static final int MAX_COPY_ROWS = 65536;
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private final ByteStore store;
+    private final Timer timer;
+    private final byte[] rowBytes = new byte[BYTES_PER_ROW];
+    private final char[] rowChars = new char[getRowLength( 16 )];
+    private int lineHeight;
+    private int ascent;
+    private int charWidth;
+    // The range of the store shown, updated once per frame
+    private long startOffset;
+    private long endOffset;
+    private int offsetDigits = MIN_OFFSET_DIGITS;
+    // Selected rows by the offset of their first byte
+    private long selectionAnchor = -1;
+    private long selectionLead = -1;
+
+
+    public HexDumpView( ByteStore store ) {
+        this.store = store;
+        setFont( new Font( Font.MONOSPACED, Font.PLAIN, UIManager.getFont("TextPane.font") != null ? UIManager.getFont("TextPane.font").getSize() : 12 ) );
+        setOpaque( true );
+        setFocusable( true );
+        int frameRate = NbPreferences.forModule( ConsoleRenderer.class ).getInt( ConsoleRenderer.FRAME_RATE_KEY, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        timer = new Timer( ConsoleRenderer.getFrameDelay( frameRate ), (e) -> {
+            if ( isShowing() ) {
+                refresh();
+            }
+        });
+        timer.setCoalesce( true );
+
+        MouseAdapter mouseHandler = new MouseAdapter() {
+            @Override
+            public void mousePressed( MouseEvent e ) {
+                requestFocusInWindow();
+                long row = getRowOffsetAt( e.getY() );
+                if ( !e.isShiftDown() || selectionAnchor < 0 ) {
+                    selectionAnchor = row;
+                }
+                selectionLead = row;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged( MouseEvent e ) {
+                selectionLead = getRowOffsetAt( e.getY() );
+                scrollRectToVisible( new Rectangle( 0, e.getY(), 1, 1 ) );
+                repaint();
+            }
+        };
+        addMouseListener( mouseHandler );
+        addMouseMotionListener( mouseHandler );
+
+        int menuShortcut = GraphicsEnvironment.isHeadless() ? InputEvent.CTRL_MASK : Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+        getInputMap().put( KeyStroke.getKeyStroke( KeyEvent.VK_C, menuShortcut ), "copy" );
+        getInputMap().put( KeyStroke.getKeyStroke( KeyEvent.VK_A, menuShortcut ), "selectAll" );
+        getActionMap().put( "copy", new AbstractAction() {
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                copySelection();
+            }
+        });
+        getActionMap().put( "selectAll", new AbstractAction() {
+            @Override
+            public void actionPerformed( ActionEvent e ) {
+                selectAll();
+            }
+        });
+    }
+
+    public ByteStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refresh();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    @Override
+    public void setFont( Font font ) {
+        super.setFont( font );
+        FontMetrics metrics = getFontMetrics( font );
+        lineHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        charWidth = metrics.charWidth('m');
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Picks up the bytes appended to and dropped from the store since the
+     * last refresh. Called once per frame while the view is showing.
+     */
+    public void refresh() {
+        long start = store.getStartOffset();
+        long end = store.getEndOffset();
+        if ( start == startOffset && end == endOffset ) {
+            return;
+        }
+        JViewport viewport = getParent() instanceof JViewport ? (JViewport) getParent() : null;
+        boolean following = viewport != null && viewport.getViewRect().getMaxY() >= getHeight();
+        long droppedRows = (start - startOffset) / BYTES_PER_ROW;
+        if ( start < startOffset || end == start ) {
+            // cleared
+            droppedRows = 0;
+            selectionAnchor = -1;
+            selectionLead = -1;
+        }
+        startOffset = start;
+        endOffset = end;
+        offsetDigits = Math.max( MIN_OFFSET_DIGITS, (64 - Long.numberOfLeadingZeros( end ) + 3) / 4 );
+        revalidate();
+        if ( viewport != null ) {
+            // Lays out the new size right away, so that the view moves once per frame
+            viewport.getParent().validate();
+            Point position = viewport.getViewPosition();
+            if ( following ) {
+                position.y = Math.max( 0, getHeight() - viewport.getExtentSize().height );
+                viewport.setViewPosition( position );
+            } else if ( droppedRows > 0 && position.y > 0 ) {
+                // Keeps the rows the user is looking at in place
+                position.y = (int) Math.max( 0, position.y - droppedRows * lineHeight );
+                viewport.setViewPosition( position );
+            }
+        }
+        repaint();
+    }
+
+    public void selectAll() {
+        if ( endOffset > startOffset ) {
+            selectionAnchor = startOffset;
+            selectionLead = getRowOffset( getRowCount() - 1 );
+            repaint();
+        }
+    }
+
+    /**
+     * Returns the dump of the selected rows, at most
+     * {@value #MAX_COPY_ROWS} of them.
+     */
+    public String getSelectedText() {
+        if ( selectionAnchor < 0 ) {
+            return null;
+        }
+        long first = Math.max( startOffset, Math.min( selectionAnchor, selectionLead ) );
+        long last = Math.min( endOffset - 1, Math.max( selectionAnchor, selectionLead ) );
+        if ( first > last ) {
+            return null;
+        }
+        last = Math.min( last, first + (long) (MAX_COPY_ROWS - 1) * BYTES_PER_ROW );
+        StringBuilder b = new StringBuilder();
+        for ( long row = first; row <= last; row += BYTES_PER_ROW ) {
+            int length = formatRow( row );
+            b.append( rowChars, 0, length ).append('\n');
+        }
+        return b.toString();
+    }
+
+    public void copySelection() {
+        String text = getSelectedText();
+        if ( text != null ) {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents( new StringSelection(text), null );
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        long height = 2L * TEXT_INSET + (long) getRowCount() * lineHeight;
+        return new Dimension(
+            2 * TEXT_INSET + getRowLength( offsetDigits ) * charWidth,
+            (int) Math.min( Integer.MAX_VALUE, height )
+        );
+    }
+
+    @Override
+    protected void paintComponent( Graphics g ) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor( getBackground() );
+        g.fillRect( clip.x, clip.y, clip.width, clip.height );
+
+        int first = Math.max( 0, (clip.y - TEXT_INSET) / lineHeight );
+        int last = Math.min( getRowCount() - 1, (clip.y + clip.height - TEXT_INSET) / lineHeight );
+        long selectionStart = Math.min( selectionAnchor, selectionLead );
+        long selectionEnd = Math.max( selectionAnchor, selectionLead );
+        Color selectionColor = UIManager.getColor("TextPane.selectionBackground");
+        int hexStart = offsetDigits + 2;
+
+        for ( int i=first; i<=last; i++ ) {
+            long row = getRowOffset( i );
+            int y = TEXT_INSET + i * lineHeight;
+            if ( selectionAnchor >= 0 && row >= selectionStart && row <= selectionEnd ) {
+                g.setColor( selectionColor != null ? selectionColor : Color.DARK_GRAY );
+                g.fillRect( clip.x, y, clip.width, lineHeight );
+            }
+            int length = formatRow( row );
+            g.setColor( Color.GRAY );
+            g.drawChars( rowChars, 0, offsetDigits, TEXT_INSET, y + ascent );
+            g.setColor( getForeground() );
+            g.drawChars( rowChars, hexStart, length - hexStart, TEXT_INSET + hexStart * charWidth, y + ascent );
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement( Rectangle visibleRect, int orientation, int direction ) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight : charWidth;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement( Rectangle visibleRect, int orientation, int direction ) {
+        return orientation == SwingConstants.VERTICAL ? Math.max( lineHeight, visibleRect.height - lineHeight ) : visibleRect.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private static int getRowLength( int offsetDigits ) {
+        // offset, two spaces, 16 hex pairs with a gap after the eighth, a space and the ASCII column
+        return offsetDigits + 2 + BYTES_PER_ROW * 3 + 1 + 1 + BYTES_PER_ROW;
+    }
+
+    private int getRowCount() {
+        return (int) Math.min( Integer.MAX_VALUE, (endOffset - startOffset + BYTES_PER_ROW - 1) / BYTES_PER_ROW );
+    }
+
+    private long getRowOffset( int index ) {
+        return startOffset + (long) index * BYTES_PER_ROW;
+    }
+
+    private long getRowOffsetAt( int y ) {
+        int index = Math.max( 0, Math.min( getRowCount() - 1, (y - TEXT_INSET) / lineHeight ) );
+        return getRowOffset( index );
+    }
+
+    /**
+     * Formats the row starting at the given offset into the row buffer.
+     * Bytes which have been dropped in the meantime are left blank.
+     *
+     * @return the length of the row
+     */
+    private int formatRow( long row ) {
+        int count = (int) Math.min( BYTES_PER_ROW, endOffset - row );
+        long storeStart = store.getStartOffset();
+        int skipped = (int) Math.max( 0, Math.min( count, storeStart - row ) );
+        store.read( row, rowBytes, 0, count );
+
+        int length = getRowLength( offsetDigits );
+        Arrays.fill( rowChars, 0, length, ' ' );
+        for ( int i=offsetDigits-1; i>=0; i-- ) {
+            rowChars[i] = HEX_DIGITS[(int) ((row >>> (4 * (offsetDigits - 1 - i))) & 0xF)];
+        }
+        int hexStart = offsetDigits + 2;
+        int asciiStart = hexStart + BYTES_PER_ROW * 3 + 2;
+        for ( int i=skipped; i<count; i++ ) {
+            int value = rowBytes[i] & 0xFF;
+            int hex = hexStart + i * 3 + (i >= BYTES_PER_ROW / 2 ? 1 : 0);
+            rowChars[hex] = HEX_DIGITS[value >>> 4];
+            rowChars[hex + 1] = HEX_DIGITS[value & 0xF];
+            rowChars[asciiStart + i] = value >= 0x20 && value < 0x7F ? (char) value : '.';
+        }
+        return count < BYTES_PER_ROW ? asciiStart + count : length;
+    }
+
+}
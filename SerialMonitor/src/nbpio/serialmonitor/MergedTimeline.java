@@ -0,0 +1,168 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.nio.CharBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.PriorityQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+
+/**
+ * Merges the lines received from several ports into one console, in the
+ * order in which they started to arrive. Every line is stamped with the
+ * same monotonic clock on arrival and prefixed with the wall clock time and
+ * the name of its port. Since the ports are read by different threads, lines
+ * are held back for a short reordering window before they are printed, so
+ * that a line which was stamped earlier but handed over later still gets
+ * its place. Lines are only collected while the timeline is started.
+ */
+public final class MergedTimeline {
+
+    private static final long REORDER_WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+    private static final long DRAIN_INTERVAL_MILLIS = 50;
+    private static final int MAX_LINE_LENGTH = 4096;
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern( "HH:mm:ss.SSS" ).withZone( ZoneId.systemDefault() );
+
+    private final ConsoleRenderer renderer;
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>();
+    private final long baseNanos = System.nanoTime();
+    private final long baseMillis = System.currentTimeMillis();
+    private final StringBuilder prefix = new StringBuilder();
+    private long sequence;
+    private ScheduledFuture<?> draining;
+
+
+    public MergedTimeline( ConsoleRenderer renderer ) {
+        this.renderer = renderer;
+    }
+
+    /**
+     * Starts printing the merged lines, using the scheduler of the ports.
+     */
+    public synchronized void start( SerialIOScheduler scheduler ) {
+        if ( draining == null ) {
+            draining = scheduler.scheduleWithFixedDelay( () -> drain( false ), DRAIN_INTERVAL_MILLIS, DRAIN_INTERVAL_MILLIS, TimeUnit.MILLISECONDS );
+        }
+    }
+
+    /**
+     * Stops printing and prints the lines held back.
+     */
+    public synchronized void stop() {
+        if ( draining != null ) {
+            draining.cancel( false );
+            draining = null;
+        }
+        drain( true );
+    }
+
+    /**
+     * Creates the listener through which the lines of a port enter the
+     * timeline.
+     *
+     * @param statistics counts the characters cut off overlong lines, or
+     * null
+     */
+    public SerialInputListener createSource( String name, Color color, SerialStatistics statistics ) {
+        SimpleAttributeSet style = new SimpleAttributeSet();
+        StyleConstants.setForeground( style, color );
+        return new Source( name, style, statistics );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private synchronized void add( Source source, long nanos, String text ) {
+        if ( draining == null ) {
+            // nobody is watching
+            return;
+        }
+        queue.add( new Entry( source, nanos, sequence++, text ) );
+    }
+
+    private synchronized void drain( boolean all ) {
+        long horizon = System.nanoTime() - REORDER_WINDOW_NANOS;
+        while ( !queue.isEmpty() && (all || queue.peek().nanos - horizon <= 0) ) {
+            Entry entry = queue.poll();
+            long millis = baseMillis + TimeUnit.NANOSECONDS.toMillis( entry.nanos - baseNanos );
+            prefix.setLength(0);
+            TIME_FORMAT.formatTo( Instant.ofEpochMilli( millis ), prefix );
+            prefix.append( " [" ).append( entry.source.name ).append( "] " );
+            renderer.print( prefix, entry.source.style );
+            renderer.print( entry.text, entry.source.style );
+            renderer.print( "\n", entry.source.style );
+        }
+    }
+
+
+    private final class Source implements SerialInputListener {
+
+        private final String name;
+        private final AttributeSet style;
+        private final SerialStatistics statistics;
+        private final StringBuilder line = new StringBuilder();
+        private long lineStartNanos;
+
+        Source( String name, AttributeSet style, SerialStatistics statistics ) {
+            this.name = name;
+            this.style = style;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void textReceived( CharBuffer text ) {
+            long now = System.nanoTime();
+            int cutOff = 0;
+            for ( int i=text.position(); i<text.limit(); i++ ) {
+                char c = text.get(i);
+                if ( c == '\n' ) {
+                    add( this, line.length() > 0 ? lineStartNanos : now, line.toString() );
+                    line.setLength(0);
+                } else if ( c == '\r' ) {
+                    // line breaks are CR LF or LF
+                } else if ( line.length() < MAX_LINE_LENGTH ) {
+                    if ( line.length() == 0 ) {
+                        lineStartNanos = now;
+                    }
+                    line.append( c );
+                } else {
+                    cutOff++;
+                }
+            }
+            if ( cutOff > 0 && statistics != null ) {
+                statistics.addDropped( cutOff );
+            }
+        }
+
+    }
+
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final Source source;
+        private final long nanos;
+        private final long sequence;
+        private final String text;
+
+        Entry( Source source, long nanos, long sequence, String text ) {
+            this.source = source;
+            this.nanos = nanos;
+            this.sequence = sequence;
+            this.text = text;
+        }
+
+        @Override
+        public int compareTo( Entry other ) {
+            int order = Long.compare( nanos - other.nanos, 0 );
+            return order != 0 ? order : Long.compare( sequence, other.sequence );
+        }
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package nbpio.serialmonitor;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import javax.swing.BoundedRangeModel;
+import javax.swing.JPanel;
+import javax.swing.JScrollBar;
+import javax.swing.JScrollPane;
+
+/**
+ * Shows a {@link MergedTimeline} of all ports of the serial monitor.
+ */
+final class MergedTimelinePane extends JPanel {
+
+    private final MergedTimeline timeline;
+    private final ConsoleRenderer renderer;
+    private final JScrollPane scrollPane;
+
+
+    MergedTimelinePane() {
+        ConsoleBuffer buffer = ConsoleBuffer.createDefault();
+        ConsoleView view = new ConsoleView( buffer );
+        view.setAutoscrolls( false );
+        view.setBackground( Color.BLACK );
+        view.setForeground( Color.LIGHT_GRAY );
+        scrollPane = new JScrollPane( view );
+        scrollPane.setWheelScrollingEnabled(true);
+        renderer = new ConsoleRenderer( buffer, this::scrollToEndIfFollowing );
+        timeline = new MergedTimeline( renderer );
+        setLayout( new BorderLayout() );
+        add( scrollPane, BorderLayout.CENTER );
+    }
+
+    MergedTimeline getTimeline() {
+        return timeline;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        renderer.start();
+        timeline.start( SerialIOScheduler.getDefault() );
+    }
+
+    @Override
+    public void removeNotify() {
+        timeline.stop();
+        renderer.stop();
+        super.removeNotify();
+    }
+
+    private void scrollToEndIfFollowing() {
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
+        BoundedRangeModel scrollBarModel = scrollBar.getModel();
+        if ( scrollBarModel.getValue() + scrollBarModel.getExtent() >= scrollBarModel.getMaximum() ) {
+            scrollPane.validate();
+            scrollBar.setValue( scrollBarModel.getMaximum() - scrollBarModel.getExtent() );
+        }
+    }
+
+}
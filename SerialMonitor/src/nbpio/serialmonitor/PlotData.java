@@ -0,0 +1,192 @@
+package nbpio.serialmonitor;
+
+import java.util.Arrays;
+import org.openide.util.NbPreferences;
+
+/**
+ * Numeric samples of up to {@value #MAX_CHANNELS} channels, each kept in a
+ * ring of primitive doubles. A sample has one value per channel, NaN where
+ * a channel had no value. Besides the values, the minimum and maximum of
+ * every block of {@value #BLOCK_SIZE} samples is kept, so that the range of
+ * any number of samples can be found by looking at the blocks it covers,
+ * which is what lets a plot of a million samples be drawn in one frame.
+ * <p>
+ * Samples are addressed by their index since the data was created or
+ * cleared. The data may be written by one thread and read by another.
+ */
+public final class PlotData {
+
+    public static final String MAX_POINTS_KEY = "plot.maxPoints";
+    public static final int DEFAULT_MAX_POINTS = 1000000;
+    public static final int MAX_CHANNELS = 8;
+
+    static final int BLOCK_SIZE = 64;
+
+    private final int capacity;
+    private final double[][] values = new double[MAX_CHANNELS][];
+    private final double[][] blockMin = new double[MAX_CHANNELS][];
+    private final double[][] blockMax = new double[MAX_CHANNELS][];
+    private final String[] names = new String[MAX_CHANNELS];
+    private int channelCount;
+    private long startIndex;
+    private long endIndex;
+    private long version;
+
+
+    /**
+     * Creates data holding as many samples as set by the "plot.maxPoints"
+     * module preference.
+     */
+    public static PlotData createDefault() {
+        return new PlotData( NbPreferences.forModule( PlotData.class ).getInt( MAX_POINTS_KEY, DEFAULT_MAX_POINTS ) );
+    }
+
+    /**
+     * @param maxPoints the number of samples held, rounded up to whole blocks
+     */
+    public PlotData( int maxPoints ) {
+        if ( maxPoints <= 0 ) throw new IllegalArgumentException("The capacity must be positive!");
+        this.capacity = (maxPoints + BLOCK_SIZE - 1) / BLOCK_SIZE * BLOCK_SIZE;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized int getChannelCount() {
+        return channelCount;
+    }
+
+    /**
+     * @return the label the device gave the channel, or null
+     */
+    public synchronized String getChannelName( int channel ) {
+        return names[channel];
+    }
+
+    public synchronized void setChannelName( int channel, String name ) {
+        names[channel] = name;
+        version++;
+    }
+
+    public synchronized long getStartIndex() {
+        return startIndex;
+    }
+
+    public synchronized long getEndIndex() {
+        return endIndex;
+    }
+
+    /**
+     * Returns a number which changes whenever the data does.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Appends a sample with the first count values of the array. Channels
+     * beyond {@value #MAX_CHANNELS} are ignored.
+     */
+    public synchronized void addSample( double[] sample, int count ) {
+        count = Math.min( count, MAX_CHANNELS );
+        int slot = (int) (endIndex % capacity);
+        int block = slot / BLOCK_SIZE;
+        boolean blockStart = slot % BLOCK_SIZE == 0;
+        for ( int c=0; c<Math.max( channelCount, count ); c++ ) {
+            if ( c >= channelCount ) {
+                addChannel();
+            }
+            double value = c < count ? sample[c] : Double.NaN;
+            values[c][slot] = value;
+            if ( blockStart ) {
+                blockMin[c][block] = Double.POSITIVE_INFINITY;
+                blockMax[c][block] = Double.NEGATIVE_INFINITY;
+            }
+            if ( !Double.isNaN( value ) ) {
+                blockMin[c][block] = Math.min( blockMin[c][block], value );
+                blockMax[c][block] = Math.max( blockMax[c][block], value );
+            }
+        }
+        endIndex++;
+        if ( endIndex - startIndex > capacity ) {
+            startIndex++;
+        }
+        version++;
+    }
+
+    /**
+     * @return the value or NaN if the channel had no value in the sample or
+     * the sample is no longer held
+     */
+    public synchronized double getValue( int channel, long index ) {
+        if ( channel >= channelCount || index < startIndex || index >= endIndex ) {
+            return Double.NaN;
+        }
+        return values[channel][(int) (index % capacity)];
+    }
+
+    /**
+     * Finds the smallest and the largest value of a channel among the
+     * samples from index from (inclusive) to to (exclusive).
+     *
+     * @param minMax receives the minimum at index 0 and the maximum at 1
+     * @return false if there is no value in the range
+     */
+    public synchronized boolean getMinMax( int channel, long from, long to, double[] minMax ) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        if ( channel < channelCount ) {
+            long i = Math.max( from, startIndex );
+            long end = Math.min( to, endIndex );
+            double[] channelValues = values[channel];
+            while ( i < end ) {
+                if ( i % BLOCK_SIZE == 0 && i + BLOCK_SIZE <= end ) {
+                    int block = (int) (i % capacity) / BLOCK_SIZE;
+                    min = Math.min( min, blockMin[channel][block] );
+                    max = Math.max( max, blockMax[channel][block] );
+                    i += BLOCK_SIZE;
+                } else {
+                    double value = channelValues[(int) (i % capacity)];
+                    if ( !Double.isNaN( value ) ) {
+                        min = Math.min( min, value );
+                        max = Math.max( max, value );
+                    }
+                    i++;
+                }
+            }
+        }
+        minMax[0] = min;
+        minMax[1] = max;
+        return min <= max;
+    }
+
+    /**
+     * Drops all samples and channels.
+     */
+    public synchronized void clear() {
+        Arrays.fill( values, null );
+        Arrays.fill( blockMin, null );
+        Arrays.fill( blockMax, null );
+        Arrays.fill( names, null );
+        channelCount = 0;
+        startIndex = 0;
+        endIndex = 0;
+        version++;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void addChannel() {
+        int c = channelCount++;
+        values[c] = new double[capacity];
+        Arrays.fill( values[c], Double.NaN );
+        blockMin[c] = new double[capacity / BLOCK_SIZE];
+        blockMax[c] = new double[capacity / BLOCK_SIZE];
+        Arrays.fill( blockMin[c], Double.POSITIVE_INFINITY );
+        Arrays.fill( blockMax[c], Double.NEGATIVE_INFINITY );
+    }
+
+}
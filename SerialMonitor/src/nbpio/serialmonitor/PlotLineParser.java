@@ -0,0 +1,158 @@
+package nbpio.serialmonitor;
+
+import java.nio.CharBuffer;
+
+/**
+ * Frames the received text into lines and adds the numbers found in every
+ * line as one sample to a {@link PlotData}. Fields are separated by commas,
+ * semicolons, tabs or spaces and may be labeled, as in "temp:21.5" or
+ * "temp=21.5"; a label names the channel of the value. Fields which are not
+ * numbers are skipped, and lines without any number add no sample.
+ * <p>
+ * Runs on the thread which reads the port and reuses its buffers, so that
+ * parsing does not allocate.
+ */
+final class PlotLineParser implements SerialInputListener {
+
+    private static final int MAX_LINE_LENGTH = 4096;
+
+    private final PlotData data;
+    private final SerialStatistics statistics;
+    private final char[] line = new char[MAX_LINE_LENGTH];
+    private final double[] sample = new double[PlotData.MAX_CHANNELS];
+    private int length;
+
+
+    /**
+     * @param statistics counts the characters cut off overlong lines, or null
+     */
+    PlotLineParser( PlotData data, SerialStatistics statistics ) {
+        this.data = data;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void textReceived( CharBuffer text ) {
+        for ( int i=text.position(); i<text.limit(); i++ ) {
+            char c = text.get(i);
+            if ( c == '\n' ) {
+                parseLine();
+                length = 0;
+            } else if ( c != '\r' ) {
+                if ( length < MAX_LINE_LENGTH ) {
+                    line[length++] = c;
+                } else if ( statistics != null ) {
+                    // the rest of an overlong line is dropped
+                    statistics.addDropped( 1 );
+                }
+            }
+        }
+    }
+
+    private void parseLine() {
+        int count = 0;
+        int i = 0;
+        while ( i < length && count < PlotData.MAX_CHANNELS ) {
+            while ( i < length && isSeparator( line[i] ) ) {
+                i++;
+            }
+            int fieldStart = i;
+            int labelEnd = -1;
+            while ( i < length && !isSeparator( line[i] ) ) {
+                if ( labelEnd < 0 && (line[i] == ':' || line[i] == '=') ) {
+                    labelEnd = i;
+                }
+                i++;
+            }
+            int valueStart = labelEnd >= 0 ? labelEnd + 1 : fieldStart;
+            double value = parseNumber( line, valueStart, i );
+            if ( !Double.isNaN( value ) ) {
+                if ( labelEnd > fieldStart ) {
+                    updateChannelName( count, fieldStart, labelEnd );
+                }
+                sample[count++] = value;
+            }
+        }
+        if ( count > 0 ) {
+            data.addSample( sample, count );
+        }
+    }
+
+    /**
+     * Parses a decimal number with an optional sign, fraction and exponent.
+     *
+     * @return the number or NaN if the characters are not a number
+     */
+    static double parseNumber( char[] chars, int start, int end ) {
+        int i = start;
+        boolean negative = false;
+        if ( i < end && (chars[i] == '-' || chars[i] == '+') ) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digits = 0;
+        for ( ; i < end && chars[i] >= '0' && chars[i] <= '9'; i++, digits++ ) {
+            if ( mantissa < Long.MAX_VALUE / 10 - 9 ) {
+                mantissa = mantissa * 10 + (chars[i] - '0');
+            } else {
+                exponent++;
+            }
+        }
+        if ( i < end && chars[i] == '.' ) {
+            for ( i++; i < end && chars[i] >= '0' && chars[i] <= '9'; i++, digits++ ) {
+                if ( mantissa < Long.MAX_VALUE / 10 - 9 ) {
+                    mantissa = mantissa * 10 + (chars[i] - '0');
+                    exponent--;
+                }
+            }
+        }
+        if ( digits == 0 ) {
+            return Double.NaN;
+        }
+        if ( i < end && (chars[i] == 'e' || chars[i] == 'E') ) {
+            i++;
+            boolean negativeExponent = false;
+            if ( i < end && (chars[i] == '-' || chars[i] == '+') ) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            int exponentDigits = 0;
+            int explicitExponent = 0;
+            for ( ; i < end && chars[i] >= '0' && chars[i] <= '9'; i++, exponentDigits++ ) {
+                explicitExponent = Math.min( 1000, explicitExponent * 10 + (chars[i] - '0') );
+            }
+            if ( exponentDigits == 0 ) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if ( i != end ) {
+            return Double.NaN;
+        }
+        // Zero times a power overflowing to infinity would be NaN
+        double value = mantissa == 0 ? 0 : exponent >= 0 ? mantissa * Math.pow( 10, exponent ) : mantissa / Math.pow( 10, -exponent );
+        return negative ? -value : value;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private static boolean isSeparator( char c ) {
+        return c == ',' || c == ';' || c == '\t' || c == ' ';
+    }
+
+    private void updateChannelName( int channel, int start, int end ) {
+        String name = data.getChannelName( channel );
+        boolean same = name != null && name.length() == end - start;
+        for ( int i=0; same && i<name.length(); i++ ) {
+            same = name.charAt(i) == line[start + i];
+        }
+        if ( !same ) {
+            data.setChannelName( channel, new String( line, start, end - start ) );
+        }
+    }
+
+}
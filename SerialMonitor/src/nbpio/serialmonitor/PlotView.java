@@ -0,0 +1,186 @@
+package nbpio.serialmonitor;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import javax.swing.JComponent;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import org.openide.util.NbPreferences;
+
+/**
+ * Plots the channels of a {@link PlotData}. The samples shown are divided
+ * among the pixel columns and every column is drawn as a line from the
+ * smallest to the largest value of its samples, so the cost of a frame
+ * depends on the width of the view rather than on the number of samples.
+ * The mouse wheel zooms in on the latest samples; the value axis follows
+ * the range of the samples shown. The view picks up new samples once per
+ * frame while it is showing.
+ */
+public class PlotView extends JComponent {
+
+    private static final int MIN_VISIBLE_SAMPLES = 16;
+    private static final int AXIS_WIDTH = 60;
+    private static final Color[] CHANNEL_COLORS = {
+        Color.GREEN, Color.YELLOW, Color.CYAN, Color.MAGENTA, Color.ORANGE, Color.PINK, Color.RED, Color.WHITE
+    };
+
+    private final PlotData data;
+    private final Timer timer;
+    private final double[] minMax = new double[2];
+    private long paintedVersion = -1;
+    // 0 shows all samples held
+    private long visibleSamples;
+
+
+    public PlotView( PlotData data ) {
+        this.data = data;
+        setFont( new Font( Font.MONOSPACED, Font.PLAIN, UIManager.getFont("TextPane.font") != null ? UIManager.getFont("TextPane.font").getSize() : 12 ) );
+        setOpaque( true );
+        int frameRate = NbPreferences.forModule( ConsoleRenderer.class ).getInt( ConsoleRenderer.FRAME_RATE_KEY, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        timer = new Timer( ConsoleRenderer.getFrameDelay( frameRate ), (e) -> {
+            if ( isShowing() && data.getVersion() != paintedVersion ) {
+                repaint();
+            }
+        });
+        timer.setCoalesce( true );
+        addMouseWheelListener( (e) -> {
+            long held = data.getEndIndex() - data.getStartIndex();
+            long current = visibleSamples > 0 ? Math.min( visibleSamples, held ) : held;
+            long zoomed = e.getWheelRotation() < 0 ? current / 2 : current * 2;
+            visibleSamples = zoomed >= held ? 0 : Math.max( MIN_VISIBLE_SAMPLES, zoomed );
+            repaint();
+        });
+    }
+
+    public PlotData getData() {
+        return data;
+    }
+
+    /**
+     * @param visibleSamples the number of latest samples shown, 0 for all
+     */
+    public void setVisibleSamples( long visibleSamples ) {
+        this.visibleSamples = Math.max( 0, visibleSamples );
+        repaint();
+    }
+
+    public long getVisibleSamples() {
+        return visibleSamples;
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    @Override
+    protected void paintComponent( Graphics g ) {
+        paintedVersion = data.getVersion();
+        Insets insets = getInsets();
+        int x0 = insets.left + AXIS_WIDTH;
+        int y0 = insets.top;
+        int width = getWidth() - insets.right - x0;
+        int height = getHeight() - insets.bottom - y0;
+        g.setColor( getBackground() );
+        g.fillRect( 0, 0, getWidth(), getHeight() );
+        if ( width <= 0 || height <= 0 ) {
+            return;
+        }
+
+        long end = data.getEndIndex();
+        long start = visibleSamples > 0 ? Math.max( data.getStartIndex(), end - visibleSamples ) : data.getStartIndex();
+        long count = end - start;
+        int channels = data.getChannelCount();
+
+        // The value axis spans all channels
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for ( int c=0; c<channels; c++ ) {
+            if ( data.getMinMax( c, start, end, minMax ) ) {
+                min = Math.min( min, minMax[0] );
+                max = Math.max( max, minMax[1] );
+            }
+        }
+        if ( min > max ) {
+            return;
+        }
+        if ( min == max ) {
+            min -= 1;
+            max += 1;
+        }
+        double scale = (height - 1) / (max - min);
+
+        FontMetrics metrics = g.getFontMetrics();
+        g.setColor( Color.DARK_GRAY );
+        g.drawLine( x0 - 1, y0, x0 - 1, y0 + height );
+        g.setColor( Color.GRAY );
+        g.drawString( formatValue( max ), insets.left + 2, y0 + metrics.getAscent() );
+        g.drawString( formatValue( min ), insets.left + 2, y0 + height - metrics.getDescent() );
+
+        if ( g instanceof Graphics2D ) {
+            ((Graphics2D) g).setRenderingHint( RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF );
+        }
+        int columns = (int) Math.min( width, count );
+        for ( int c=0; c<channels; c++ ) {
+            g.setColor( CHANNEL_COLORS[c % CHANNEL_COLORS.length] );
+            int previousY = -1;
+            int previousX = -1;
+            for ( int column=0; column<columns; column++ ) {
+                long from = start + count * column / columns;
+                long to = start + count * (column + 1) / columns;
+                if ( !data.getMinMax( c, from, to, minMax ) ) {
+                    previousY = -1;
+                    continue;
+                }
+                int x = x0 + (int) ((long) column * width / columns);
+                int top = y0 + (int) ((max - minMax[1]) * scale);
+                int bottom = y0 + (int) ((max - minMax[0]) * scale);
+                if ( previousY >= 0 ) {
+                    // Joins the columns so that steep edges stay visible
+                    g.drawLine( previousX, previousY, x, Math.max( top, Math.min( bottom, previousY ) ) );
+                }
+                g.drawLine( x, top, x, bottom );
+                previousX = x;
+                previousY = y0 + (int) ((max - data.getValue( c, to - 1 )) * scale);
+                if ( previousY < top || previousY > bottom ) {
+                    previousY = (top + bottom) / 2;
+                }
+            }
+        }
+        paintLegend( g, x0, y0, channels, end );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void paintLegend( Graphics g, int x0, int y0, int channels, long end ) {
+        FontMetrics metrics = g.getFontMetrics();
+        int y = y0 + metrics.getAscent();
+        for ( int c=0; c<channels; c++ ) {
+            String name = data.getChannelName( c );
+            double last = data.getValue( c, end - 1 );
+            String label = (name != null ? name : "#" + (c + 1)) + ": " + (Double.isNaN( last ) ? "-" : formatValue( last ));
+            g.setColor( CHANNEL_COLORS[c % CHANNEL_COLORS.length] );
+            g.drawString( label, x0 + 6, y );
+            y += metrics.getHeight();
+        }
+    }
+
+    private static String formatValue( double value ) {
+        return Math.abs( value ) >= 1e6 || (value != 0 && Math.abs( value ) < 1e-3) ? String.format( "%.3g", value ) : String.format( "%.3f", value );
+    }
+
+}
@@ -0,0 +1,101 @@
+package nbpio.serialmonitor;
+
+import java.util.Arrays;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import javax.swing.event.ChangeListener;
+
+/**
+ * Tries to reopen a port which went away until an attempt succeeds or the
+ * reconnector is cancelled. An attempt is made right away whenever the
+ * {@link SerialPortRegistry} sees the port appear, so a board which resets
+ * is usually back within milliseconds. In between, attempts are made with
+ * an exponential backoff from {@value #INITIAL_DELAY_MILLIS} ms up to
+ * {@value #MAX_DELAY_MILLIS} ms, which also covers ports the registry does
+ * not know about. The attempts run on the {@link SerialIOScheduler}.
+ */
+final class PortReconnector {
+
+    static final long INITIAL_DELAY_MILLIS = 10;
+    static final long MAX_DELAY_MILLIS = 1000;
+
+    private final SerialIOScheduler scheduler;
+    private final SerialPortRegistry registry;
+    private final String portName;
+    private final BooleanSupplier attempt;
+    private final ChangeListener portsListener = (e) -> portsChanged();
+    private ScheduledFuture<?> pending;
+    private long delayMillis = INITIAL_DELAY_MILLIS;
+    private boolean cancelled;
+
+
+    /**
+     * @param registry the registry to watch for the port, or null to rely
+     * on the backoff alone
+     * @param attempt tries to reopen the port and tells whether it worked
+     */
+    PortReconnector( SerialIOScheduler scheduler, SerialPortRegistry registry, String portName, BooleanSupplier attempt ) {
+        this.scheduler = scheduler;
+        this.registry = registry;
+        this.portName = portName;
+        this.attempt = attempt;
+    }
+
+    synchronized void start() {
+        if ( registry != null ) {
+            registry.addChangeListener( portsListener );
+        }
+        schedule( 0 );
+    }
+
+    synchronized void cancel() {
+        cancelled = true;
+        if ( pending != null ) {
+            pending.cancel( false );
+            pending = null;
+        }
+        if ( registry != null ) {
+            registry.removeChangeListener( portsListener );
+        }
+    }
+
+    synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void schedule( long delay ) {
+        if ( pending != null ) {
+            pending.cancel( false );
+        }
+        pending = scheduler.schedule( this::run, delay, TimeUnit.MILLISECONDS );
+    }
+
+    private synchronized void portsChanged() {
+        if ( !cancelled && Arrays.asList( registry.getPortNames() ).contains( portName ) ) {
+            schedule( 0 );
+        }
+    }
+
+    private void run() {
+        if ( isCancelled() ) {
+            return;
+        }
+        // Not synchronized, so that cancelling never waits for an attempt
+        boolean reconnected = attempt.getAsBoolean();
+        synchronized ( this ) {
+            if ( reconnected ) {
+                cancel();
+            } else if ( !cancelled ) {
+                long delay = delayMillis;
+                delayMillis = Math.min( MAX_DELAY_MILLIS, delayMillis * 2 );
+                schedule( delay );
+            }
+        }
+    }
+
+}
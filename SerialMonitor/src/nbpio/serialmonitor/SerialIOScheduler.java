@@ -0,0 +1,121 @@
+package nbpio.serialmonitor;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.NbPreferences;
+
+/**
+ * Services all open serial ports with a small, fixed number of threads
+ * instead of a thread per port. Every port is polled without blocking; while
+ * it delivers data it is polled again right away, after the other ports
+ * waiting for their turn, otherwise after the poll interval set by the
+ * "io.pollInterval" module preference. The scheduler also runs the periodic
+ * work of the serial monitor, like looking for a port which went away.
+ */
+public final class SerialIOScheduler {
+
+    private static final Logger LOGGER = Logger.getLogger( SerialIOScheduler.class.getName() );
+
+    public static final String POLL_INTERVAL_KEY = "io.pollInterval";
+    public static final int DEFAULT_POLL_INTERVAL_MILLIS = 5;
+
+    // Reads of one port in a row before the other ports get their turn
+    private static final int MAX_READS_PER_TURN = 16;
+
+    private static SerialIOScheduler defaultScheduler;
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final long pollIntervalMillis;
+
+
+    /**
+     * Returns the scheduler shared by all serial monitor sessions.
+     */
+    public static synchronized SerialIOScheduler getDefault() {
+        if ( defaultScheduler == null ) {
+            int threads = Math.max( 2, Math.min( 4, Runtime.getRuntime().availableProcessors() / 2 ) );
+            int pollInterval = NbPreferences.forModule( SerialIOScheduler.class ).getInt( POLL_INTERVAL_KEY, DEFAULT_POLL_INTERVAL_MILLIS );
+            defaultScheduler = new SerialIOScheduler( threads, pollInterval );
+        }
+        return defaultScheduler;
+    }
+
+    public SerialIOScheduler( int threads, int pollIntervalMillis ) {
+        if ( threads <= 0 ) throw new IllegalArgumentException("At least one thread is needed!");
+        this.pollIntervalMillis = Math.max( 1, pollIntervalMillis );
+        this.executor = new ScheduledThreadPoolExecutor( threads, new DaemonThreadFactory() );
+        this.executor.setRemoveOnCancelPolicy( true );
+    }
+
+    public int getThreadCount() {
+        return executor.getCorePoolSize();
+    }
+
+    /**
+     * Runs the task once after the delay.
+     */
+    public ScheduledFuture<?> schedule( Runnable task, long delay, TimeUnit unit ) {
+        return executor.schedule( task, delay, unit );
+    }
+
+    /**
+     * Runs the task repeatedly until the returned future is cancelled.
+     */
+    public ScheduledFuture<?> scheduleWithFixedDelay( Runnable task, long initialDelay, long delay, TimeUnit unit ) {
+        return executor.scheduleWithFixedDelay( task, initialDelay, delay, unit );
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Polls the reader until it is stopped or reading fails.
+     */
+    void poll( SerialPortReader reader ) {
+        executor.execute( () -> pollTurn( reader ) );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void pollTurn( SerialPortReader reader ) {
+        int total = 0;
+        try {
+            for ( int i=0; i<MAX_READS_PER_TURN && reader.isRunning(); i++ ) {
+                int n = reader.pollOnce();
+                if ( n <= 0 ) {
+                    break;
+                }
+                total += n;
+            }
+        } catch (RuntimeException ex) {
+            // A failing listener must not end the polling of the port
+            LOGGER.log( Level.WARNING, "Failed to deliver serial input", ex );
+        }
+        if ( reader.isRunning() && !executor.isShutdown() ) {
+            executor.schedule( () -> pollTurn( reader ), total > 0 ? 0 : pollIntervalMillis, TimeUnit.MILLISECONDS );
+        }
+    }
+
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread thread = new Thread( r, "Serial I/O Scheduler " + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,24 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+
+/**
+ * Receives what is read from a serial port. The methods are called on the
+ * reader thread and the buffers are reused for the next chunk, so their
+ * contents must be copied if they are needed after the call returns.
+ */
+public interface SerialInputListener {
+
+    void textReceived( CharBuffer text );
+
+    default void bytesReceived( ByteBuffer bytes ) {}
+
+    /**
+     * Called once when reading fails, typically because the device was
+     * unplugged. No more input is delivered afterwards.
+     */
+    default void readFailed( IOException ex ) {}
+
+}
@@ -20,6 +20,7 @@ import javax.swing.LayoutStyle;
 import org.openide.util.NbBundle;
 
 import static javax.swing.GroupLayout.*;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
 
@@ -40,6 +41,7 @@ public class SerialMonitorConfigPane extends JPanel {
     private final JComboBox <String> stopBitsCombo;
     private final JComboBox <String> parityCombo;
     private final JButton connectButton;
+    private final ChangeListener portNamesListener = (e) -> updatePortNames();
             
     
     public SerialMonitorConfigPane( SerialMonitorConfigModel model, ActionListener connectActionHandler ) {
@@ -157,6 +159,20 @@ public class SerialMonitorConfigPane extends JPanel {
         return model;
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        SerialPortRegistry.getDefault().addChangeListener( portNamesListener );
+        // The ports may have changed while the pane was not showing
+        updatePortNames();
+    }
+
+    @Override
+    public void removeNotify() {
+        SerialPortRegistry.getDefault().removeChangeListener( portNamesListener );
+        super.removeNotify();
+    }
+    
     private void enableComponents() {
         parameterCombos.forEach( (c) -> c.setEnabled(true) );
         connectButton.setEnabled(true);
@@ -167,6 +183,34 @@ public class SerialMonitorConfigPane extends JPanel {
         connectButton.setEnabled(false);
     }
     
+    private void updatePortNames() {
+        DefaultComboBoxModel <String> comboModel = (DefaultComboBoxModel <String>) portNameCombo.getModel();
+        List<String> currentItems = new ArrayList<>();
+        for ( int i=0; i<comboModel.getSize(); i++ ) {
+            currentItems.add( comboModel.getElementAt(i) );
+        }
+        List<String> newItems = Arrays.asList( model.getAvailablePortNames() );
+
+        List<String> toBeRemovedItems = new ArrayList<>(currentItems);
+        toBeRemovedItems.removeAll(newItems);
+
+        List<String> toBeAddedItems = new ArrayList<>(newItems);
+        toBeAddedItems.removeAll(currentItems);
+
+        for ( String portName : toBeRemovedItems ) {
+            comboModel.removeElement( portName );
+        }
+        for ( String portName : toBeAddedItems ) {
+            comboModel.addElement( portName );
+        }
+
+        if ( comboModel.getSize() > 0 ) {
+            enableComponents();
+        } else {
+            disableComponents();
+        }
+    }
+    
     private JLabel createLabel( String name, JComponent targetComponent ) {
         JLabel label = new JLabel( getLocalizedText(name) );
         label.setLabelFor( targetComponent );
@@ -178,31 +222,10 @@ public class SerialMonitorConfigPane extends JPanel {
         ret.addPopupMenuListener( new PopupMenuListener() {
             @Override
             public void popupMenuWillBecomeVisible(PopupMenuEvent e) {
-                String[] portNames = configProvider.getAvailablePortNames();
-                DefaultComboBoxModel <String> model = (DefaultComboBoxModel <String>) ret.getModel();
-                List<String> currentItems = new ArrayList<>();
-                for ( int i=0; i<model.getSize(); i++ ) {
-                    currentItems.add( model.getElementAt(i) );
-                }
-                List<String> newItems = Arrays.asList(portNames);
-                
-                List<String> toBeRemovedItems = new ArrayList<String>(currentItems);
-                toBeRemovedItems.removeAll(newItems);
-                
-                List<String> toBeAddedItems = new ArrayList<String>(newItems);
-                toBeAddedItems.removeAll(currentItems);
-                
-                for ( String portName : toBeRemovedItems ) {                    
-                    model.removeElement( portName );
-                }
-                for ( String portName : toBeAddedItems ) {
-                    model.addElement( portName );
-                }
-                
-                if ( model.getSize() > 0 ) {
-                    parameterCombos.forEach( (c) -> c.setEnabled(true) );
-                } else {
-                    parameterCombos.forEach( (c) -> c.setEnabled(false) );
+                // Where the devices are not watched, the list is brought up to date in the background
+                SerialPortRegistry registry = SerialPortRegistry.getDefault();
+                if ( !registry.isWatching() ) {
+                    registry.refresh();
                 }
             }
 
@@ -1,42 +1,49 @@
 package nbpio.serialmonitor;
 
 import java.awt.BorderLayout;
+import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.event.ActionListener;
-import java.awt.event.AdjustmentEvent;
-import java.awt.event.AdjustmentListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.io.File;
 import java.io.IOException;
-import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
 import java.nio.charset.Charset;
 import java.text.MessageFormat;
-import java.util.TooManyListenersException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.prefs.Preferences;
 import javax.swing.BorderFactory;
 import javax.swing.BoundedRangeModel;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
 import javax.swing.JComponent;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
 import javax.swing.JTextField;
-import javax.swing.JTextPane;
 import javax.swing.JToggleButton;
 import javax.swing.SwingUtilities;
-import javax.swing.text.BadLocationException;
-import javax.swing.text.DefaultCaret;
+import javax.swing.Timer;
 import javax.swing.text.Style;
 import javax.swing.text.StyleConstants;
-import javax.swing.text.StyledDocument;
+import javax.swing.text.StyleContext;
 import org.netbeans.api.annotations.common.StaticResource;
 import org.openide.util.Exceptions;
 import org.openide.util.ImageUtilities;
 import org.openide.util.NbBundle;
+import org.openide.util.NbPreferences;
 import purejavacomm.NoSuchPortException;
 import purejavacomm.PortInUseException;
 import purejavacomm.UnsupportedCommOperationException;
@@ -44,8 +51,6 @@ import purejavacomm.UnsupportedCommOperationException;
 public class SerialMonitorDisplayPane extends JPanel {
 
     
-    private static final Charset MESSAGE_CHARSET = Charset.forName("US-ASCII");
-    
     @StaticResource
     private static final String CONFIG_ICON = "nbpio/serialmonitor/config.png";
     @StaticResource
@@ -53,21 +58,61 @@ public class SerialMonitorDisplayPane extends JPanel {
     @StaticResource
     private static final String CLEAR_ICON = "nbpio/serialmonitor/clear.png";
     
+    public static final String CAPTURE_DIRECTORY_KEY = "capture.directory";
+    public static final String CAPTURE_SEGMENT_SIZE_KEY = "capture.segmentSize";
+    public static final String FILTER_RULES_KEY = "console.filterRules";
+    public static final String SEND_FILE_DIRECTORY_KEY = "sendFile.directory";
+    
+    private static final int STATISTICS_INTERVAL_MILLIS = 1000;
+    
+    private static final String CONSOLE_CARD = "console";
+    private static final String HEX_CARD = "hex";
+    
     private SerialPortCommunicator communicator;
     private ActionListener configureActionHandler;
-    private JTextPane textPane;    
-    private StyledDocument document;
+    private ConsoleBuffer consoleBuffer;
+    private ConsoleView consoleView;
+    private ByteStore byteStore;
+    private boolean hexRecording;
+    private final SerialInputListener hexRecorder = new SerialInputListener() {
+        @Override
+        public void textReceived( CharBuffer text ) {
+            // the hex dump shows the raw bytes
+        }
+
+        @Override
+        public void bytesReceived( ByteBuffer bytes ) {
+            byteStore.append( bytes );
+        }
+    };
+    private HexDumpView hexDumpView;
+    private JPanel centerPane;
     private Style inputStyle;
     private Style outputStyle;
     private Style notificationStyle;
     private JToggleButton crSwitch;
     private JToggleButton lfSwitch;
+    private JToggleButton recordSwitch;
+    private JToggleButton hexSwitch;
+    private JToggleButton filterSwitch;
+    private FilterRulesPane filterRulesPane;
+    private JToggleButton plotSwitch;
+    private PlotData plotData;
+    private PlotView plotView;
+    private PlotLineParser plotLineParser;
+    private JSplitPane splitPane;
+    private ConsoleFilter consoleFilter;
     private JTextField inputField;
+    private JLabel statisticsLabel;
+    private Timer statisticsTimer;
+    private SerialStatistics.Snapshot lastSnapshot;
+    private JButton sendFileButton;
+    private JLabel transferLabel;
+    private boolean sendingFile;
+    private final TransmitHandler transmitHandler = new TransmitHandler();
     
-    private AdjustmentListener scrollBarAdjustmentListener;
-    private boolean adjustScrollBar = true;
-    private int previousScrollBarValue = -1;
-    private int previousScrollBarMaximum = -1;
+    private ConsoleRenderer consoleRenderer;
+    private JScrollPane scrollPane;
     
     
     public SerialMonitorDisplayPane( SerialPortCommunicator communicator, ActionListener configureActionHandler ) {
@@ -75,6 +120,7 @@ public class SerialMonitorDisplayPane extends JPanel {
         this.configureActionHandler = configureActionHandler;
         
         initComponents();
+        communicator.getTransmitter().addListener( transmitHandler );
         try {
             communicator.connect( 
                 (reconnected) -> {
@@ -88,12 +134,14 @@ public class SerialMonitorDisplayPane extends JPanel {
                     }
                     printNotificationLine( formattedMessage );
                 },
-                (is) -> {
-                    try {                    
-                        byte[] buffer = new byte[is.available()];
-                        int n = is.read(buffer);
-                        printInput(new String( buffer, 0, n ) );                    
-                    } catch (IOException ex) {
+                new SerialInputListener() {
+                    @Override
+                    public void textReceived( CharBuffer text ) {
+                        printInput( text );
+                    }
+
+                    @Override
+                    public void readFailed( IOException ex ) {
                         printNotificationLine( getLocalizedText("disconnectedNotification") );
                         communicator.disconnect();
                         communicator.startScanningForPort();
@@ -101,7 +149,7 @@ public class SerialMonitorDisplayPane extends JPanel {
                 }
             );
             
-        } catch (TooManyListenersException | UnsupportedCommOperationException | PortInUseException | NoSuchPortException | IOException ex) {
+        } catch (UnsupportedCommOperationException | PortInUseException | NoSuchPortException | IOException ex) {
             Exceptions.printStackTrace(ex);
         }
     }
@@ -122,22 +170,129 @@ public class SerialMonitorDisplayPane extends JPanel {
         lfSwitch.setSelected(selected);
     }    
     
+    public boolean isHexSelected() {
+        return hexSwitch.isSelected();
+    }
+    
+    /**
+     * Shows the hex dump instead of the console. The received bytes are
+     * only kept from the first time the hex dump is shown.
+     */
+    public void setHexSelected( boolean selected ) {
+        hexSwitch.setSelected(selected);
+        if ( selected && !hexRecording ) {
+            hexRecording = true;
+            communicator.addInputListener( hexRecorder );
+        }
+        ((CardLayout) centerPane.getLayout()).show( centerPane, selected ? HEX_CARD : CONSOLE_CARD );
+        (selected ? hexDumpView : consoleView).requestFocusInWindow();
+    }
+    
+    public boolean isPlotSelected() {
+        return plotSwitch.isSelected();
+    }
+    
+    /**
+     * Shows or hides the plot below the console. Numbers are only parsed
+     * from the received lines while the plot is shown.
+     */
+    public void setPlotSelected( boolean selected ) {
+        plotSwitch.setSelected(selected);
+        if ( selected == plotView.isVisible() ) {
+            return;
+        }
+        if ( selected ) {
+            communicator.addInputListener( plotLineParser );
+        } else {
+            communicator.removeInputListener( plotLineParser );
+        }
+        plotView.setVisible( selected );
+        splitPane.setDividerLocation( 0.6 );
+        revalidate();
+    }
+    
     public void clear() {
-        SwingUtilities.invokeLater( () -> textPane.setText("") );
+        consoleFilter.clear();
+        byteStore.clear();
+        plotData.clear();
     }
     
     public void reconnect() {
         try {
             communicator.reconnect();
-        } catch (NoSuchPortException | PortInUseException | IOException | UnsupportedCommOperationException | TooManyListenersException ex) {
+        } catch (NoSuchPortException | PortInUseException | IOException | UnsupportedCommOperationException ex) {
             Exceptions.printStackTrace(ex);
         }
     }
     
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        consoleRenderer.start();
+        lastSnapshot = communicator.getStatistics().snapshot();
+        statisticsTimer.start();
+    }
+    
+    @Override
+    public void removeNotify() {
+        statisticsTimer.stop();
+        consoleRenderer.stop();
+        super.removeNotify();
+    }
+    
+    /**
+     * Releases what the pane holds once its session is closed or configured
+     * again: the files still to be sent are cancelled, the filter and the
+     * timers are stopped and the received bytes are dropped.
+     */
+    public void dispose() {
+        communicator.getTransmitter().removeListener( transmitHandler );
+        communicator.getTransmitter().cancelFiles();
+        communicator.removeInputListener( hexRecorder );
+        communicator.removeInputListener( plotLineParser );
+        consoleFilter.dispose();
+        statisticsTimer.stop();
+        consoleRenderer.stop();
+        byteStore.clear();
+    }
+    
+    public boolean isRecording() {
+        return communicator.getCaptureRecorder() != null;
+    }
+    
+    public void setRecording( boolean recording ) {
+        if ( recording == isRecording() ) {
+            return;
+        }
+        if ( recording ) {
+            Preferences prefs = NbPreferences.forModule( SerialMonitorDisplayPane.class );
+            File parentDir = new File( prefs.get( CAPTURE_DIRECTORY_KEY, new File( System.getProperty("user.home"), "nbpio-captures" ).getPath() ) );
+            String portName = communicator.getConfig().getPortName().replaceAll( "[^A-Za-z0-9._-]", "_" );
+            File captureDir = new File( parentDir, portName + "-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format( new Date() ) );
+            try {
+                communicator.startCapture( captureDir, prefs.getInt( CAPTURE_SEGMENT_SIZE_KEY, CaptureRecorder.DEFAULT_SEGMENT_SIZE ) );
+                printNotificationLine( MessageFormat.format( getLocalizedText("recordingStartedNotification"), captureDir.getPath() ) );
+            } catch (IOException ex) {
+                Exceptions.printStackTrace(ex);
+            }
+        } else {
+            communicator.stopCapture();
+            printNotificationLine( getLocalizedText("recordingStoppedNotification") );
+        }
+        recordSwitch.setSelected( isRecording() );
+    }
+    
     private void initComponents() {        
+        JComponent consolePane = createCenterPane();
+        JPanel northPane = new JPanel();
+        northPane.setLayout( new BoxLayout(northPane, BoxLayout.PAGE_AXIS) );
+        northPane.add( createTopPane() );
+        northPane.add( createFilterPane() );
+        
         JPanel p1 = new JPanel( new BorderLayout() );
-        p1.add( createCenterPane(), BorderLayout.CENTER );
-        p1.add( createTopPane(), BorderLayout.NORTH );
+        p1.add( consolePane, BorderLayout.CENTER );
+        p1.add( northPane, BorderLayout.NORTH );
+        p1.add( createStatisticsPane(), BorderLayout.SOUTH );
                 
         setLayout( new BorderLayout() );
         add( p1, BorderLayout.CENTER );
@@ -145,16 +300,19 @@ public class SerialMonitorDisplayPane extends JPanel {
     }
     
     private JComponent createCenterPane() {
-        textPane = new JTextPane();
-        textPane.setAutoscrolls( false );
-        textPane.getCaret().setVisible(false);
-        textPane.setEditable( false );
-        textPane.setBackground( Color.BLACK );
-        textPane.setForeground( Color.LIGHT_GRAY );
-        textPane.addKeyListener( new KeyListener() {
+        // The console and the unfiltered scrollback of the filter share the byte limit
+        consoleBuffer = ConsoleBuffer.createDefault(2);
+        consoleView = new ConsoleView( consoleBuffer );
+        consoleView.setAutoscrolls( false );
+        consoleView.setBackground( Color.BLACK );
+        consoleView.setForeground( Color.LIGHT_GRAY );
+        KeyListener typingHandler = new KeyListener() {
             @Override
             public void keyTyped(KeyEvent e) {
                 char character = e.getKeyChar();
+                if ( Character.isISOControl(character) || e.isControlDown() || e.isMetaDown() ) {
+                    return;
+                }
                 inputField.setText(""+character);
                 inputField.requestFocusInWindow();
             }
@@ -164,8 +322,9 @@ public class SerialMonitorDisplayPane extends JPanel {
 
             @Override
             public void keyReleased(KeyEvent e) {}
-        });
-        textPane.addFocusListener( new FocusListener() {
+        };
+        consoleView.addKeyListener( typingHandler );
+        consoleView.addFocusListener( new FocusListener() {
             @Override
             public void focusGained(FocusEvent e) {
                 repaint();
@@ -175,28 +334,47 @@ public class SerialMonitorDisplayPane extends JPanel {
             public void focusLost(FocusEvent e) {}
         });        
         
-        DefaultCaret caret = (DefaultCaret) textPane.getCaret();
-        caret.setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
-        
-        inputStyle = textPane.addStyle("input", null);
-        outputStyle = textPane.addStyle("output", null);
-        notificationStyle = textPane.addStyle("notification", null);
+        StyleContext styles = new StyleContext();
+        inputStyle = styles.addStyle("input", null);
+        outputStyle = styles.addStyle("output", null);
+        notificationStyle = styles.addStyle("notification", null);
         StyleConstants.setForeground(inputStyle, Color.LIGHT_GRAY);
         StyleConstants.setForeground(outputStyle, Color.GREEN);
         StyleConstants.setForeground(notificationStyle, Color.GRAY);
         StyleConstants.setBold(notificationStyle, true);
         
-        document = textPane.getStyledDocument();
-        
-        scrollBarAdjustmentListener = (e) -> SwingUtilities.invokeLater( () ->  checkScrollBar(e) );
+        consoleRenderer = new ConsoleRenderer( consoleBuffer, this::scrollToEndIfFollowing );
+        consoleRenderer.setStatistics( communicator.getStatistics() );
+        consoleFilter = new ConsoleFilter( consoleRenderer, ConsoleBuffer.createDefault(2) );
         
-        JScrollPane scrollPane = new JScrollPane( textPane );
+        scrollPane = new JScrollPane( consoleView );
         scrollPane.setWheelScrollingEnabled(true);
         scrollPane.setVerticalScrollBarPolicy( JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED );
         scrollPane.setHorizontalScrollBarPolicy( JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED );        
-        scrollPane.getVerticalScrollBar().addAdjustmentListener( scrollBarAdjustmentListener );
         
-        return scrollPane;
+        byteStore = ByteStore.createDefault();
+        hexDumpView = new HexDumpView( byteStore );
+        hexDumpView.setAutoscrolls( false );
+        hexDumpView.setBackground( Color.BLACK );
+        hexDumpView.setForeground( Color.LIGHT_GRAY );
+        hexDumpView.addKeyListener( typingHandler );
+        JScrollPane hexScrollPane = new JScrollPane( hexDumpView );
+        hexScrollPane.setWheelScrollingEnabled(true);
+        
+        centerPane = new JPanel( new CardLayout() );
+        centerPane.add( scrollPane, CONSOLE_CARD );
+        centerPane.add( hexScrollPane, HEX_CARD );
+        
+        plotData = PlotData.createDefault();
+        plotLineParser = new PlotLineParser( plotData, communicator.getStatistics() );
+        plotView = new PlotView( plotData );
+        plotView.setBackground( Color.BLACK );
+        plotView.setVisible( false );
+        
+        splitPane = new JSplitPane( JSplitPane.VERTICAL_SPLIT, centerPane, plotView );
+        splitPane.setResizeWeight( 0.6 );
+        splitPane.setBorder( null );
+        return splitPane;
     }
     
     private JComponent createTopPane() {
@@ -210,12 +388,28 @@ public class SerialMonitorDisplayPane extends JPanel {
         JPanel pane = new JPanel();
         pane.setLayout( new BoxLayout(pane, BoxLayout.LINE_AXIS) );
         
+        sendFileButton = new JButton( getLocalizedComponentText("sendFileButton") );
+        sendFileButton.setToolTipText( getLocalizedComponentTooltip("sendFileButton") );
+        sendFileButton.addActionListener( (e) -> {
+            if ( sendingFile ) {
+                communicator.getTransmitter().cancelFiles();
+            } else {
+                sendFile();
+            }
+        });
+        
+        transferLabel = new JLabel();
+        
         crSwitch = new JToggleButton("CR", true);
         lfSwitch = new JToggleButton("LF", true);
         
         pane.add( inputField );
         pane.add( Box.createRigidArea( new Dimension(5, 0) ) );
         pane.add( sendButton );
+        pane.add( Box.createRigidArea( new Dimension(5, 0) ) );
+        pane.add( sendFileButton );
+        pane.add( Box.createRigidArea( new Dimension(5, 0) ) );
+        pane.add( transferLabel );
         pane.add( Box.createGlue() );
         pane.add( crSwitch );
         pane.add( Box.createRigidArea( new Dimension(5, 0) ) );
@@ -226,6 +420,40 @@ public class SerialMonitorDisplayPane extends JPanel {
         return pane;
     }
     
+    private JComponent createFilterPane() {
+        Preferences prefs = NbPreferences.forModule( SerialMonitorDisplayPane.class );
+        List<FilterRule> rules = FilterRule.parseList( prefs.get( FILTER_RULES_KEY, "" ) );
+        consoleFilter.setRules( rules );
+        filterRulesPane = new FilterRulesPane( rules, (newRules) -> {
+            consoleFilter.setRules( newRules );
+            prefs.put( FILTER_RULES_KEY, FilterRule.formatList( newRules ) );
+        });
+        filterRulesPane.setVisible( !rules.isEmpty() );
+        return filterRulesPane;
+    }
+    
+    private JComponent createStatisticsPane() {
+        statisticsLabel = new JLabel( " " );
+        statisticsLabel.setFont( statisticsLabel.getFont().deriveFont( statisticsLabel.getFont().getSize2D() - 1 ) );
+        statisticsLabel.setToolTipText( getLocalizedComponentTooltip("statisticsLabel") );
+        statisticsLabel.setBorder( BorderFactory.createEmptyBorder(1, 3, 1, 3) );
+        statisticsTimer = new Timer( STATISTICS_INTERVAL_MILLIS, (e) -> updateStatistics() );
+        return statisticsLabel;
+    }
+    
+    private void updateStatistics() {
+        SerialStatistics.Snapshot snapshot = communicator.getStatistics().snapshot();
+        statisticsLabel.setText( MessageFormat.format( getLocalizedComponentText("statisticsLabel"),
+            Math.round( snapshot.getBytesReceivedPerSecond( lastSnapshot ) ),
+            Math.round( snapshot.getChunksReceivedPerSecond( lastSnapshot ) ),
+            Math.round( snapshot.getBytesSentPerSecond( lastSnapshot ) ),
+            snapshot.getRenderBacklog(),
+            snapshot.getFlushLatencyNanos() / 1e6,
+            snapshot.getDroppedBytes()
+        ));
+        lastSnapshot = snapshot;
+    }
+    
     private JComponent createSidePane() {
         JButton configureButton = new JButton( ImageUtilities.loadImageIcon(CONFIG_ICON, false) );        
         configureButton.setToolTipText( getLocalizedComponentTooltip("configureButton") );
@@ -235,6 +463,26 @@ public class SerialMonitorDisplayPane extends JPanel {
         reconnectButton.addActionListener( (e) -> reconnect() );
         reconnectButton.setToolTipText( getLocalizedComponentTooltip("reconnectButton") );
         
+        recordSwitch = new JToggleButton( getLocalizedComponentText("recordButton") );
+        recordSwitch.setToolTipText( getLocalizedComponentTooltip("recordButton") );
+        recordSwitch.setForeground( Color.RED.darker() );
+        recordSwitch.addActionListener( (e) -> setRecording( recordSwitch.isSelected() ) );
+        
+        hexSwitch = new JToggleButton( getLocalizedComponentText("hexButton") );
+        hexSwitch.setToolTipText( getLocalizedComponentTooltip("hexButton") );
+        hexSwitch.addActionListener( (e) -> setHexSelected( hexSwitch.isSelected() ) );
+        
+        filterSwitch = new JToggleButton( getLocalizedComponentText("filterButton"), filterRulesPane.isVisible() );
+        filterSwitch.setToolTipText( getLocalizedComponentTooltip("filterButton") );
+        filterSwitch.addActionListener( (e) -> {
+            filterRulesPane.setVisible( filterSwitch.isSelected() );
+            revalidate();
+        });
+        
+        plotSwitch = new JToggleButton( getLocalizedComponentText("plotButton") );
+        plotSwitch.setToolTipText( getLocalizedComponentTooltip("plotButton") );
+        plotSwitch.addActionListener( (e) -> setPlotSelected( plotSwitch.isSelected() ) );
+        
         JButton clearButton = new JButton( ImageUtilities.loadImageIcon(CLEAR_ICON, false) );
         clearButton.addActionListener( (e) -> clear() );
         clearButton.setToolTipText( getLocalizedComponentTooltip("clearButton") );
@@ -246,33 +494,64 @@ public class SerialMonitorDisplayPane extends JPanel {
         pane.add( reconnectButton );
         pane.add( Box.createRigidArea( new Dimension(0, 3) ) );
         pane.add( clearButton );
+        pane.add( Box.createRigidArea( new Dimension(0, 3) ) );
+        pane.add( recordSwitch );
+        pane.add( Box.createRigidArea( new Dimension(0, 3) ) );
+        pane.add( hexSwitch );
+        pane.add( Box.createRigidArea( new Dimension(0, 3) ) );
+        pane.add( filterSwitch );
+        pane.add( Box.createRigidArea( new Dimension(0, 3) ) );
+        pane.add( plotSwitch );
         
         pane.setBorder( BorderFactory.createEmptyBorder(3, 3, 3, 3) );
         return pane;
     }
     
     private void sendMessage() {
-        try {
-            String message = inputField.getText();
-            inputField.setText("");
-            
-            byte[] messageBytes = message.getBytes( MESSAGE_CHARSET );
-            OutputStream out = communicator.getOut();
-            out.write( messageBytes );
-            if ( isLFSelected() ) out.write('\n');
-            if ( isCRSelected() ) out.write('\r');            
-            out.flush();
-            printOutputLine( new String(messageBytes, MESSAGE_CHARSET) );
-        } catch (IOException ex) {
-            Exceptions.printStackTrace(ex);
+        String message = inputField.getText();
+        inputField.setText("");
+
+        Charset charset = communicator.getConfig().getCharset();
+        byte[] messageBytes = message.getBytes( charset );
+        int length = messageBytes.length + (isLFSelected() ? 1 : 0) + (isCRSelected() ? 1 : 0);
+        byte[] data = Arrays.copyOf( messageBytes, length );
+        int i = messageBytes.length;
+        if ( isLFSelected() ) data[i++] = '\n';
+        if ( isCRSelected() ) data[i++] = '\r';
+        if ( communicator.getTransmitter().send( data ) ) {
+            printOutputLine( new String(messageBytes, charset) );
+        } else {
+            printNotificationLine( getLocalizedText("transmitQueueFullNotification") );
+        }
+    }
+    
+    private void sendFile() {
+        Preferences prefs = NbPreferences.forModule( SerialMonitorDisplayPane.class );
+        JFileChooser chooser = new JFileChooser( prefs.get( SEND_FILE_DIRECTORY_KEY, System.getProperty("user.home") ) );
+        if ( chooser.showOpenDialog( this ) != JFileChooser.APPROVE_OPTION ) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        prefs.put( SEND_FILE_DIRECTORY_KEY, file.getParent() );
+        if ( communicator.getTransmitter().sendFile( file ) ) {
+            setSendingFile( true );
+            printNotificationLine( MessageFormat.format( getLocalizedText("sendFileStartedNotification"), file.getName(), file.length() ) );
+        } else {
+            printNotificationLine( getLocalizedText("transmitQueueFullNotification") );
         }
     }
     
+    private void setSendingFile( boolean sending ) {
+        sendingFile = sending;
+        sendFileButton.setText( getLocalizedComponentText( sending ? "cancelSendFileButton" : "sendFileButton" ) );
+        transferLabel.setText( null );
+    }
+    
     private void printOutputLine( String message ) {
         print(message+"\n", outputStyle);
     }
     
-    private void printInput( String message ) {
+    private void printInput( CharSequence message ) {
         print(message, inputStyle);
     }
     
@@ -280,49 +559,61 @@ public class SerialMonitorDisplayPane extends JPanel {
         print(message+"\n", notificationStyle);
     }
     
-    private void print( final String message, final Style style ) {
-        SwingUtilities.invokeLater( () -> {
-            try {
-                document.insertString( document.getLength(), message, style );
-            } catch (BadLocationException ex) {
-                Exceptions.printStackTrace(ex);
-            }
-        });
+    private void print( CharSequence message, Style style ) {
+        consoleFilter.print( message, style );
     }
     
     
-    // Adapted from https://tips4java.wordpress.com/2013/03/03/smart-scrolling/
-    private void checkScrollBar(AdjustmentEvent e) {
-        //  The scroll bar listModel contains information needed to determine
-        //  whether the viewport should be repositioned or not.
-
-        JScrollBar scrollBar = (JScrollBar) e.getSource();
+    /**
+     * Follows the end of the console if it was showing before the text of
+     * the current frame was appended. The layout is validated right away so
+     * that the scroll bar only moves once per frame.
+     */
+    private void scrollToEndIfFollowing() {
+        JScrollBar scrollBar = scrollPane.getVerticalScrollBar();
         BoundedRangeModel scrollBarModel = scrollBar.getModel();
-        int value = scrollBarModel.getValue();
-        int extent = scrollBarModel.getExtent();
-        int maximum = scrollBarModel.getMaximum();
+        boolean following = scrollBarModel.getValue() + scrollBarModel.getExtent() >= scrollBarModel.getMaximum();
+        if ( following ) {
+            scrollPane.validate();
+            scrollBar.setValue( scrollBarModel.getMaximum() - scrollBarModel.getExtent() );
+        }
+    }
+    
+    // Reports the transmissions in the console; called on the writer thread
+    private final class TransmitHandler implements SerialTransmitter.Listener {
 
-        boolean valueChanged = previousScrollBarValue != value;
-        boolean maximumChanged = previousScrollBarMaximum != maximum;
+        @Override
+        public void fileProgress( File file, long sentBytes, long totalBytes, double bytesPerSecond ) {
+            String text = MessageFormat.format( getLocalizedText("sendFileProgress"), totalBytes > 0 ? 100 * sentBytes / totalBytes : 100, Math.round( bytesPerSecond ) );
+            SwingUtilities.invokeLater( () -> transferLabel.setText( sendingFile ? text : null ) );
+        }
 
-        //  Check if the user has manually repositioned the scrollbar
-        if (valueChanged && !maximumChanged) {
-            adjustScrollBar = value + extent >= maximum;
+        @Override
+        public void fileSent( File file, long sentBytes, long nanos ) {
+            long rate = nanos > 0 ? Math.round( sentBytes * 1e9 / nanos ) : sentBytes;
+            String message = MessageFormat.format( getLocalizedText("sendFileFinishedNotification"), file.getName(), sentBytes, nanos / 1e9, rate );
+            SwingUtilities.invokeLater( () -> fileDone( message ) );
         }
 
-        //  Reset the "value" so we can reposition the viewport and
-        //  distinguish between a user scroll and a program scroll.
-        //  (ie. valueChanged will be false on a program scroll)
-        if (adjustScrollBar) {
-            //  Scroll the viewport to the end.
-            scrollBar.removeAdjustmentListener(scrollBarAdjustmentListener);
-            value = maximum - extent;
-            scrollBar.setValue(value);
-            scrollBar.addAdjustmentListener(scrollBarAdjustmentListener);
+        @Override
+        public void fileCancelled( File file, long sentBytes ) {
+            String message = MessageFormat.format( getLocalizedText("sendFileCancelledNotification"), file.getName(), sentBytes );
+            SwingUtilities.invokeLater( () -> fileDone( message ) );
         }
 
-        previousScrollBarValue = value;
-        previousScrollBarMaximum = maximum;
+        @Override
+        public void transmitFailed( IOException ex ) {
+            String message = MessageFormat.format( getLocalizedText("transmitFailedNotification"), ex.getMessage() );
+            SwingUtilities.invokeLater( () -> fileDone( message ) );
+        }
+        
+        private void fileDone( String message ) {
+            printNotificationLine( message );
+            if ( communicator.getTransmitter().getPendingFileCount() == 0 ) {
+                setSendingFile( false );
+            }
+        }
+        
     }
     
     private static String getLocalizedComponentText( String componentName ) {
@@ -1,9 +1,17 @@
 package nbpio.serialmonitor;
 
 import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.FlowLayout;
 import java.util.Properties;
 import java.util.logging.Logger;
-import javax.swing.SwingUtilities;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTabbedPane;
+import javax.swing.JToggleButton;
+import javax.swing.JToolBar;
 import org.netbeans.api.settings.ConvertAsProperties;
 import org.openide.awt.ActionID;
 import org.openide.awt.ActionReference;
@@ -30,18 +38,29 @@ import org.openide.util.NbBundle.Messages;
     "CTL_SerialMonitorAction=Serial Monitor",
     "CTL_SerialMonitorTopComponent=Serial Monitor",
     "LBL_Config=Configuration",
-    "HINT_SerialMonitorTopComponent=This is a SerialMonitor window"
+    "LBL_NewSession=New Port",
+    "LBL_Timeline=Merged Timeline",
+    "HINT_SerialMonitorTopComponent=This is a SerialMonitor window",
+    "HINT_NewSession=Monitor another serial port",
+    "HINT_Timeline=Show the lines of all ports in the order they were received",
+    "HINT_CloseSession=Close"
 })
 public final class SerialMonitorTopComponent extends TopComponent {
 
     
     private static final Logger LOGGER = Logger.getLogger( SerialMonitorTopComponent.class.getName() );
     
-    private SerialPortCommunicator communicator;
-    private SerialMonitorConfigModel configModel;
+    // Tells the ports apart in the merged timeline
+    private static final Color[] PORT_COLORS = {
+        Color.LIGHT_GRAY, Color.CYAN, Color.YELLOW, Color.MAGENTA, Color.ORANGE, Color.GREEN, Color.PINK
+    };
+    
+    private final JTabbedPane tabs = new JTabbedPane();
+    private final MergedTimelinePane timelinePane = new MergedTimelinePane();
+    private JToggleButton timelineSwitch;
+    private int sessionCount;
     
     public SerialMonitorTopComponent() {        
-        configModel = new DefaultSerialMonitorConfigModel();
         initComponents();
     }
     
@@ -49,7 +68,24 @@ public final class SerialMonitorTopComponent extends TopComponent {
         setName(Bundle.CTL_SerialMonitorTopComponent() + " - " + Bundle.LBL_Config());
         setToolTipText(Bundle.HINT_SerialMonitorTopComponent());
         setLayout( new BorderLayout() );
-        add( new SerialMonitorConfigPane( configModel, (event) -> handleConnect() ));
+        
+        JButton newSessionButton = new JButton( Bundle.LBL_NewSession() );
+        newSessionButton.setToolTipText( Bundle.HINT_NewSession() );
+        newSessionButton.addActionListener( (e) -> addSession() );
+        
+        timelineSwitch = new JToggleButton( Bundle.LBL_Timeline() );
+        timelineSwitch.setToolTipText( Bundle.HINT_Timeline() );
+        timelineSwitch.addActionListener( (e) -> setTimelineVisible( timelineSwitch.isSelected() ) );
+        
+        JToolBar toolBar = new JToolBar();
+        toolBar.setFloatable( false );
+        toolBar.add( newSessionButton );
+        toolBar.add( timelineSwitch );
+        
+        tabs.addChangeListener( (e) -> updateName() );
+        add( toolBar, BorderLayout.NORTH );
+        add( tabs, BorderLayout.CENTER );
+        addSession();
     }    
 
     @Override
@@ -59,8 +95,10 @@ public final class SerialMonitorTopComponent extends TopComponent {
 
     @Override
     public void componentClosed() {
-        if ( communicator != null ) {
-            communicator.disconnect();
+        for ( int i=tabs.getTabCount()-1; i>=0; i-- ) {
+            if ( tabs.getComponentAt(i) instanceof SerialSessionPane ) {
+                ((SerialSessionPane) tabs.getComponentAt(i)).close();
+            }
         }
     }
 
@@ -77,26 +115,75 @@ public final class SerialMonitorTopComponent extends TopComponent {
     }
     
     
-    private void handleConnect() {
-        SerialPortConfig config = configModel.getCurrentConfig();
-        communicator = new SerialPortCommunicator( config );
-        SwingUtilities.invokeLater( () -> {
-            removeAll();
-            add( new SerialMonitorDisplayPane(communicator, (event) -> handleConfigure()) );
-            setName( Bundle.CTL_SerialMonitorTopComponent() + " - " + communicator.getConfig().getPortName() );
-            revalidate();
-        });
+    private void addSession() {
+        Color color = PORT_COLORS[sessionCount++ % PORT_COLORS.length];
+        SerialSessionPane session = new SerialSessionPane( timelinePane.getTimeline(), color, this::updateTitle );
+        tabs.addTab( session.getTitle(), session );
+        int index = tabs.indexOfComponent( session );
+        tabs.setTabComponentAt( index, new SessionTab( session ) );
+        tabs.setSelectedIndex( index );
     }
-
-    private void handleConfigure() {
-        if ( communicator != null ) {
-            communicator.disconnect();
+    
+    private void closeSession( SerialSessionPane session ) {
+        session.close();
+        tabs.remove( session );
+        boolean sessionsLeft = false;
+        for ( int i=0; i<tabs.getTabCount(); i++ ) {
+            sessionsLeft |= tabs.getComponentAt(i) instanceof SerialSessionPane;
+        }
+        if ( !sessionsLeft ) {
+            addSession();
+        }
+    }
+    
+    private void setTimelineVisible( boolean visible ) {
+        if ( visible ) {
+            tabs.insertTab( Bundle.LBL_Timeline(), null, timelinePane, Bundle.HINT_Timeline(), 0 );
+            tabs.setSelectedIndex( 0 );
+        } else {
+            tabs.remove( timelinePane );
+        }
+    }
+    
+    private void updateTitle( SerialSessionPane session ) {
+        int index = tabs.indexOfComponent( session );
+        if ( index >= 0 ) {
+            tabs.setTitleAt( index, session.getTitle() );
+            tabs.getTabComponentAt( index ).revalidate();
+        }
+        updateName();
+    }
+    
+    private void updateName() {
+        int index = tabs.getSelectedIndex();
+        String title = index >= 0 ? tabs.getTitleAt( index ) : Bundle.LBL_Config();
+        setName( Bundle.CTL_SerialMonitorTopComponent() + " - " + title );
+    }
+    
+    
+    // A tab title with a button which closes the session
+    private final class SessionTab extends JPanel {
+        
+        SessionTab( SerialSessionPane session ) {
+            super( new FlowLayout( FlowLayout.LEFT, 0, 0 ) );
+            setOpaque( false );
+            JLabel label = new JLabel() {
+                @Override
+                public String getText() {
+                    int index = tabs.indexOfTabComponent( SessionTab.this );
+                    return index >= 0 ? tabs.getTitleAt( index ) : null;
+                }
+            };
+            label.setBorder( BorderFactory.createEmptyBorder(0, 0, 0, 5) );
+            JButton closeButton = new JButton( "\u00D7" );
+            closeButton.setToolTipText( Bundle.HINT_CloseSession() );
+            closeButton.setBorder( BorderFactory.createEmptyBorder() );
+            closeButton.setContentAreaFilled( false );
+            closeButton.setFocusable( false );
+            closeButton.addActionListener( (e) -> closeSession( session ) );
+            add( label );
+            add( closeButton );
         }
-        SwingUtilities.invokeLater( () -> {
-            removeAll();
-            add( new SerialMonitorConfigPane( configModel, (event) -> handleConnect()) );
-            setName(Bundle.CTL_SerialMonitorTopComponent() + " - " + Bundle.LBL_Config());
-            revalidate();
-        });
+        
     }
 }
@@ -1,44 +1,91 @@
 package nbpio.serialmonitor;
 
+import java.io.File;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.TooManyListenersException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.logging.Logger;
-import purejavacomm.CommPortIdentifier;
 import purejavacomm.NoSuchPortException;
 import purejavacomm.PortInUseException;
-import purejavacomm.SerialPort;
-import purejavacomm.SerialPortEvent;
 import purejavacomm.UnsupportedCommOperationException;
 
 public class SerialPortCommunicator {
     
     private static final Logger LOGGER = Logger.getLogger( SerialPortCommunicator.class.getName() );
     
+    // Bounds the time a read may block; the scheduler only reads what is available
+    private static final int READ_TIMEOUT_MILLIS = 200;
+    
     private final SerialPortConfig config;    
+    private final SerialStreamSource source;
+    private final SerialIOScheduler scheduler;
+    private final List<SerialInputListener> inputListeners = new CopyOnWriteArrayList<>();
     private Consumer<Boolean> connectionHandler;
-    private Consumer<InputStream> inputHandler;
-    private SerialPort port;
+    private SerialPortReader reader;
+    private SerialStreamSource.Connection connection;
+    private final SerialTransmitter transmitter;
+    private final SerialStatistics statistics = new SerialStatistics();
     private InputStream in;
-    private OutputStream out;
+    private volatile OutputStream out;
+    private volatile CaptureRecorder captureRecorder;
+    private PortReconnector reconnector;
 
     public SerialPortCommunicator( SerialPortConfig config ) {
+        this( config, SerialPortStreamSource.INSTANCE );
+    }
+
+    /**
+     * Creates a communicator which gets its streams from the given source
+     * instead of the serial port named in the configuration, e.g. from a
+     * {@link CaptureReplaySource}.
+     */
+    public SerialPortCommunicator( SerialPortConfig config, SerialStreamSource source ) {
+        this( config, source, SerialIOScheduler.getDefault() );
+    }
+
+    public SerialPortCommunicator( SerialPortConfig config, SerialStreamSource source, SerialIOScheduler scheduler ) {
         this.config = config;        
+        this.source = source;
+        this.scheduler = scheduler;
+        this.transmitter = new SerialTransmitter( "Serial Port Writer - " + config.getPortName(), this::getOut, statistics );
+        addInputListener( new SerialInputListener() {
+            @Override
+            public void textReceived( CharBuffer text ) {}
+
+            @Override
+            public void bytesReceived( ByteBuffer bytes ) {
+                statistics.addReceived( bytes.remaining() );
+            }
+        });
     }
 
     public SerialPortConfig getConfig() {
         return config;
     }
     
-    public void connect( Consumer<Boolean> connectionHandler, Consumer<InputStream> inputHandler ) throws TooManyListenersException, UnsupportedCommOperationException, PortInUseException, NoSuchPortException, IOException {
+    public void addInputListener( SerialInputListener listener ) {
+        inputListeners.add( listener );
+    }
+    
+    public void removeInputListener( SerialInputListener listener ) {
+        inputListeners.remove( listener );
+    }
+    
+    public synchronized void connect( Consumer<Boolean> connectionHandler, SerialInputListener inputListener ) throws UnsupportedCommOperationException, PortInUseException, NoSuchPortException, IOException {
         this.connectionHandler = connectionHandler;
-        this.inputHandler = inputHandler;
-        CommPortIdentifier portid = CommPortIdentifier.getPortIdentifier( config.getPortName() );
-        port = (SerialPort) portid.open(getClass().getName(), 1000);
+        if ( inputListener != null ) {
+            addInputListener( inputListener );
+        }
+        connection = source.open( config, READ_TIMEOUT_MILLIS );
         connectionHandler.accept(Boolean.FALSE);  // first connection
-        setupPort();
+        setupStreams();
     }
     
     public InputStream getIn() {
@@ -49,57 +96,144 @@ public class SerialPortCommunicator {
         return out;
     }    
     
-    public void reconnect() throws NoSuchPortException, PortInUseException, IOException, UnsupportedCommOperationException, TooManyListenersException {
+    public SerialStatistics getStatistics() {
+        return statistics;
+    }
+    
+    /**
+     * Returns the transmitter through which everything should be sent, so
+     * that writing never blocks the caller.
+     */
+    public SerialTransmitter getTransmitter() {
+        return transmitter;
+    }
+    
+    /**
+     * Starts recording the received and sent bytes into the given directory,
+     * replacing a recording in progress.
+     */
+    public synchronized CaptureRecorder startCapture( File directory, int segmentSize ) throws IOException {
+        stopCapture();
+        CaptureRecorder recorder = new CaptureRecorder( directory, segmentSize );
+        addInputListener( recorder );
+        captureRecorder = recorder;
+        return recorder;
+    }
+    
+    public synchronized void stopCapture() {
+        CaptureRecorder recorder = captureRecorder;
+        if ( recorder != null ) {
+            captureRecorder = null;
+            removeInputListener( recorder );
+            recorder.close();
+        }
+    }
+    
+    public CaptureRecorder getCaptureRecorder() {
+        return captureRecorder;
+    }
+    
+    public synchronized void reconnect() throws NoSuchPortException, PortInUseException, IOException, UnsupportedCommOperationException {
         disconnect();
-        CommPortIdentifier portid = CommPortIdentifier.getPortIdentifier( config.getPortName() );
-        if ( portid != null ) {
-            port = (SerialPort) portid.open(getClass().getName(), 1000);
+        connection = source.open( config, READ_TIMEOUT_MILLIS );
+        connectionHandler.accept(Boolean.TRUE);  // reconnection
+        setupStreams();
+    }
+            
+    
+    /**
+     * Closes the connection and stops looking for the port.
+     */
+    public synchronized void disconnect() {
+        if ( reconnector != null ) {
+            reconnector.cancel();
+            reconnector = null;
+        }
+        if ( reader != null ) {
+            reader.stop();
+            reader = null;
+        }
+        if ( connection != null ) {
+            connection.close();
+        }
+    }
+    
+    /**
+     * Tries to open the port again until it succeeds or {@link #disconnect()}
+     * is called. See {@link PortReconnector} for when it is tried.
+     */
+    public synchronized void startScanningForPort() {
+        if ( reconnector == null ) {
+            // Only real ports show up in the registry
+            SerialPortRegistry registry = source == SerialPortStreamSource.INSTANCE ? SerialPortRegistry.getDefault() : null;
+            reconnector = new PortReconnector( scheduler, registry, config.getPortName(), this::reopenPort );
+            reconnector.start();
+        }
+    }
+    
+    private synchronized boolean reopenPort() {
+        if ( reconnector == null ) {
+            // disconnected or reconnected by an earlier attempt
+            return true;
+        }
+        try {                    
+            connection = source.open( config, READ_TIMEOUT_MILLIS );
+        } catch (NoSuchPortException ex) {
+            return false;
+        } catch (Exception ex) {
+            LOGGER.log( Level.FINE, "Failed to reopen " + config.getPortName(), ex );
+            return false;
+        }
+        try {
             connectionHandler.accept(Boolean.TRUE);  // reconnection
-            setupPort();
+            setupStreams();
+            reconnector = null;
+            return true;
+        } catch (IOException ex) {
+            LOGGER.log( Level.FINE, "Failed to reopen " + config.getPortName(), ex );
+            connection.close();
+            return false;
         }
     }
-            
     
-    public void disconnect() {
-        port.close();
-    }
-    
-    public void startScanningForPort() {
-        Thread t = new Thread( () -> {
-            while ( true ) {
-                try {                    
-                    CommPortIdentifier portid = CommPortIdentifier.getPortIdentifier( config.getPortName() );
-                    if ( portid != null ) {
-                        port = (SerialPort) portid.open(getClass().getName(), 1000);
-                        connectionHandler.accept(Boolean.TRUE);  // reconnection
-                        setupPort();
-                        return;
-                    }
-                    Thread.sleep(1000);
-                } catch (InterruptedException ex) {
-                    return;
-                } catch (NoSuchPortException ex) {
-                    // ignore
-                } catch (Exception ex) {
-                    ex.printStackTrace();
-                }
+    private void setupStreams() throws IOException {
+        in = connection.getInputStream();
+        out = new CapturingOutputStream( connection.getOutputStream() );
+        reader = new SerialPortReader( in, config.getCharset(), inputListeners );
+        reader.start( scheduler );
+    }
+    
+    
+    // Records what is sent while a capture is in progress
+    private class CapturingOutputStream extends FilterOutputStream {
+        
+        private final byte[] singleByte = new byte[1];
+        
+        CapturingOutputStream( OutputStream out ) {
+            super( out );
+        }
+
+        @Override
+        public void write( int b ) throws IOException {
+            out.write( b );
+            statistics.addSent( 1 );
+            CaptureRecorder recorder = captureRecorder;
+            if ( recorder != null ) {
+                singleByte[0] = (byte) b;
+                recorder.record( CaptureRecorder.SENT, singleByte, 0, 1 );
             }
-        });        
-        t.start();
-    }
-    
-    private void setupPort() throws IOException, UnsupportedCommOperationException, TooManyListenersException {
-        in = port.getInputStream();
-        out = port.getOutputStream();
-        port.notifyOnDataAvailable(true);
-        port.notifyOnOutputEmpty(false);
-        port.setFlowControlMode( config.getFlowControl() );
-        port.setSerialPortParams( config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity() );
-        port.addEventListener( (SerialPortEvent event) -> {
-            if (event.getEventType() == SerialPortEvent.DATA_AVAILABLE) {
-                inputHandler.accept( in );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException {
+            out.write( b, off, len );
+            statistics.addSent( len );
+            CaptureRecorder recorder = captureRecorder;
+            if ( recorder != null ) {
+                recorder.record( CaptureRecorder.SENT, b, off, len );
             }
-        });
+        }
+        
     }
     
 }
@@ -1,5 +1,7 @@
 package nbpio.serialmonitor;
 
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 
 public final class SerialPortConfig {
@@ -10,6 +12,7 @@ public final class SerialPortConfig {
     private final int dataBits;
     private final int stopBits;
     private final int parity;
+    private final Charset charset;
 
     private SerialPortConfig( Builder b ) {
         this.portName = b.portName;
@@ -18,6 +21,7 @@ public final class SerialPortConfig {
         this.dataBits = b.dataBits;
         this.stopBits = b.stopBits;
         this.parity = b.parity;
+        this.charset = b.charset;
     }
 
     public String getPortName() {
@@ -43,6 +47,10 @@ public final class SerialPortConfig {
     public int getParity() {
         return parity;
     }
+
+    public Charset getCharset() {
+        return charset;
+    }
     
     @Override
     public int hashCode() {
@@ -53,6 +61,7 @@ public final class SerialPortConfig {
         hash = 97 * hash + this.dataBits;
         hash = 97 * hash + this.stopBits;
         hash = 97 * hash + this.parity;
+        hash = 97 * hash + Objects.hashCode(this.charset);
         return hash;
     }
 
@@ -86,6 +95,9 @@ public final class SerialPortConfig {
         if (!Objects.equals(this.portName, other.portName)) {
             return false;
         }
+        if (!Objects.equals(this.charset, other.charset)) {
+            return false;
+        }
         return true;
     }
     
@@ -98,6 +110,7 @@ public final class SerialPortConfig {
         private int dataBits;
         private int stopBits;
         private int parity;
+        private Charset charset = StandardCharsets.UTF_8;
         
         public Builder() {}
         
@@ -131,6 +144,11 @@ public final class SerialPortConfig {
             return this;
         }
         
+        public Builder charset( Charset charset ) {
+            this.charset = charset;
+            return this;
+        }
+        
         public SerialPortConfig build() {
             return new SerialPortConfig(this);
         }
@@ -0,0 +1,139 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Reads a serial port input stream into one byte buffer and one char buffer
+ * which are reused for every chunk, decodes it with a single decoder and
+ * hands the chunks over to the listeners. A multi-byte character split
+ * between two reads is kept until its remaining bytes arrive.
+ * <p>
+ * The reader is polled by a {@link SerialIOScheduler} with
+ * {@link #pollOnce()}, which never blocks.
+ */
+final class SerialPortReader {
+
+    static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final CharsetDecoder decoder;
+    private final List<SerialInputListener> listeners;
+    private final byte[] bytes;
+    private final ByteBuffer byteBuffer;
+    private final ByteBuffer readBytes;
+    private final CharBuffer charBuffer;
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private boolean failed;
+
+
+    SerialPortReader( InputStream in, Charset charset, List<SerialInputListener> listeners ) {
+        this( in, charset, listeners, DEFAULT_BUFFER_SIZE );
+    }
+
+    SerialPortReader( InputStream in, Charset charset, List<SerialInputListener> listeners, int bufferSize ) {
+        this.in = in;
+        this.listeners = listeners instanceof CopyOnWriteArrayList ? listeners : new CopyOnWriteArrayList<>( listeners );
+        this.decoder = charset.newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        this.bytes = new byte[bufferSize];
+        this.byteBuffer = ByteBuffer.wrap( bytes );
+        this.readBytes = ByteBuffer.wrap( bytes ).asReadOnlyBuffer();
+        this.charBuffer = CharBuffer.allocate( (int) Math.ceil( bufferSize * (double) decoder.maxCharsPerByte() ) );
+    }
+
+    /**
+     * Has the scheduler poll the reader until {@link #stop()} is called or
+     * reading fails.
+     */
+    synchronized void start( SerialIOScheduler scheduler ) {
+        if ( running ) {
+            throw new IllegalStateException( "The reader has already been started!" );
+        }
+        running = true;
+        scheduler.poll( this );
+    }
+
+    /**
+     * Stops the reader; the scheduler drops it at its next turn.
+     */
+    synchronized void stop() {
+        stopped = true;
+        running = false;
+    }
+
+    boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Reads and delivers whatever is available without blocking.
+     *
+     * @return the number of bytes read, or -1 if reading has failed
+     */
+    int pollOnce() {
+        return failed ? -1 : readChunk();
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private int readChunk() {
+        try {
+            int offset = byteBuffer.position();
+            int length = Math.min( byteBuffer.remaining(), in.available() );
+            if ( length <= 0 ) {
+                return 0;
+            }
+            int n = in.read( bytes, offset, length );
+            if ( n < 0 ) {
+                throw new IOException( "End of stream" );
+            }
+            if ( n > 0 ) {
+                deliver( offset, n );
+            }
+            return n;
+        } catch (IOException ex) {
+            // Closing the port after stopping the reader is no failure
+            if ( !stopped ) {
+                failed = true;
+                running = false;
+                listeners.forEach( (l) -> l.readFailed(ex) );
+            }
+            return -1;
+        }
+    }
+
+    private void deliver( int offset, int count ) {
+        readBytes.limit( offset + count ).position( offset );
+        listeners.forEach( (l) -> {
+            l.bytesReceived( readBytes );
+            readBytes.position( offset );
+        });
+
+        byteBuffer.position( offset + count );
+        byteBuffer.flip();
+        decoder.decode( byteBuffer, charBuffer, false );
+        charBuffer.flip();
+        if ( charBuffer.hasRemaining() ) {
+            listeners.forEach( (l) -> {
+                l.textReceived( charBuffer );
+                charBuffer.rewind();
+            });
+        }
+        charBuffer.clear();
+        // Keeps the bytes of an incomplete character for the next read
+        byteBuffer.compact();
+    }
+
+}
@@ -0,0 +1,253 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import org.openide.util.RequestProcessor;
+import purejavacomm.CommPortIdentifier;
+import purejavacomm.PortInUseException;
+import purejavacomm.SerialPort;
+
+/**
+ * Keeps the names of the serial ports available, so that they can be shown
+ * without probing the ports. The ports are enumerated once in the background;
+ * after that, devices appearing in or disappearing from /dev update the names
+ * one by one, and only a new device is probed. Where there is no /dev to
+ * watch, {@link #refresh()} enumerates the ports again in the background.
+ * <p>
+ * A port is listed if it can be opened or is in use, so a port opened by
+ * another session stays in the list.
+ */
+public final class SerialPortRegistry {
+
+    private static final Logger LOGGER = Logger.getLogger( SerialPortRegistry.class.getName() );
+
+    private static final String PORT_OWNER_NAME = SerialPortRegistry.class.getName();
+    private static final Path DEVICE_DIR = Paths.get( "/dev" );
+    private static final int PROBE_TIMEOUT_MILLIS = 10;
+    // A new device node may only become accessible once its permissions are set
+    private static final int PROBE_ATTEMPTS = 3;
+    private static final int PROBE_RETRY_DELAY_MILLIS = 500;
+
+    private static SerialPortRegistry defaultRegistry;
+
+    private final RequestProcessor processor = new RequestProcessor( SerialPortRegistry.class.getName(), 1 );
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final Set<String> portNames = new TreeSet<>();
+    private volatile String[] cachedPortNames = new String[0];
+    private volatile boolean enumerated;
+    private WatchService watchService;
+
+
+    /**
+     * Returns the registry shared by all serial monitor sessions, starting
+     * the enumeration of the ports when called for the first time.
+     */
+    public static synchronized SerialPortRegistry getDefault() {
+        if ( defaultRegistry == null ) {
+            defaultRegistry = new SerialPortRegistry();
+            defaultRegistry.start();
+        }
+        return defaultRegistry;
+    }
+
+    private SerialPortRegistry() {
+        // use getDefault()
+    }
+
+    /**
+     * Returns the names of the available ports in alphabetical order. Never
+     * blocks; the array is empty until the first enumeration has finished.
+     */
+    public String[] getPortNames() {
+        return cachedPortNames.clone();
+    }
+
+    /**
+     * Tells whether the first enumeration of the ports has finished.
+     */
+    public boolean isEnumerated() {
+        return enumerated;
+    }
+
+    /**
+     * Tells whether the names follow the devices by themselves, without
+     * calling {@link #refresh()}.
+     */
+    public synchronized boolean isWatching() {
+        return watchService != null;
+    }
+
+    /**
+     * Enumerates and probes all ports again in the background.
+     */
+    public void refresh() {
+        processor.post( this::enumerate );
+    }
+
+    /**
+     * Adds a listener notified on the event dispatch thread whenever the
+     * names change.
+     */
+    public void addChangeListener( ChangeListener listener ) {
+        listeners.add( listener );
+    }
+
+    public void removeChangeListener( ChangeListener listener ) {
+        listeners.remove( listener );
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void start() {
+        processor.post( this::enumerate );
+        if ( Files.isDirectory( DEVICE_DIR ) ) {
+            try {
+                WatchService service = FileSystems.getDefault().newWatchService();
+                DEVICE_DIR.register( service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE );
+                synchronized ( this ) {
+                    watchService = service;
+                }
+                Thread watcher = new Thread( () -> watch( service ), "Serial Port Watcher" );
+                watcher.setDaemon( true );
+                watcher.start();
+            } catch (IOException | UnsupportedOperationException ex) {
+                LOGGER.log( Level.INFO, "Cannot watch " + DEVICE_DIR + ", ports are only listed on refresh", ex );
+            }
+        }
+    }
+
+    private void watch( WatchService service ) {
+        try {
+            while ( true ) {
+                WatchKey key = service.take();
+                for ( WatchEvent<?> event : key.pollEvents() ) {
+                    if ( event.kind() == StandardWatchEventKinds.OVERFLOW ) {
+                        processor.post( this::enumerate );
+                    } else {
+                        String name = event.context().toString();
+                        if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE ) {
+                            processor.post( () -> probeNewPort( name, 1 ) );
+                        } else {
+                            processor.post( () -> removePort( name ) );
+                        }
+                    }
+                }
+                if ( !key.reset() ) {
+                    LOGGER.log( Level.INFO, "{0} can no longer be watched", DEVICE_DIR );
+                    synchronized ( this ) {
+                        watchService = null;
+                    }
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ex) {
+            // the watcher ends
+        }
+    }
+
+    private void enumerate() {
+        Set<String> found = new TreeSet<>();
+        for ( CommPortIdentifier identifier : listIdentifiers() ) {
+            if ( probe( identifier ) ) {
+                found.add( identifier.getName() );
+            }
+        }
+        synchronized ( this ) {
+            portNames.clear();
+            portNames.addAll( found );
+        }
+        enumerated = true;
+        publish();
+    }
+
+    private void probeNewPort( String name, int attempt ) {
+        // Listing the identifiers does not open any port, only probing does
+        for ( CommPortIdentifier identifier : listIdentifiers() ) {
+            if ( name.equals( identifier.getName() ) ) {
+                if ( probe( identifier ) ) {
+                    synchronized ( this ) {
+                        portNames.add( name );
+                    }
+                    publish();
+                } else if ( attempt < PROBE_ATTEMPTS ) {
+                    processor.post( () -> probeNewPort( name, attempt + 1 ), PROBE_RETRY_DELAY_MILLIS );
+                }
+                return;
+            }
+        }
+    }
+
+    private static List<CommPortIdentifier> listIdentifiers() {
+        List<CommPortIdentifier> identifiers = new ArrayList<>();
+        try {
+            Enumeration<?> e = CommPortIdentifier.getPortIdentifiers();
+            while ( e.hasMoreElements() ) {
+                identifiers.add( (CommPortIdentifier) e.nextElement() );
+            }
+        } catch (RuntimeException | LinkageError ex) {
+            // e.g. the native library is missing; there is no port to offer then
+            LOGGER.log( Level.WARNING, "Failed to list the serial ports", ex );
+        }
+        return identifiers;
+    }
+
+    private void removePort( String name ) {
+        boolean removed;
+        synchronized ( this ) {
+            removed = portNames.remove( name );
+        }
+        if ( removed ) {
+            publish();
+        }
+    }
+
+    private static boolean probe( CommPortIdentifier identifier ) {
+        SerialPort port = null;
+        try {
+            port = (SerialPort) identifier.open( PORT_OWNER_NAME, PROBE_TIMEOUT_MILLIS );
+            return true;
+        } catch (PortInUseException ex) {
+            return true;
+        } catch (Exception ex) {
+            return false;
+        } finally {
+            if ( port != null ) {
+                port.close();
+            }
+        }
+    }
+
+    private void publish() {
+        synchronized ( this ) {
+            cachedPortNames = portNames.toArray( new String[portNames.size()] );
+        }
+        SwingUtilities.invokeLater( () -> {
+            ChangeEvent event = new ChangeEvent( this );
+            for ( ChangeListener listener : listeners ) {
+                listener.stateChanged( event );
+            }
+        });
+    }
+
+}
@@ -0,0 +1,57 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import purejavacomm.CommPortIdentifier;
+import purejavacomm.NoSuchPortException;
+import purejavacomm.PortInUseException;
+import purejavacomm.SerialPort;
+import purejavacomm.UnsupportedCommOperationException;
+
+/**
+ * Connects to the serial port named in the configuration.
+ */
+final class SerialPortStreamSource implements SerialStreamSource {
+
+    static final SerialPortStreamSource INSTANCE = new SerialPortStreamSource();
+
+    private static final int OPEN_TIMEOUT_MILLIS = 1000;
+
+
+    private SerialPortStreamSource() {
+    }
+
+    @Override
+    public Connection open( SerialPortConfig config, int receiveTimeoutMillis ) throws NoSuchPortException, PortInUseException, UnsupportedCommOperationException, IOException {
+        CommPortIdentifier portid = CommPortIdentifier.getPortIdentifier( config.getPortName() );
+        SerialPort port = (SerialPort) portid.open( SerialPortCommunicator.class.getName(), OPEN_TIMEOUT_MILLIS );
+        try {
+            port.notifyOnDataAvailable(false);
+            port.notifyOnOutputEmpty(false);
+            port.setFlowControlMode( config.getFlowControl() );
+            port.setSerialPortParams( config.getBaudRate(), config.getDataBits(), config.getStopBits(), config.getParity() );
+            port.enableReceiveTimeout( receiveTimeoutMillis );
+        } catch (UnsupportedCommOperationException ex) {
+            port.close();
+            throw ex;
+        }
+        return new Connection() {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                return port.getInputStream();
+            }
+
+            @Override
+            public OutputStream getOutputStream() throws IOException {
+                return port.getOutputStream();
+            }
+
+            @Override
+            public void close() {
+                port.close();
+            }
+        };
+    }
+
+}
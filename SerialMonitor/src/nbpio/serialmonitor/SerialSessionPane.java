@@ -0,0 +1,89 @@
+package nbpio.serialmonitor;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.util.function.Consumer;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+
+/**
+ * One port of the serial monitor: the configuration of the port until it is
+ * connected, the console afterwards. The lines received are also passed to
+ * the merged timeline of all ports.
+ */
+final class SerialSessionPane extends JPanel {
+
+    private final SerialMonitorConfigModel configModel = new DefaultSerialMonitorConfigModel();
+    private final MergedTimeline timeline;
+    private final Color timelineColor;
+    private final Consumer<SerialSessionPane> titleHandler;
+    private SerialPortCommunicator communicator;
+    private SerialInputListener timelineSource;
+    private SerialMonitorDisplayPane displayPane;
+
+
+    /**
+     * @param titleHandler called on the EDT when the title of the session
+     * changes
+     */
+    SerialSessionPane( MergedTimeline timeline, Color timelineColor, Consumer<SerialSessionPane> titleHandler ) {
+        this.timeline = timeline;
+        this.timelineColor = timelineColor;
+        this.titleHandler = titleHandler;
+        setLayout( new BorderLayout() );
+        add( new SerialMonitorConfigPane( configModel, (event) -> handleConnect() ) );
+    }
+
+    String getTitle() {
+        return communicator != null ? communicator.getConfig().getPortName() : Bundle.LBL_Config();
+    }
+
+    SerialPortCommunicator getCommunicator() {
+        return communicator;
+    }
+
+    /**
+     * Stops recording, disconnects the port and releases the console.
+     */
+    void close() {
+        if ( displayPane != null ) {
+            displayPane.dispose();
+            displayPane = null;
+        }
+        if ( communicator != null ) {
+            communicator.removeInputListener( timelineSource );
+            communicator.stopCapture();
+            communicator.disconnect();
+        }
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private void handleConnect() {
+        SerialPortConfig config = configModel.getCurrentConfig();
+        communicator = new SerialPortCommunicator( config );
+        timelineSource = timeline.createSource( config.getPortName(), timelineColor, communicator.getStatistics() );
+        communicator.addInputListener( timelineSource );
+        SwingUtilities.invokeLater( () -> {
+            removeAll();
+            displayPane = new SerialMonitorDisplayPane(communicator, (event) -> handleConfigure());
+            add( displayPane );
+            revalidate();
+            titleHandler.accept( this );
+        });
+    }
+
+    private void handleConfigure() {
+        close();
+        communicator = null;
+        SwingUtilities.invokeLater( () -> {
+            removeAll();
+            add( new SerialMonitorConfigPane( configModel, (event) -> handleConnect()) );
+            revalidate();
+            titleHandler.accept( this );
+        });
+    }
+
+}
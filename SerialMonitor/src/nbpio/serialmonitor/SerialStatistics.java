@@ -0,0 +1,138 @@
+package nbpio.serialmonitor;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what passes between a serial port and its console, so that a
+ * device which sends too much can be told from a console which cannot keep
+ * up. The port side counts the bytes and chunks received and the bytes
+ * sent; the console side reports every frame it renders. Rates are derived
+ * from two {@link Snapshot}s taken some time apart.
+ */
+public final class SerialStatistics {
+
+    private final LongAdder bytesReceived = new LongAdder();
+    private final LongAdder chunksReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder droppedBytes = new LongAdder();
+    private volatile int renderBacklog;
+    private volatile long flushLatencyNanos;
+    private volatile long flushDurationNanos;
+
+
+    public void addReceived( int bytes ) {
+        bytesReceived.add( bytes );
+        chunksReceived.increment();
+    }
+
+    public void addSent( int bytes ) {
+        bytesSent.add( bytes );
+    }
+
+    /**
+     * Counts bytes which were dropped or cut off instead of being sent or
+     * shown.
+     */
+    public void addDropped( long bytes ) {
+        droppedBytes.add( bytes );
+    }
+
+    /**
+     * Reports a rendered frame.
+     *
+     * @param characters the characters which waited for the frame
+     * @param latencyNanos the time from the first of them being printed to
+     * the end of the frame
+     * @param durationNanos the time the frame took on the EDT
+     */
+    public void addFrame( int characters, long latencyNanos, long durationNanos ) {
+        renderBacklog = characters;
+        flushLatencyNanos = latencyNanos;
+        flushDurationNanos = durationNanos;
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot( this );
+    }
+
+
+    /**
+     * The counters at one point in time.
+     */
+    public static final class Snapshot {
+
+        private final long timeNanos;
+        private final long bytesReceived;
+        private final long chunksReceived;
+        private final long bytesSent;
+        private final long droppedBytes;
+        private final int renderBacklog;
+        private final long flushLatencyNanos;
+        private final long flushDurationNanos;
+
+        private Snapshot( SerialStatistics statistics ) {
+            this.timeNanos = System.nanoTime();
+            this.bytesReceived = statistics.bytesReceived.sum();
+            this.chunksReceived = statistics.chunksReceived.sum();
+            this.bytesSent = statistics.bytesSent.sum();
+            this.droppedBytes = statistics.droppedBytes.sum();
+            this.renderBacklog = statistics.renderBacklog;
+            this.flushLatencyNanos = statistics.flushLatencyNanos;
+            this.flushDurationNanos = statistics.flushDurationNanos;
+        }
+
+        public long getTimeNanos() {
+            return timeNanos;
+        }
+
+        public long getBytesReceived() {
+            return bytesReceived;
+        }
+
+        public long getChunksReceived() {
+            return chunksReceived;
+        }
+
+        public long getBytesSent() {
+            return bytesSent;
+        }
+
+        public long getDroppedBytes() {
+            return droppedBytes;
+        }
+
+        /**
+         * Returns the characters which waited for the last frame.
+         */
+        public int getRenderBacklog() {
+            return renderBacklog;
+        }
+
+        public long getFlushLatencyNanos() {
+            return flushLatencyNanos;
+        }
+
+        public long getFlushDurationNanos() {
+            return flushDurationNanos;
+        }
+
+        public double getBytesReceivedPerSecond( Snapshot earlier ) {
+            return perSecond( bytesReceived - earlier.bytesReceived, earlier );
+        }
+
+        public double getChunksReceivedPerSecond( Snapshot earlier ) {
+            return perSecond( chunksReceived - earlier.chunksReceived, earlier );
+        }
+
+        public double getBytesSentPerSecond( Snapshot earlier ) {
+            return perSecond( bytesSent - earlier.bytesSent, earlier );
+        }
+
+        private double perSecond( long count, Snapshot earlier ) {
+            long nanos = timeNanos - earlier.timeNanos;
+            return nanos > 0 ? count * 1e9 / nanos : 0;
+        }
+
+    }
+
+}
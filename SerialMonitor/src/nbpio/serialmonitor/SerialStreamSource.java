@@ -0,0 +1,40 @@
+package nbpio.serialmonitor;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import purejavacomm.NoSuchPortException;
+import purejavacomm.PortInUseException;
+import purejavacomm.UnsupportedCommOperationException;
+
+/**
+ * Opens the streams a {@link SerialPortCommunicator} reads from and writes
+ * to. By default these are the streams of the serial port named in the
+ * configuration; a {@link CaptureReplaySource} plays back a recorded session
+ * instead, so that no device has to be attached.
+ */
+public interface SerialStreamSource {
+
+    /**
+     * Opens a new connection.
+     *
+     * @param receiveTimeoutMillis the longest time a read of the input stream
+     * may block without returning any bytes
+     * @throws NoSuchPortException if there is nothing to connect to (yet)
+     */
+    Connection open( SerialPortConfig config, int receiveTimeoutMillis ) throws NoSuchPortException, PortInUseException, UnsupportedCommOperationException, IOException;
+
+
+    interface Connection extends Closeable {
+
+        InputStream getInputStream() throws IOException;
+
+        OutputStream getOutputStream() throws IOException;
+
+        @Override
+        void close();
+
+    }
+
+}
@@ -0,0 +1,256 @@
+package nbpio.serialmonitor;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.openide.util.RequestProcessor;
+
+/**
+ * Writes to a serial port off the calling thread, so that a slow or flow
+ * controlled device never blocks the event dispatch thread. Messages wait
+ * in a queue of {@value #QUEUE_CAPACITY} entries; the writer joins the
+ * messages waiting into one write and flushes once they are written.
+ * <p>
+ * Files are streamed in chunks as fast as the port accepts them. Flow
+ * control, RTS/CTS or XON/XOFF as set in the {@link SerialPortConfig}, is
+ * applied by the port driver, which blocks the writer while the device is
+ * not ready, so the rate reported is the rate the link actually reached.
+ */
+public final class SerialTransmitter {
+
+    private static final Logger LOGGER = Logger.getLogger( SerialTransmitter.class.getName() );
+
+    public static final int QUEUE_CAPACITY = 256;
+
+    private static final int BATCH_SIZE = 4096;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+
+    /**
+     * Notified on the writer thread.
+     */
+    public interface Listener {
+
+        default void fileProgress( File file, long sentBytes, long totalBytes, double bytesPerSecond ) {}
+
+        default void fileSent( File file, long sentBytes, long nanos ) {}
+
+        default void fileCancelled( File file, long sentBytes ) {}
+
+        /**
+         * Called when a write fails; the message or file being written is
+         * dropped.
+         */
+        default void transmitFailed( IOException ex ) {}
+
+    }
+
+    private final Supplier<OutputStream> output;
+    private final SerialStatistics statistics;
+    private final BlockingQueue<Transmission> queue = new ArrayBlockingQueue<>( QUEUE_CAPACITY );
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final RequestProcessor.Task task;
+    private final byte[] batch = new byte[BATCH_SIZE];
+    private final AtomicInteger pendingFiles = new AtomicInteger();
+    private volatile long sequence;
+    private volatile long cancelledBefore;
+
+
+    /**
+     * @param output supplies the stream of the current connection, which
+     * changes when the port is reconnected
+     * @param statistics counts the bytes dropped because the queue was full
+     */
+    public SerialTransmitter( String name, Supplier<OutputStream> output, SerialStatistics statistics ) {
+        this.output = output;
+        this.statistics = statistics;
+        this.task = new RequestProcessor( name, 1 ).create( this::drain );
+    }
+
+    public void addListener( Listener listener ) {
+        listeners.add( listener );
+    }
+
+    public void removeListener( Listener listener ) {
+        listeners.remove( listener );
+    }
+
+    /**
+     * Queues the bytes for sending.
+     *
+     * @return false if the queue is full and the bytes were dropped
+     */
+    public boolean send( byte[] data ) {
+        if ( !enqueue( new Transmission( data, null, 0 ) ) ) {
+            statistics.addDropped( data.length );
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Queues the file for sending, after the messages queued before it.
+     *
+     * @return false if the queue is full and the file was not queued
+     */
+    public boolean sendFile( File file ) {
+        pendingFiles.incrementAndGet();
+        if ( !enqueue( new Transmission( null, file, nextSequence() ) ) ) {
+            pendingFiles.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Stops sending the current file and drops the files queued.
+     */
+    public void cancelFiles() {
+        cancelledBefore = nextSequence();
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    /**
+     * Counts the files queued or being sent. A file stops counting before
+     * the listeners are told that it was sent, cancelled or failed.
+     */
+    public int getPendingFileCount() {
+        return pendingFiles.get();
+    }
+
+
+    // ******************************************************
+    // ************* PRIVATE HELPER METHODS *****************
+    // ******************************************************
+    private synchronized long nextSequence() {
+        return ++sequence;
+    }
+
+    private boolean enqueue( Transmission transmission ) {
+        if ( !queue.offer( transmission ) ) {
+            return false;
+        }
+        task.schedule( 0 );
+        return true;
+    }
+
+    private void drain() {
+        Transmission next;
+        while ( (next = queue.poll()) != null ) {
+            OutputStream out = output.get();
+            try {
+                if ( out == null ) {
+                    throw new IOException( "The port is not connected" );
+                }
+                if ( next.file != null ) {
+                    sendFile( out, next );
+                } else {
+                    sendMessages( out, next );
+                }
+                out.flush();
+            } catch (IOException ex) {
+                LOGGER.log( Level.FINE, "Failed to transmit", ex );
+                if ( next.file != null ) {
+                    fileDone( next );
+                }
+                listeners.forEach( (l) -> l.transmitFailed( ex ) );
+            }
+        }
+    }
+
+    private void sendMessages( OutputStream out, Transmission first ) throws IOException {
+        if ( first.data.length >= BATCH_SIZE ) {
+            out.write( first.data );
+            return;
+        }
+        int length = 0;
+        Transmission message = first;
+        while ( message != null ) {
+            System.arraycopy( message.data, 0, batch, length, message.data.length );
+            length += message.data.length;
+            Transmission peeked = queue.peek();
+            if ( peeked == null || peeked.file != null || length + peeked.data.length > BATCH_SIZE ) {
+                break;
+            }
+            message = queue.poll();
+        }
+        out.write( batch, 0, length );
+    }
+
+    private void sendFile( OutputStream out, Transmission transmission ) throws IOException {
+        File file = transmission.file;
+        // Files queued before the cancellation are dropped without being opened
+        if ( transmission.sequence < cancelledBefore ) {
+            fileDone( transmission );
+            listeners.forEach( (l) -> l.fileCancelled( file, 0 ) );
+            return;
+        }
+        long total = file.length();
+        long sent = 0;
+        long start = System.nanoTime();
+        long lastProgress = start;
+        try ( InputStream in = Files.newInputStream( file.toPath() ) ) {
+            int n;
+            while ( (n = in.read( batch )) > 0 ) {
+                if ( transmission.sequence < cancelledBefore ) {
+                    fileDone( transmission );
+                    long cancelledAt = sent;
+                    listeners.forEach( (l) -> l.fileCancelled( file, cancelledAt ) );
+                    return;
+                }
+                out.write( batch, 0, n );
+                sent += n;
+                long now = System.nanoTime();
+                if ( now - lastProgress >= PROGRESS_INTERVAL_NANOS ) {
+                    lastProgress = now;
+                    long progress = sent;
+                    double rate = sent * 1e9 / (now - start);
+                    listeners.forEach( (l) -> l.fileProgress( file, progress, total, rate ) );
+                }
+            }
+        }
+        out.flush();
+        fileDone( transmission );
+        long sentBytes = sent;
+        long nanos = System.nanoTime() - start;
+        listeners.forEach( (l) -> l.fileSent( file, sentBytes, nanos ) );
+    }
+
+    private void fileDone( Transmission transmission ) {
+        if ( !transmission.done ) {
+            transmission.done = true;
+            pendingFiles.decrementAndGet();
+        }
+    }
+
+
+    private static final class Transmission {
+
+        private final byte[] data;
+        private final File file;
+        private final long sequence;
+        // Only touched on the writer thread
+        private boolean done;
+
+        Transmission( byte[] data, File file, long sequence ) {
+            this.data = data;
+            this.file = file;
+            this.sequence = sequence;
+        }
+
+    }
+
+}
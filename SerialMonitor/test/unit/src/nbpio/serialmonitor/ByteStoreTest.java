@@ -0,0 +1,86 @@
+package nbpio.serialmonitor;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ByteStoreTest {
+
+    private static final int CHUNK = ByteStore.CHUNK_SIZE;
+
+    @Test
+    public void should_round_the_capacity_up_to_whole_chunks() {
+        assertEquals( CHUNK, new ByteStore( 1 ).getCapacity() );
+        assertEquals( 2 * CHUNK, new ByteStore( CHUNK + 1 ).getCapacity() );
+    }
+
+    @Test
+    public void should_read_bytes_across_chunks() {
+        // Given
+        ByteStore store = new ByteStore( 4 * CHUNK );
+        byte[] data = pattern( 0, 2 * CHUNK + 100 );
+
+        // When
+        store.append( data, 0, CHUNK - 3 );
+        store.append( ByteBuffer.wrap( data, CHUNK - 3, data.length - (CHUNK - 3) ) );
+
+        // Then
+        assertEquals( "Wrong start!", 0, store.getStartOffset() );
+        assertEquals( "Wrong end!", data.length, store.getEndOffset() );
+        byte[] read = new byte[CHUNK + 10];
+        assertEquals( "Wrong number of bytes read!", read.length, store.read( CHUNK - 5, read, 0, read.length ) );
+        assertArrayEquals( "Wrong bytes read!", pattern( CHUNK - 5, read.length ), read );
+    }
+
+    @Test
+    public void should_drop_the_oldest_chunk_when_full() {
+        // Given
+        ByteStore store = new ByteStore( 2 * CHUNK );
+        int length = 3 * CHUNK + 50;
+
+        // When
+        store.append( pattern( 0, length ), 0, length );
+
+        // Then
+        assertEquals( "Wrong start!", 2 * CHUNK, store.getStartOffset() );
+        assertEquals( "Wrong end!", length, store.getEndOffset() );
+        byte[] read = new byte[100];
+        assertEquals( "Dropped bytes were read!", 0, store.read( 0, read, 0, read.length ) );
+        assertEquals( "Wrong number of bytes read!", 50, store.read( 2 * CHUNK - 50, read, 0, read.length ) );
+        byte[] expected = new byte[100];
+        System.arraycopy( pattern( 2 * CHUNK, 50 ), 0, expected, 50, 50 );
+        assertArrayEquals( "Bytes were not copied to their place!", expected, read );
+        read = new byte[100];
+        assertEquals( "Bytes beyond the end were read!", 50, store.read( length - 50, read, 0, read.length ) );
+    }
+
+    @Test
+    public void should_start_over_when_cleared() {
+        // Given
+        ByteStore store = new ByteStore( CHUNK );
+        store.append( pattern( 0, 3 * CHUNK ), 0, 3 * CHUNK );
+
+        // When
+        store.clear();
+        store.append( new byte[] {1, 2, 3}, 0, 3 );
+
+        // Then
+        assertEquals( "Wrong start!", 0, store.getStartOffset() );
+        assertEquals( "Wrong end!", 3, store.getEndOffset() );
+        byte[] read = new byte[3];
+        assertEquals( 3, store.read( 0, read, 0, 3 ) );
+        assertArrayEquals( new byte[] {1, 2, 3}, read );
+    }
+
+
+    // Bytes which tell their offset, so that misplaced ones show
+    private static byte[] pattern( long offset, int length ) {
+        byte[] ret = new byte[length];
+        for ( int i=0; i<length; i++ ) {
+            long n = offset + i;
+            ret[i] = (byte) (n ^ (n >>> 8) ^ (n >>> 16));
+        }
+        return ret;
+    }
+
+}
@@ -0,0 +1,178 @@
+package nbpio.serialmonitor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CaptureReplaySourceTest {
+
+    private static final int LINE_LENGTH = 32;
+    private static final int SEGMENT_SIZE = 4096;
+
+    private SerialIOScheduler scheduler;
+    private File captureDir;
+    private SerialPortConfig config;
+
+    @Before
+    public void setup() throws IOException {
+        scheduler = new SerialIOScheduler( 2, 1 );
+        captureDir = Files.createTempDirectory( "capture" ).toFile();
+        config = new SerialPortConfig.Builder().portName("loopback").baudRate(115200).build();
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+        File[] files = captureDir.listFiles();
+        if ( files != null ) {
+            for ( File file : files ) {
+                file.delete();
+            }
+        }
+        captureDir.delete();
+    }
+
+    @Test
+    public void should_replay_a_recorded_session_byte_exact() throws Exception {
+        // Given
+        LoopbackSerialPort port = new LoopbackSerialPort();
+        SerialPortCommunicator recording = new SerialPortCommunicator( config, port, scheduler );
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        connect( recording, received );
+        CaptureRecorder recorder = recording.startCapture( captureDir, SEGMENT_SIZE );
+        InputStream device = port.getDeviceInput();
+        TrafficGenerator generator = new TrafficGenerator.Builder( port.getDeviceOutput() )
+            .bursts( 1, 17, 700, 3 )
+            .lineLength( LINE_LENGTH )
+            .build();
+        StringBuilder sent = new StringBuilder();
+        for ( int i=0; i<10; i++ ) {
+            String message = "command " + i + "\n";
+            sent.append( message );
+            assertTrue( "Message was dropped!", recording.getTransmitter().send( message.getBytes( StandardCharsets.US_ASCII ) ) );
+            generator.run( 2000 );
+        }
+        awaitTrue( "Not everything was received!", () -> size( received ) == 10 * 2000 );
+        byte[] sentToDevice = new byte[sent.length()];
+        for ( int n=0; n<sentToDevice.length; ) {
+            n += device.read( sentToDevice, n, sentToDevice.length - n );
+        }
+        // The recorder gets each chunk after the listener above
+        awaitTrue( "Not everything was recorded!", () -> recorder.getByteCount() == 10 * 2000 + sentToDevice.length );
+        recording.stopCapture();
+        recording.disconnect();
+        byte[] original = toByteArray( received );
+
+        // When
+        CaptureReplaySource replay = new CaptureReplaySource( captureDir, CaptureReplaySource.AS_FAST_AS_POSSIBLE );
+        SerialPortCommunicator replaying = new SerialPortCommunicator( config, replay, scheduler );
+        ByteArrayOutputStream replayed = new ByteArrayOutputStream();
+        connect( replaying, replayed );
+
+        // Then
+        assertTrue( "Replay did not end!", replay.awaitEnd( 10, TimeUnit.SECONDS ) );
+        awaitTrue( "Not everything was replayed!", () -> size( replayed ) == original.length );
+        replaying.disconnect();
+        assertArrayEquals( "Replay differs from the recording!", original, toByteArray( replayed ) );
+        assertTrue( "Capture was not split into segments!", CaptureRecorder.getSegmentFile( captureDir, 1 ).isFile() );
+        assertRecords( original, sent.toString().getBytes( StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void should_honor_the_replay_speed() throws Exception {
+        // Given
+        CaptureRecorder recorder = new CaptureRecorder( captureDir, SEGMENT_SIZE );
+        recorder.record( CaptureRecorder.RECEIVED, new byte[] {'a'}, 0, 1 );
+        Thread.sleep( 800 );
+        recorder.record( CaptureRecorder.RECEIVED, new byte[] {'b'}, 0, 1 );
+        recorder.close();
+        CaptureReplaySource replay = new CaptureReplaySource( captureDir, 4 );
+
+        // When
+        SerialStreamSource.Connection connection = replay.open( config, 10 );
+        long start = System.nanoTime();
+        InputStream in = connection.getInputStream();
+        int first = in.read();
+        int second = in.read();
+        long millis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        // Then
+        assertEquals( "Wrong first byte!", 'a', first );
+        assertEquals( "Wrong second byte!", 'b', second );
+        assertTrue( "Replayed too fast: " + millis + " ms", millis >= 150 );
+        assertEquals( "Ended replay is not idle!", 0, in.read( new byte[16], 0, 16 ) );
+        assertTrue( "Replay did not end!", replay.awaitEnd( 1, TimeUnit.SECONDS ) );
+        connection.close();
+    }
+
+
+    private void assertRecords( byte[] received, byte[] sent ) throws IOException {
+        CaptureReader reader = new CaptureReader( captureDir );
+        ByteArrayOutputStream receivedRecords = new ByteArrayOutputStream();
+        ByteArrayOutputStream sentRecords = new ByteArrayOutputStream();
+        long lastTimestamp = -1;
+        while ( reader.next() ) {
+            assertTrue( "Records out of order!", reader.getTimestampNanos() >= lastTimestamp );
+            lastTimestamp = reader.getTimestampNanos();
+            ByteBuffer payload = reader.getPayload();
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get( bytes );
+            (reader.getDirection() == CaptureRecorder.RECEIVED ? receivedRecords : sentRecords).write( bytes );
+        }
+        assertArrayEquals( "Wrong received records!", received, receivedRecords.toByteArray() );
+        assertArrayEquals( "Wrong sent records!", sent, sentRecords.toByteArray() );
+    }
+
+    private static void connect( SerialPortCommunicator communicator, ByteArrayOutputStream received ) throws Exception {
+        communicator.connect( (isReconnection) -> {}, new SerialInputListener() {
+            @Override
+            public void textReceived( CharBuffer text ) {
+                // the bytes are compared
+            }
+
+            @Override
+            public void bytesReceived( ByteBuffer bytes ) {
+                // the buffer is shared with the recorder, so its position is left alone
+                synchronized (received) {
+                    for ( int i=bytes.position(); i<bytes.limit(); i++ ) {
+                        received.write( bytes.get(i) );
+                    }
+                }
+            }
+        });
+    }
+
+    private static int size( ByteArrayOutputStream out ) {
+        synchronized (out) {
+            return out.size();
+        }
+    }
+
+    private static byte[] toByteArray( ByteArrayOutputStream out ) {
+        synchronized (out) {
+            return out.toByteArray();
+        }
+    }
+
+    private static void awaitTrue( String message, BooleanSupplier condition ) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+        while ( !condition.getAsBoolean() ) {
+            if ( System.nanoTime() > deadline ) {
+                fail( message );
+            }
+            Thread.sleep( 5 );
+        }
+    }
+
+}
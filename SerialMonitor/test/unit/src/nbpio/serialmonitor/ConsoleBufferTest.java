@@ -0,0 +1,136 @@
+package nbpio.serialmonitor;
+
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConsoleBufferTest {
+
+    @Test
+    public void should_drop_the_oldest_lines_beyond_the_line_limit() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 100, 0 );
+
+        // When
+        for ( int i=0; i<250; i++ ) {
+            buffer.append( "line " + i + "\n", null );
+        }
+
+        // Then
+        assertEquals( "Wrong number of lines!", 100, buffer.getLineCount() );
+        assertEquals( "Wrong first line number!", 150, buffer.getFirstLineNumber() );
+        assertEquals( "line 150", buffer.getLineText(0) );
+        assertEquals( "line 249", buffer.getLineText(99) );
+    }
+
+    @Test
+    public void should_count_the_open_line_against_the_line_limit() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 3, 0 );
+
+        // When
+        buffer.append( "a\nb\nc\nprompt> ", null );
+
+        // Then
+        assertEquals( "Wrong number of lines!", 3, buffer.getLineCount() );
+        assertTrue( "Open line was lost!", buffer.hasOpenLine() );
+        assertEquals( "b", buffer.getLineText(0) );
+        assertEquals( "prompt> ", buffer.getLineText(2) );
+    }
+
+    @Test
+    public void should_drop_the_oldest_lines_beyond_the_byte_limit() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 10000 );
+
+        // When
+        for ( int i=0; i<1000; i++ ) {
+            buffer.append( String.format( "line %04d\n", i ), null );
+        }
+
+        // Then
+        assertTrue( "Byte limit exceeded: " + buffer.getByteCount(), buffer.getByteCount() <= 10000 );
+        assertTrue( "Too many lines were dropped!", buffer.getByteCount() > 10000 - 100 );
+        assertEquals( "Newest line was dropped!", "line 0999", buffer.getLineText( buffer.getLineCount() - 1 ) );
+        assertEquals( "Lines were lost in between!", 1000, buffer.getFirstLineNumber() + buffer.getLineCount() );
+    }
+
+    @Test
+    public void should_wrap_long_lines() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 0 );
+        int length = ConsoleBuffer.MAX_LINE_LENGTH;
+
+        // When
+        buffer.append( repeat( 'a', length + 10 ), null );
+        buffer.append( "\n" + repeat( 'b', length ), null );
+        buffer.append( "\n", null );
+        buffer.append( "c\n", null );
+
+        // Then
+        assertEquals( "Wrong number of lines!", 4, buffer.getLineCount() );
+        assertEquals( repeat( 'a', length ), buffer.getLineText(0) );
+        assertEquals( repeat( 'a', 10 ), buffer.getLineText(1) );
+        assertEquals( "A line as long as the limit was followed by an empty line!", repeat( 'b', length ), buffer.getLineText(2) );
+        assertEquals( "c", buffer.getLineText(3) );
+        assertEquals( "Wrong longest line!", length, buffer.getMaxLineLength() );
+        assertFalse( "Line was left open!", buffer.hasOpenLine() );
+    }
+
+    @Test
+    public void should_keep_the_styles_of_an_open_line_when_closing_it() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 0 );
+        SimpleAttributeSet bold = new SimpleAttributeSet();
+        StyleConstants.setBold( bold, true );
+        buffer.append( "> ", null );
+        buffer.append( "cmd", bold );
+        assertEquals( "Open line is not shown!", 1, buffer.getLineCount() );
+        assertEquals( "> cmd", buffer.getLineText(0) );
+
+        // When
+        buffer.append( "\n", bold );
+        buffer.append( "next", null );
+
+        // Then
+        assertEquals( "Wrong number of lines!", 2, buffer.getLineCount() );
+        assertEquals( "> cmd", buffer.getLineText(0) );
+        assertEquals( "Wrong number of spans!", 2, buffer.getSpanCount(0) );
+        assertEquals( 2, buffer.getSpanEnd( 0, 0 ) );
+        assertNull( buffer.getSpanStyle( 0, 0 ) );
+        assertEquals( 5, buffer.getSpanEnd( 0, 1 ) );
+        assertSame( bold, buffer.getSpanStyle( 0, 1 ) );
+        assertEquals( "next", buffer.getLineText(1) );
+        assertTrue( "Line is not open!", buffer.hasOpenLine() );
+    }
+
+    @Test
+    public void should_start_over_when_cleared() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 10, 0 );
+        for ( int i=0; i<20; i++ ) {
+            buffer.append( "line\n", null );
+        }
+        buffer.append( "open", null );
+
+        // When
+        buffer.clear();
+        buffer.append( "new\n", null );
+
+        // Then
+        assertEquals( "Wrong number of lines!", 1, buffer.getLineCount() );
+        assertEquals( "Wrong first line number!", 0, buffer.getFirstLineNumber() );
+        assertEquals( "new", buffer.getLineText(0) );
+    }
+
+
+    private static String repeat( char c, int count ) {
+        StringBuilder b = new StringBuilder( count );
+        for ( int i=0; i<count; i++ ) {
+            b.append(c);
+        }
+        return b.toString();
+    }
+
+}
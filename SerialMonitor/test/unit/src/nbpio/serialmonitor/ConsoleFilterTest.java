@@ -0,0 +1,61 @@
+package nbpio.serialmonitor;
+
+import java.util.Collections;
+import java.util.regex.Pattern;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConsoleFilterTest {
+
+    @Test
+    public void should_pass_text_on_at_once_without_rules() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 0 );
+        ConsoleRenderer renderer = new ConsoleRenderer( buffer, null, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        ConsoleFilter filter = new ConsoleFilter( renderer, new ConsoleBuffer( 0, 0 ) );
+
+        // When
+        filter.print( "line 1\nprompt> ", null );
+        renderer.flush();
+
+        // Then
+        assertEquals( "Wrong number of lines!", 2, buffer.getLineCount() );
+        assertEquals( "Open line was not shown!", "prompt> ", buffer.getLineText(1) );
+        filter.dispose();
+    }
+
+    @Test
+    public void should_filter_the_scrollback_printed_without_rules() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 0 );
+        ConsoleRenderer renderer = new ConsoleRenderer( buffer, null, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        ConsoleFilter filter = new ConsoleFilter( renderer, new ConsoleBuffer( 0, 0 ) );
+        filter.print( "keep 1\ndrop 2\nkeep 3\n", null );
+
+        // When
+        filter.setRules( Collections.singletonList(
+            new FilterRule.Builder().action( FilterRule.Action.HIDE ).pattern( Pattern.compile( "^drop" ) ).build()
+        ));
+        filter.print( "drop 4\nkeep 5\n", null );
+        filter.waitFinished();
+        renderer.flush();
+
+        // Then
+        assertEquals( "Wrong number of lines!", 3, buffer.getLineCount() );
+        assertEquals( "keep 1", buffer.getLineText(0) );
+        assertEquals( "keep 3", buffer.getLineText(1) );
+        assertEquals( "keep 5", buffer.getLineText(2) );
+
+        // When
+        filter.setRules( Collections.emptyList() );
+        filter.waitFinished();
+        filter.print( "drop 6\n", null );
+        renderer.flush();
+
+        // Then
+        assertEquals( "Lines were not shown again!", 6, buffer.getLineCount() );
+        assertEquals( "Text printed after the rules were removed was lost!", "drop 6", buffer.getLineText(5) );
+        filter.dispose();
+    }
+
+}
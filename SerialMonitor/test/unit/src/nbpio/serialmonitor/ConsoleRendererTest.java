@@ -0,0 +1,63 @@
+package nbpio.serialmonitor;
+
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ConsoleRendererTest {
+
+    @Test
+    public void should_cap_the_text_waiting_for_a_frame() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 2000 );
+        ConsoleRenderer renderer = new ConsoleRenderer( buffer, null, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        SerialStatistics statistics = new SerialStatistics();
+        renderer.setStatistics( statistics );
+        SimpleAttributeSet even = new SimpleAttributeSet();
+        SimpleAttributeSet odd = new SimpleAttributeSet();
+        StyleConstants.setBold( odd, true );
+        int printed = 0;
+
+        // When
+        for ( int i=0; i<1000; i++ ) {
+            String line = "line " + i + "\n";
+            renderer.print( line, i % 2 == 0 ? even : odd );
+            printed += line.length();
+        }
+        long dropped = statistics.snapshot().getDroppedBytes();
+        renderer.flush();
+
+        // Then
+        assertTrue( "Nothing was dropped!", dropped > 0 );
+        assertTrue( "Too much text was kept: " + (printed - dropped), printed - dropped <= 1000 + 1000 / 4 );
+        assertEquals( "Newest line was dropped!", "line 999", buffer.getLineText( buffer.getLineCount() - 1 ) );
+        for ( int i=0; i<buffer.getLineCount(); i++ ) {
+            String text = buffer.getLineText(i);
+            if ( text.startsWith( "line " ) ) {
+                int n = Integer.parseInt( text.substring( 5 ) );
+                assertSame( "Wrong style of " + text + "!", n % 2 == 0 ? even : odd, buffer.getSpanStyle( i, 0 ) );
+            }
+        }
+    }
+
+    @Test
+    public void should_keep_everything_below_the_cap() {
+        // Given
+        ConsoleBuffer buffer = new ConsoleBuffer( 0, 0 );
+        ConsoleRenderer renderer = new ConsoleRenderer( buffer, null, ConsoleRenderer.DEFAULT_FRAME_RATE );
+        SerialStatistics statistics = new SerialStatistics();
+        renderer.setStatistics( statistics );
+
+        // When
+        for ( int i=0; i<1000; i++ ) {
+            renderer.print( "line " + i + "\n", null );
+        }
+        renderer.flush();
+
+        // Then
+        assertEquals( "Text was dropped!", 0, statistics.snapshot().getDroppedBytes() );
+        assertEquals( "Wrong number of lines!", 1000, buffer.getLineCount() );
+    }
+
+}
@@ -0,0 +1,289 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import purejavacomm.NoSuchPortException;
+
+/**
+ * A serial port in the JVM for tests. The communicator opens it like a real
+ * port, and the test plays the device on the other end: what the device
+ * writes to {@link #getDeviceOutput()} is received by the communicator, and
+ * what the communicator sends can be read from {@link #getDeviceInput()}.
+ * <p>
+ * Like a real port, each direction has a bounded driver buffer which blocks
+ * the writer while it is full, reads honor the receive timeout, and
+ * {@link #unplug()} makes the open connection fail and further opens throw
+ * {@link NoSuchPortException} until the port is plugged in again.
+ */
+final class LoopbackSerialPort implements SerialStreamSource {
+
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final int bufferSize;
+    private Pipe toHost;
+    private Pipe toDevice;
+    private boolean plugged = true;
+    private int openCount;
+
+
+    LoopbackSerialPort() {
+        this( DEFAULT_BUFFER_SIZE );
+    }
+
+    LoopbackSerialPort( int bufferSize ) {
+        this.bufferSize = bufferSize;
+        createPipes();
+    }
+
+    @Override
+    public synchronized Connection open( SerialPortConfig config, int receiveTimeoutMillis ) throws NoSuchPortException {
+        if ( !plugged ) {
+            throw new NoSuchPortException();
+        }
+        openCount++;
+        return new LoopbackConnection( toHost, toDevice, receiveTimeoutMillis );
+    }
+
+    /**
+     * Returns how often the port has been opened.
+     */
+    synchronized int getOpenCount() {
+        return openCount;
+    }
+
+    /**
+     * The stream through which the device sends to the communicator.
+     */
+    synchronized OutputStream getDeviceOutput() {
+        return toHost.createOutput();
+    }
+
+    /**
+     * The stream from which the device reads what the communicator sent,
+     * blocking until something arrives.
+     */
+    synchronized InputStream getDeviceInput() {
+        return toDevice.createInput( 0 );
+    }
+
+    /**
+     * Pulls the cable: the open connection fails and the port cannot be
+     * opened until {@link #plug()}.
+     */
+    synchronized void unplug() {
+        plugged = false;
+        toHost.breakPipe();
+        toDevice.breakPipe();
+    }
+
+    /**
+     * Plugs the device back in, with fresh buffers.
+     */
+    synchronized void plug() {
+        createPipes();
+        plugged = true;
+    }
+
+
+    private void createPipes() {
+        toHost = new Pipe( bufferSize );
+        toDevice = new Pipe( bufferSize );
+    }
+
+
+    /**
+     * The host end of the pipes; closing it leaves the pipes to the next
+     * connection, as closing a real port leaves the device alone.
+     */
+    private static final class LoopbackConnection implements Connection {
+
+        private final InputStream input;
+        private final OutputStream output;
+        private volatile boolean closed;
+
+        LoopbackConnection( Pipe in, Pipe out, int receiveTimeoutMillis ) {
+            InputStream pipeInput = in.createInput( receiveTimeoutMillis );
+            OutputStream pipeOutput = out.createOutput();
+            input = new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    checkOpen();
+                    return pipeInput.read();
+                }
+
+                @Override
+                public int read( byte[] b, int off, int len ) throws IOException {
+                    checkOpen();
+                    int n = pipeInput.read( b, off, len );
+                    checkOpen();
+                    return n;
+                }
+
+                @Override
+                public int available() throws IOException {
+                    checkOpen();
+                    return pipeInput.available();
+                }
+            };
+            output = new OutputStream() {
+                @Override
+                public void write( int b ) throws IOException {
+                    checkOpen();
+                    pipeOutput.write( b );
+                }
+
+                @Override
+                public void write( byte[] b, int off, int len ) throws IOException {
+                    checkOpen();
+                    pipeOutput.write( b, off, len );
+                }
+            };
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return input;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return output;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private void checkOpen() throws IOException {
+            if ( closed ) {
+                throw new IOException( "The port was closed" );
+            }
+        }
+
+    }
+
+
+    /**
+     * A bounded byte ring with blocking ends.
+     */
+    private static final class Pipe {
+
+        private final byte[] ring;
+        private int head;
+        private int size;
+        private boolean broken;
+
+        Pipe( int capacity ) {
+            ring = new byte[capacity];
+        }
+
+        synchronized void breakPipe() {
+            broken = true;
+            notifyAll();
+        }
+
+        synchronized int available() throws IOException {
+            checkOpen();
+            return size;
+        }
+
+        /**
+         * @param timeoutMillis 0 waits forever
+         */
+        synchronized int read( byte[] b, int off, int len, int timeoutMillis ) throws IOException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while ( size == 0 ) {
+                checkOpen();
+                long wait = timeoutMillis > 0 ? deadline - System.currentTimeMillis() : 0;
+                if ( timeoutMillis > 0 && wait <= 0 ) {
+                    return 0;
+                }
+                waitInterruptibly( wait );
+            }
+            int n = Math.min( len, size );
+            for ( int i=0; i<n; i++ ) {
+                b[off + i] = ring[(head + i) % ring.length];
+            }
+            head = (head + n) % ring.length;
+            size -= n;
+            notifyAll();
+            return n;
+        }
+
+        synchronized void write( byte[] b, int off, int len ) throws IOException {
+            while ( len > 0 ) {
+                while ( size == ring.length ) {
+                    checkOpen();
+                    waitInterruptibly( 0 );
+                }
+                checkOpen();
+                int n = Math.min( len, ring.length - size );
+                for ( int i=0; i<n; i++ ) {
+                    ring[(head + size + i) % ring.length] = b[off + i];
+                }
+                size += n;
+                off += n;
+                len -= n;
+                notifyAll();
+            }
+        }
+
+        InputStream createInput( int timeoutMillis ) {
+            return new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    byte[] b = new byte[1];
+                    int n;
+                    while ( (n = read( b, 0, 1 )) == 0 ) {
+                        // a single byte read waits past the timeout
+                    }
+                    return n < 0 ? -1 : b[0] & 0xFF;
+                }
+
+                @Override
+                public int read( byte[] b, int off, int len ) throws IOException {
+                    return Pipe.this.read( b, off, len, timeoutMillis );
+                }
+
+                @Override
+                public int available() throws IOException {
+                    return Pipe.this.available();
+                }
+            };
+        }
+
+        OutputStream createOutput() {
+            return new OutputStream() {
+                @Override
+                public void write( int b ) throws IOException {
+                    write( new byte[] {(byte) b}, 0, 1 );
+                }
+
+                @Override
+                public void write( byte[] b, int off, int len ) throws IOException {
+                    Pipe.this.write( b, off, len );
+                }
+            };
+        }
+
+        private void checkOpen() throws IOException {
+            if ( broken ) {
+                throw new IOException( "The device was unplugged" );
+            }
+        }
+
+        private void waitInterruptibly( long millis ) throws InterruptedIOException {
+            try {
+                wait( millis );
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,78 @@
+package nbpio.serialmonitor;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PlotDataTest {
+
+    @Test
+    public void should_find_min_max_across_partial_blocks() {
+        // Given
+        PlotData data = new PlotData( 1024 );
+        for ( int i=0; i<300; i++ ) {
+            add( data, value(i) );
+        }
+
+        // Then
+        for ( long[] range : new long[][] { {0, 300}, {1, 63}, {10, 200}, {64, 128}, {63, 129}, {130, 300}, {5, 6}, {-10, 400} } ) {
+            assertMinMax( data, range[0], range[1] );
+        }
+    }
+
+    @Test
+    public void should_find_min_max_across_the_wrap_of_the_ring() {
+        // Given
+        PlotData data = new PlotData( 256 );
+        for ( int i=0; i<1000; i++ ) {
+            add( data, value(i) );
+        }
+        assertEquals( "Wrong first sample!", 1000 - 256, data.getStartIndex() );
+
+        // Then
+        for ( long[] range : new long[][] { {0, 1000}, {744, 1000}, {750, 1000}, {760, 770}, {767, 833}, {800, 960}, {900, 999} } ) {
+            assertMinMax( data, range[0], range[1] );
+        }
+    }
+
+    @Test
+    public void should_skip_missing_values() {
+        // Given
+        PlotData data = new PlotData( 128 );
+        for ( int i=0; i<200; i++ ) {
+            data.addSample( new double[] {i, i % 3 == 0 ? -i : Double.NaN}, 2 );
+        }
+        double[] minMax = new double[2];
+
+        // Then
+        assertTrue( "No value was found!", data.getMinMax( 1, 72, 200, minMax ) );
+        assertEquals( "Wrong minimum!", -198, minMax[0], 0 );
+        assertEquals( "Wrong maximum!", -72, minMax[1], 0 );
+        assertFalse( "Found a value where there is none!", data.getMinMax( 1, 73, 75, minMax ) );
+        assertFalse( "Found a value of a missing channel!", data.getMinMax( 2, 72, 200, minMax ) );
+        assertFalse( "Found a value of dropped samples!", data.getMinMax( 0, 0, 72, minMax ) );
+    }
+
+
+    // A zigzag, so that the extremes are spread across the blocks
+    private static double value( int i ) {
+        return (i % 2 == 0 ? 1 : -1) * (i % 97) + i * 0.01;
+    }
+
+    private static void add( PlotData data, double value ) {
+        data.addSample( new double[] {value}, 1 );
+    }
+
+    private static void assertMinMax( PlotData data, long from, long to ) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for ( long i=Math.max( from, data.getStartIndex() ); i<Math.min( to, data.getEndIndex() ); i++ ) {
+            min = Math.min( min, data.getValue( 0, i ) );
+            max = Math.max( max, data.getValue( 0, i ) );
+        }
+        double[] minMax = new double[2];
+        assertTrue( "No value found from " + from + " to " + to + "!", data.getMinMax( 0, from, to, minMax ) );
+        assertEquals( "Wrong minimum from " + from + " to " + to + "!", min, minMax[0], 0 );
+        assertEquals( "Wrong maximum from " + from + " to " + to + "!", max, minMax[1], 0 );
+    }
+
+}
@@ -0,0 +1,83 @@
+package nbpio.serialmonitor;
+
+import java.nio.CharBuffer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PlotLineParserTest {
+
+    @Test
+    public void should_parse_signs_fractions_and_exponents() {
+        assertEquals( 42, parse( "42" ), 0 );
+        assertEquals( -42, parse( "-42" ), 0 );
+        assertEquals( 42, parse( "+42" ), 0 );
+        assertEquals( 21.5, parse( "21.5" ), 0 );
+        assertEquals( -0.25, parse( "-.25" ), 0 );
+        assertEquals( 3, parse( "3." ), 0 );
+        assertEquals( 1500, parse( "1.5e3" ), 0 );
+        assertEquals( 1500, parse( "1.5E+3" ), 0 );
+        assertEquals( -0.0015, parse( "-1.5e-3" ), 1e-18 );
+        assertEquals( 0, parse( "0" ), 0 );
+    }
+
+    @Test
+    public void should_return_nan_for_text_which_is_not_a_number() {
+        for ( String text : new String[] {"", "-", "+", ".", "-.", "e5", "1e", "1e+", "1.5.2", "12ab", "0x1F", "temp", "--1", "1 2"} ) {
+            assertTrue( "Parsed \"" + text + "\"!", Double.isNaN( parse( text ) ) );
+        }
+    }
+
+    @Test
+    public void should_parse_long_digit_runs() {
+        assertEquals( 12345678901234567890123.0, parse( "12345678901234567890123" ), 1e7 );
+        assertEquals( 0.12345678901234567, parse( "0.1234567890123456789012345678901234567890" ), 1e-16 );
+        assertEquals( 1e-5, parse( "0.0000100000000000000000000000000000000000" ), 1e-20 );
+        assertEquals( 0.1, parse( "0." + repeat( '0', 400 ) + "1e400" ), 1e-16 );
+        assertEquals( 1e300, parse( "1" + repeat( '0', 300 ) ), 1e285 );
+    }
+
+    @Test
+    public void should_keep_the_limits_of_huge_exponents() {
+        assertEquals( Double.POSITIVE_INFINITY, parse( "1e400" ), 0 );
+        assertEquals( Double.NEGATIVE_INFINITY, parse( "-1e99999999999" ), 0 );
+        assertEquals( 0, parse( "1e-400" ), 0 );
+        assertEquals( 0, parse( "0e400" ), 0 );
+        assertEquals( 0, parse( repeat( '0', 30 ) + "e99999" ), 0 );
+    }
+
+    @Test
+    public void should_add_the_numbers_of_a_line_as_one_sample() {
+        // Given
+        PlotData data = new PlotData( 64 );
+        PlotLineParser parser = new PlotLineParser( data, null );
+
+        // When
+        parser.textReceived( CharBuffer.wrap( "temp:21.5, hum=40;text\t-3e1\r\nno numbers\n" ) );
+
+        // Then
+        assertEquals( "Wrong number of samples!", 1, data.getEndIndex() );
+        assertEquals( "Wrong number of channels!", 3, data.getChannelCount() );
+        assertEquals( 21.5, data.getValue( 0, 0 ), 0 );
+        assertEquals( 40, data.getValue( 1, 0 ), 0 );
+        assertEquals( -30, data.getValue( 2, 0 ), 0 );
+        assertEquals( "temp", data.getChannelName(0) );
+        assertEquals( "hum", data.getChannelName(1) );
+        assertNull( data.getChannelName(2) );
+    }
+
+
+    private static double parse( String text ) {
+        // Surrounded by other characters, to check that only the range is read
+        char[] chars = ("x" + text + "9").toCharArray();
+        return PlotLineParser.parseNumber( chars, 1, chars.length - 1 );
+    }
+
+    private static String repeat( char c, int count ) {
+        StringBuilder b = new StringBuilder( count );
+        for ( int i=0; i<count; i++ ) {
+            b.append(c);
+        }
+        return b.toString();
+    }
+
+}
@@ -0,0 +1,175 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SerialPortCommunicatorTest {
+
+    private static final int LINE_LENGTH = 32;
+
+    private SerialIOScheduler scheduler;
+    private LoopbackSerialPort port;
+    private SerialPortCommunicator communicator;
+    private final StringBuffer received = new StringBuffer();
+    private final CountDownLatch connectionLost = new CountDownLatch(1);
+
+    @Before
+    public void setup() {
+        scheduler = new SerialIOScheduler( 2, 1 );
+        port = new LoopbackSerialPort();
+        communicator = new SerialPortCommunicator( new SerialPortConfig.Builder().portName("loopback").baudRate(115200).build(), port, scheduler );
+    }
+
+    @After
+    public void tearDown() {
+        communicator.disconnect();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void should_receive_everything_the_device_sends() throws Exception {
+        // Given
+        connect( null );
+        TrafficGenerator generator = new TrafficGenerator.Builder( port.getDeviceOutput() )
+            .bursts( 1, 17, 4096, 3, 1000 )
+            .lineLength( LINE_LENGTH )
+            .build();
+
+        // When
+        generator.run( 200 * LINE_LENGTH * 100 );
+
+        // Then
+        awaitTrue( "Not everything was received!", () -> received.length() == 200 * LINE_LENGTH * 100 );
+        assertLines( received.toString(), 0 );
+        assertEquals( "Wrong byte count!", 200 * LINE_LENGTH * 100, communicator.getStatistics().snapshot().getBytesReceived() );
+    }
+
+    @Test
+    public void should_send_queued_messages_to_the_device() throws Exception {
+        // Given
+        connect( null );
+        InputStream device = port.getDeviceInput();
+        StringBuilder expected = new StringBuilder();
+
+        // When
+        for ( int i=0; i<100; i++ ) {
+            String message = TrafficGenerator.line( i, LINE_LENGTH ) + "\n";
+            expected.append( message );
+            assertTrue( "Message was dropped!", communicator.getTransmitter().send( message.getBytes( StandardCharsets.US_ASCII ) ) );
+        }
+
+        // Then
+        byte[] sent = new byte[expected.length()];
+        int n = 0;
+        while ( n < sent.length ) {
+            n += device.read( sent, n, sent.length - n );
+        }
+        assertEquals( "Wrong data sent!", expected.toString(), new String( sent, StandardCharsets.US_ASCII ) );
+    }
+
+    @Test
+    public void should_reconnect_when_the_device_is_plugged_in_again() throws Exception {
+        // Given
+        CountDownLatch reconnected = new CountDownLatch(1);
+        connect( reconnected );
+
+        // When
+        port.unplug();
+        assertTrue( "The lost connection was not noticed!", connectionLost.await( 5, TimeUnit.SECONDS ) );
+        Thread.sleep( 50 );
+        port.plug();
+
+        // Then
+        assertTrue( "Not reconnected!", reconnected.await( 5, TimeUnit.SECONDS ) );
+        port.getDeviceOutput().write( "back\n".getBytes( StandardCharsets.US_ASCII ) );
+        awaitTrue( "Nothing received after reconnecting!", () -> received.toString().endsWith( "back\n" ) );
+    }
+
+    @Test
+    public void should_stop_reconnecting_when_disconnected() throws Exception {
+        // Given
+        connect( null );
+        port.unplug();
+        communicator.disconnect();
+        communicator.startScanningForPort();
+        Thread.sleep( 50 );
+
+        // When
+        communicator.disconnect();
+        port.plug();
+        Thread.sleep( 500 );
+
+        // Then
+        assertEquals( "Port was reopened after disconnecting!", 1, port.getOpenCount() );
+    }
+
+    @Test
+    public void should_pace_the_device_to_the_configured_rate() throws Exception {
+        // Given
+        connect( null );
+        TrafficGenerator generator = new TrafficGenerator.Builder( port.getDeviceOutput() )
+            .bytesPerSecond( 100000 )
+            .bursts( 250 )
+            .build();
+
+        // When
+        long start = System.nanoTime();
+        generator.start( 50000 );
+        assertTrue( "Generator did not finish!", generator.awaitFinished( 5, TimeUnit.SECONDS ) );
+        long millis = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+
+        // Then
+        assertNull( "Generator failed!", generator.getFailure() );
+        assertTrue( "Sent too fast: " + millis + " ms", millis >= 450 );
+        awaitTrue( "Not everything was received!", () -> received.length() == 50000 );
+    }
+
+
+    private void connect( CountDownLatch reconnected ) throws Exception {
+        communicator.connect( (isReconnection) -> {
+            if ( isReconnection && reconnected != null ) {
+                reconnected.countDown();
+            }
+        }, new SerialInputListener() {
+            @Override
+            public void textReceived( CharBuffer text ) {
+                received.append( text );
+            }
+
+            @Override
+            public void readFailed( IOException ex ) {
+                // as the display pane does
+                connectionLost.countDown();
+                communicator.disconnect();
+                communicator.startScanningForPort();
+            }
+        });
+    }
+
+    private static void assertLines( String text, long firstLine ) {
+        String[] lines = text.split( "\n" );
+        for ( int i=0; i<lines.length; i++ ) {
+            assertEquals( "Wrong line " + i + "!", TrafficGenerator.line( firstLine + i, LINE_LENGTH ), lines[i] );
+        }
+    }
+
+    private static void awaitTrue( String message, BooleanSupplier condition ) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos( 10 );
+        while ( !condition.getAsBoolean() ) {
+            if ( System.nanoTime() > deadline ) {
+                fail( message );
+            }
+            Thread.sleep( 5 );
+        }
+    }
+
+}
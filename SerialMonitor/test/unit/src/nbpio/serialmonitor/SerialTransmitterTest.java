@@ -0,0 +1,98 @@
+package nbpio.serialmonitor;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SerialTransmitterTest {
+
+    private File blockingFile;
+    private File emptyFile;
+    private final CountDownLatch writing = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+    private final List<String> events = new CopyOnWriteArrayList<>();
+    private final CountDownLatch done = new CountDownLatch(2);
+
+    @Before
+    public void setup() throws IOException {
+        blockingFile = File.createTempFile( "transmit", ".bin" );
+        Files.write( blockingFile.toPath(), new byte[10000] );
+        emptyFile = File.createTempFile( "transmit", ".bin" );
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        blockingFile.delete();
+        emptyFile.delete();
+    }
+
+    @Test
+    public void should_drop_queued_files_when_cancelled() throws Exception {
+        // Given
+        SerialTransmitter transmitter = new SerialTransmitter( "test", () -> new BlockingOutputStream(), new SerialStatistics() );
+        transmitter.addListener( new SerialTransmitter.Listener() {
+            @Override
+            public void fileSent( File file, long sentBytes, long nanos ) {
+                fileDone( "sent", file, transmitter );
+            }
+
+            @Override
+            public void fileCancelled( File file, long sentBytes ) {
+                fileDone( "cancelled", file, transmitter );
+            }
+        });
+        assertTrue( "File was not queued!", transmitter.sendFile( blockingFile ) );
+        assertTrue( "File was not queued!", transmitter.sendFile( emptyFile ) );
+        assertTrue( "Writer did not start!", writing.await( 5, TimeUnit.SECONDS ) );
+        assertEquals( "Wrong pending file count!", 2, transmitter.getPendingFileCount() );
+
+        // When
+        transmitter.cancelFiles();
+        release.countDown();
+
+        // Then
+        assertTrue( "Files were not reported!", done.await( 5, TimeUnit.SECONDS ) );
+        assertEquals( "Wrong events!", "[cancelled " + blockingFile.getName() + " 1, cancelled " + emptyFile.getName() + " 0]", events.toString() );
+        assertEquals( "Cancelled file was sent on!", 4096, written.size() );
+    }
+
+
+    private void fileDone( String event, File file, SerialTransmitter transmitter ) {
+        events.add( event + " " + file.getName() + " " + transmitter.getPendingFileCount() );
+        done.countDown();
+    }
+
+    // Blocks the writer in its first write until released
+    private final class BlockingOutputStream extends OutputStream {
+
+        @Override
+        public void write( int b ) throws IOException {
+            write( new byte[] {(byte) b}, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                throw new IOException( ex );
+            }
+            written.write( b, off, len );
+        }
+
+    }
+
+}
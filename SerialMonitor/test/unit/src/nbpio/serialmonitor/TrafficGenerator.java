@@ -0,0 +1,170 @@
+package nbpio.serialmonitor;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Plays a device which sends numbered lines, for driving a
+ * {@link LoopbackSerialPort} in tests and benchmarks. The lines are written
+ * in bursts whose sizes cycle through the configured pattern, regardless of
+ * where the lines end, and paced to the configured average byte rate. Line
+ * n reads as given by {@link #line(long, int)}, so the receiving side can
+ * tell lost, duplicated and reordered data apart.
+ */
+final class TrafficGenerator {
+
+    private final OutputStream out;
+    private final int bytesPerSecond;
+    private final int[] bursts;
+    private final int lineLength;
+    private volatile long bytesWritten;
+    private volatile IOException failure;
+    private volatile boolean stopped;
+    private Thread thread;
+
+
+    private TrafficGenerator( Builder b ) {
+        this.out = b.out;
+        this.bytesPerSecond = b.bytesPerSecond;
+        this.bursts = b.bursts;
+        this.lineLength = b.lineLength;
+    }
+
+    /**
+     * Returns line n without its newline, lineLength - 1 characters long.
+     */
+    static String line( long n, int lineLength ) {
+        StringBuilder line = new StringBuilder( lineLength );
+        line.append( n ).append( ':' );
+        while ( line.length() < lineLength - 1 ) {
+            line.append( (char) ('a' + (line.length() + n) % 26) );
+        }
+        line.setLength( lineLength - 1 );
+        return line.toString();
+    }
+
+    /**
+     * Sends the lines until totalBytes have been written or the generator
+     * is stopped, in the calling thread.
+     */
+    void run( long totalBytes ) throws IOException {
+        byte[] text = new byte[0];
+        int textOffset = 0;
+        long lineNumber = 0;
+        long start = System.nanoTime();
+        long written = 0;
+        int burstIndex = 0;
+        byte[] burst = new byte[Arrays.stream( bursts ).max().getAsInt()];
+        while ( written < totalBytes && !stopped ) {
+            int size = (int) Math.min( bursts[burstIndex++ % bursts.length], totalBytes - written );
+            for ( int i=0; i<size; i++ ) {
+                if ( textOffset == text.length ) {
+                    text = (line( lineNumber++, lineLength ) + "\n").getBytes( StandardCharsets.US_ASCII );
+                    textOffset = 0;
+                }
+                burst[i] = text[textOffset++];
+            }
+            out.write( burst, 0, size );
+            written += size;
+            bytesWritten = written;
+            if ( bytesPerSecond > 0 ) {
+                long due = start + written * TimeUnit.SECONDS.toNanos(1) / bytesPerSecond;
+                long wait = due - System.nanoTime();
+                if ( wait > 0 ) {
+                    LockSupport.parkNanos( wait );
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Sends totalBytes in a thread of its own.
+     */
+    synchronized void start( long totalBytes ) {
+        thread = new Thread( () -> {
+            try {
+                run( totalBytes );
+            } catch (IOException ex) {
+                failure = ex;
+            }
+        }, "Traffic Generator" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /**
+     * @return false if the generator is still running
+     */
+    boolean awaitFinished( long timeout, TimeUnit unit ) throws InterruptedException {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+        }
+        t.join( Math.max( 1, unit.toMillis( timeout ) ) );
+        return !t.isAlive();
+    }
+
+    void stop() {
+        stopped = true;
+    }
+
+    long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    /**
+     * Returns what made the generator stop early, or null.
+     */
+    IOException getFailure() {
+        return failure;
+    }
+
+
+    static final class Builder {
+        private OutputStream out;
+        private int bytesPerSecond;
+        private int[] bursts = {64};
+        private int lineLength = 32;
+
+        Builder( OutputStream out ) {
+            this.out = out;
+        }
+
+        /**
+         * @param bytesPerSecond the average rate, 0 to send as fast as the
+         * port accepts
+         */
+        Builder bytesPerSecond( int bytesPerSecond ) {
+            this.bytesPerSecond = bytesPerSecond;
+            return this;
+        }
+
+        /**
+         * Sets the sizes of the writes, used in turn.
+         */
+        Builder bursts( int... bursts ) {
+            if ( bursts.length == 0 ) throw new IllegalArgumentException("At least one burst size is needed!");
+            this.bursts = bursts.clone();
+            return this;
+        }
+
+        /**
+         * Sets the length of the lines including the newline.
+         */
+        Builder lineLength( int lineLength ) {
+            if ( lineLength < 2 ) throw new IllegalArgumentException("A line needs at least one character!");
+            this.lineLength = lineLength;
+            return this;
+        }
+
+        TrafficGenerator build() {
+            return new TrafficGenerator( this );
+        }
+    }
+
+}